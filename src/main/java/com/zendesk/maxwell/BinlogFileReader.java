@@ -0,0 +1,208 @@
+package com.zendesk.maxwell;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.BinlogEventV4;
+import com.google.code.or.binlog.impl.event.StopEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+   reads a run of binlog files off local disk.  Up to `readers` files are
+   decoded at once, each into a bounded buffer of its own; a merge thread
+   drains those buffers strictly in file order and hands the events on to
+   `listener`, so the events come out in the same order a replication stream
+   would deliver them.
+
+   Files are decoded in the order they'll be merged, so the file being merged
+   always has a reader and the readers working ahead simply block once their
+   buffers fill up.
+ */
+public class BinlogFileReader {
+	static final Logger LOGGER = LoggerFactory.getLogger(BinlogFileReader.class);
+	private static final Pattern BINLOG_FILE_PATTERN = Pattern.compile("^(.*)\\.(\\d+)$");
+
+	// queued after a file's last event; only ever compared by identity.
+	private static final BinlogEventV4 END_OF_FILE = new StopEvent();
+
+	private final List<FileTask> tasks = new ArrayList<>();
+	private final BinlogEventListener listener;
+	private final ExecutorService readers;
+	private final Thread mergeThread;
+
+	private volatile boolean stopped;
+	private volatile boolean finished;
+	private volatile Exception exception;
+
+	private class FileTask implements Runnable, BinlogEventListener {
+		final File file;
+		final BlockingQueue<BinlogEventV4> events;
+		final MappedBinlogFileParser parser;
+
+		FileTask(File file, long startPosition, int bufferSize) {
+			this.file = file;
+			this.events = new ArrayBlockingQueue<>(bufferSize);
+			this.parser = new MappedBinlogFileParser(file, startPosition, this);
+		}
+
+		@Override
+		public void run() {
+			try {
+				if ( !stopped )
+					parser.parseFile();
+			} catch ( Exception e ) {
+				LOGGER.error("failed to read binlog file " + file, e);
+				exception = e;
+			} finally {
+				onEvents(END_OF_FILE);
+			}
+		}
+
+		@Override
+		public void onEvents(BinlogEventV4 event) {
+			while ( !stopped ) {
+				try {
+					if ( events.offer(event, 100, TimeUnit.MILLISECONDS) )
+						return;
+				} catch ( InterruptedException e ) { }
+			}
+		}
+	}
+
+	public BinlogFileReader(List<File> files, BinlogPosition start, int readers, int bufferSize, BinlogEventListener listener) {
+		this.listener = listener;
+
+		for ( File f : files ) {
+			boolean isStartFile = f.getName().equals(start.getFile());
+			tasks.add(new FileTask(f, isStartFile ? start.getOffset() : 0L, bufferSize));
+		}
+
+		this.readers = Executors.newFixedThreadPool(readers, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "maxwell-binlog-reader-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		this.mergeThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				mergeLoop();
+			}
+		}, "maxwell-binlog-merge");
+		this.mergeThread.setDaemon(true);
+	}
+
+	/*
+	   the archived binlogs in `dir` that belong to the same log as `start`,
+	   from `start`'s file onwards, in log order.
+	 */
+	public static List<File> listBinlogFiles(File dir, BinlogPosition start) throws IOException {
+		Matcher startMatcher = BINLOG_FILE_PATTERN.matcher(start.getFile());
+		if ( !startMatcher.matches() )
+			throw new IOException("can't make out a binlog sequence number in " + start.getFile());
+
+		String baseName = startMatcher.group(1);
+		final long startSequence = Long.valueOf(startMatcher.group(2));
+
+		File[] candidates = dir.listFiles();
+		if ( candidates == null )
+			throw new IOException("couldn't list files in " + dir);
+
+		ArrayList<File> files = new ArrayList<>();
+		for ( File f : candidates ) {
+			Matcher m = BINLOG_FILE_PATTERN.matcher(f.getName());
+			if ( f.isFile() && m.matches() && m.group(1).equals(baseName) && Long.valueOf(m.group(2)) >= startSequence )
+				files.add(f);
+		}
+
+		// sorted by sequence number; mysql's zero-padding runs out at 999999.
+		Collections.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(sequenceNumber(a), sequenceNumber(b));
+			}
+		});
+
+		if ( files.isEmpty() || !files.get(0).getName().equals(start.getFile()) )
+			throw new IOException("couldn't find binlog file " + start.getFile() + " in " + dir);
+
+		return files;
+	}
+
+	private static long sequenceNumber(File f) {
+		Matcher m = BINLOG_FILE_PATTERN.matcher(f.getName());
+		m.matches();
+		return Long.valueOf(m.group(2));
+	}
+
+	public void start() {
+		for ( FileTask task : tasks )
+			readers.submit(task);
+
+		mergeThread.start();
+	}
+
+	public void stop() throws InterruptedException {
+		this.stopped = true;
+
+		for ( FileTask task : tasks )
+			task.parser.abort();
+
+		readers.shutdownNow();
+		mergeThread.join(5000);
+	}
+
+	/* true once every event from every file has been handed to the listener */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/* rethrows the first error hit decoding a file */
+	public void ensureRunning() throws Exception {
+		if ( exception != null )
+			throw exception;
+	}
+
+	private void mergeLoop() {
+		try {
+			for ( FileTask task : tasks ) {
+				LOGGER.info("reading binlog file " + task.file);
+
+				while ( !stopped && exception == null ) {
+					BinlogEventV4 event = task.events.poll(100, TimeUnit.MILLISECONDS);
+
+					if ( event == END_OF_FILE )
+						break;
+					else if ( event != null )
+						listener.onEvents(event);
+				}
+
+				if ( stopped || exception != null )
+					return;
+			}
+
+			LOGGER.info("finished reading " + tasks.size() + " binlog file(s)");
+			finished = true;
+		} catch ( InterruptedException e ) { }
+	}
+}
@@ -0,0 +1,54 @@
+package com.zendesk.maxwell;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+/*
+   the column names of one version of a table, by position, and the way back
+   from a name to its position.  Built once per Table (Table#getColumnIndex)
+   and shared, read-only, by every row of that table.
+ */
+public class ColumnIndex implements Serializable {
+	public static final ColumnIndex EMPTY = new ColumnIndex(new String[0]);
+
+	private final String[] names;
+	private final HashMap<String, Integer> positions;
+
+	private ColumnIndex(String[] names) {
+		this.names = names;
+		this.positions = new HashMap<>();
+
+		for ( int i = 0; i < names.length; i++ )
+			positions.put(names[i], i);
+	}
+
+	public static ColumnIndex forColumns(List<ColumnDef> columns) {
+		String[] names = new String[columns.size()];
+		for ( ColumnDef c : columns )
+			names[c.getPos()] = c.getName();
+
+		return new ColumnIndex(names);
+	}
+
+	/* an index of the given names, in order (RowMapCodec reading a spilled one back) */
+	static ColumnIndex forNames(String[] names) {
+		return names.length == 0 ? EMPTY : new ColumnIndex(names);
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String nameAt(int pos) {
+		return names[pos];
+	}
+
+	/* -1 if there's no such column */
+	public int indexOf(String name) {
+		Integer pos = positions.get(name);
+		return pos == null ? -1 : pos;
+	}
+}
@@ -0,0 +1,105 @@
+package com.zendesk.maxwell;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.zendesk.maxwell.schema.Table;
+
+import java.util.List;
+import java.util.Objects;
+
+/*
+   a RowMap that holds on to open-replicator's raw row and only converts its
+   columns (ColumnDef.asJSON) the first time the data is actually needed -- by
+   toJSON(), pkToJson(), getData() and friends.  Rows that get skipped or dropped
+   before that point never pay for the conversion.
+
+   For updates, `before` holds the before-image, which is folded in as old data
+   (or, under binlog_row_image=MINIMAL, as the missing columns of the after-image).
+
+   Once converted, the data holds nothing but the table's columns, so the row
+   is handed the table and gets written by its compiled RowJsonWriter.
+ */
+public class LazyRowMap extends RowMap {
+	private transient Table tableDef;
+	private transient Row row;
+	private transient BitColumn usedColumns;
+	private transient Row before;
+	private transient BitColumn usedColumnsBefore;
+
+	public LazyRowMap(String type, String database, String table, Long timestamp, List<String> pkColumns, BinlogPosition nextPosition,
+					  Table tableDef, Row row, BitColumn usedColumns, Row before, BitColumn usedColumnsBefore) {
+		super(type, database, table, timestamp, pkColumns, nextPosition, tableDef.getColumnIndex());
+		this.tableDef = tableDef;
+		this.row = row;
+		this.usedColumns = usedColumns;
+		this.before = before;
+		this.usedColumnsBefore = usedColumnsBefore;
+	}
+
+	/* before conversion, sized up from the raw row images */
+	@Override
+	public long getApproximateSize() {
+		Row after = this.row;
+		Row before = this.before;
+		if ( after == null )
+			return super.getApproximateSize();
+
+		return 200 + approximateSize(after) + approximateSize(before);
+	}
+
+	private static long approximateSize(Row row) {
+		if ( row == null )
+			return 0;
+
+		long size = 64;
+		for ( Column c : row.getColumns() )
+			size += 16 + RowValues.approximateSize(c.getValue());
+		return size;
+	}
+
+	@Override
+	public void materialize() {
+		if ( this.row == null )
+			return;
+
+		Row after = this.row;
+		Row before = this.before;
+
+		this.row = null;
+		this.before = null;
+
+		// the row was built on tableDef's column index, so values go in by column position
+		for ( ColumnWithDefinition cd : new ColumnWithDefinitionList(tableDef, after, usedColumns) )
+			putDataAt(cd.definition.getPos(), cd.asJSON());
+
+		if ( before != null ) {
+			for ( ColumnWithDefinition cd : new ColumnWithDefinitionList(tableDef, before, usedColumnsBefore) ) {
+				int pos = cd.definition.getPos();
+				Object beforeValue = cd.asJSON();
+
+				if ( !hasDataAt(pos) ) {
+					/*
+					   If we find a column in the BEFORE image that's *not* present in the AFTER image,
+					   we're running in binlog_row_image = MINIMAL.  In this case, the BEFORE image acts
+					   as a sort of WHERE clause to update rows with the new values (present in the AFTER image).
+
+					   In order to reconstruct as much of the row as posssible, here we fill in
+					   missing data in the rowMap with values from the BEFORE image
+					 */
+					putDataAt(pos, beforeValue);
+				} else {
+					if ( !Objects.equals(getDataAt(pos), beforeValue) ) {
+						putOldDataAt(pos, beforeValue);
+					}
+				}
+			}
+		}
+
+		setTableDef(this.tableDef);
+
+		this.tableDef = null;
+		this.usedColumns = null;
+		this.usedColumnsBefore = null;
+	}
+}
@@ -0,0 +1,82 @@
+package com.zendesk.maxwell;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import com.google.code.or.binlog.BinlogEventListener;
+import com.google.code.or.binlog.impl.FileBasedBinlogParser;
+import com.google.code.or.binlog.impl.parser.*;
+import com.google.code.or.common.util.CodecUtils;
+import com.google.code.or.common.util.IOUtils;
+import com.google.code.or.common.util.MySQLConstants;
+import com.google.code.or.io.XInputStream;
+import com.google.code.or.io.impl.XInputStreamImpl;
+import com.zendesk.maxwell.util.MappedFileInputStream;
+
+/*
+   open-replicator's binlog file parser, reading the file through a memory
+   mapping and parsing it on the calling thread instead of a thread of its own.
+ */
+class MappedBinlogFileParser extends FileBasedBinlogParser {
+	public MappedBinlogFileParser(File file, long startPosition, BinlogEventListener listener) {
+		setBinlogFilePath(file.getParent());
+		setBinlogFileName(file.getName());
+		setStartPosition(startPosition);
+		setEventListener(listener);
+
+		// the same set of parsers OpenReplicator registers for a replication stream
+		registerEventParser(new StopEventParser());
+		registerEventParser(new RotateEventParser());
+		registerEventParser(new IntvarEventParser());
+		registerEventParser(new XidEventParser());
+		registerEventParser(new RandEventParser());
+		registerEventParser(new QueryEventParser());
+		registerEventParser(new UserVarEventParser());
+		registerEventParser(new IncidentEventParser());
+		registerEventParser(new TableMapEventParser());
+		registerEventParser(new WriteRowsEventParser());
+		registerEventParser(new UpdateRowsEventParser());
+		registerEventParser(new DeleteRowsEventParser());
+		registerEventParser(new WriteRowsEventV2Parser());
+		registerEventParser(new UpdateRowsEventV2Parser());
+		registerEventParser(new DeleteRowsEventV2Parser());
+		registerEventParser(new FormatDescriptionEventParser());
+		registerEventParser(new GtidEventParser());
+	}
+
+	@Override
+	protected XInputStream open(String path, Long position) throws Exception {
+		XInputStream is = new XInputStreamImpl(new MappedFileInputStream(new File(path)));
+
+		try {
+			byte[] magic = is.readBytes(MySQLConstants.BINLOG_MAGIC.length);
+			if ( !CodecUtils.equals(magic, MySQLConstants.BINLOG_MAGIC) )
+				throw new RuntimeException("invalid binlog magic, file: " + path);
+
+			if ( position > MySQLConstants.BINLOG_MAGIC.length )
+				is.skip(position - MySQLConstants.BINLOG_MAGIC.length);
+
+			return is;
+		} catch ( Exception e ) {
+			IOUtils.closeQuietly(is);
+			throw e;
+		}
+	}
+
+	/* parses from the start position to the end of the file, handing each event to the listener */
+	public void parseFile() throws Exception {
+		running.set(true);
+		try {
+			doStart();
+			doParse();
+		} finally {
+			running.set(false);
+			doStop(0, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/* makes a running parseFile() return after the current event */
+	public void abort() {
+		running.set(false);
+	}
+}
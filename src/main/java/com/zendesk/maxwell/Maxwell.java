@@ -1,5 +1,6 @@
 package com.zendesk.maxwell;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -35,16 +36,7 @@ public class Maxwell {
 		this.context.setPosition(pos);
 	}
 
-	private void run(String[] argv) throws Exception {
-		this.config = new MaxwellConfig(argv);
-
-		if ( this.config.log_level != null )
-			MaxwellLogging.setLevel(this.config.log_level);
-
-		this.context = new MaxwellContext(this.config);
-
-		this.context.probeConnections();
-
+	private void restoreOrCaptureSchema() throws Exception {
 		try ( Connection connection = this.context.getReplicationConnectionPool().getConnection(); Connection schemaConnection = context.getMaxwellConnectionPool().getConnection() ) {
 			MaxwellMysqlStatus.ensureReplicationMysqlState(connection);
 			MaxwellMysqlStatus.ensureMaxwellMysqlState(schemaConnection);
@@ -66,16 +58,61 @@ public class Maxwell {
 			} else {
 				initFirstRun(connection, schemaConnection);
 			}
-		} catch ( SQLException e ) {
-			LOGGER.error("SQLException: " + e.getLocalizedMessage());
-			LOGGER.error(e.getLocalizedMessage());
-			return;
+		}
+	}
+
+	/* offline mode only needs the schema store; the binlogs come off local disk */
+	private void restoreOfflineSchema() throws SQLException, InvalidSchemaError {
+		try ( Connection schemaConnection = context.getMaxwellConnectionPool().getConnection() ) {
+			schemaConnection.setCatalog(this.config.databaseName);
+
+			if ( this.config.initPosition == null && this.context.getInitialPosition() == null )
+				throw new RuntimeException("no position stored for server " + this.context.getServerID() + "; please specify --init_position");
+
+			LOGGER.info("Maxwell is reading binlogs from " + this.config.binlogDir + ", starting at " + this.context.getInitialPosition());
+
+			this.schema = SchemaStore.restore(schemaConnection, this.context).getSchema();
+		}
+	}
+
+	private void run(String[] argv) throws Exception {
+		this.config = new MaxwellConfig(argv);
+
+		if ( this.config.log_level != null )
+			MaxwellLogging.setLevel(this.config.log_level);
+
+		this.context = new MaxwellContext(this.config);
+
+		if ( this.config.binlogDir != null ) {
+			try {
+				restoreOfflineSchema();
+			} catch ( SQLException e ) {
+				LOGGER.error("SQLException: " + e.getLocalizedMessage());
+				return;
+			}
+		} else {
+			this.context.probeConnections();
+
+			try {
+				restoreOrCaptureSchema();
+			} catch ( SQLException e ) {
+				LOGGER.error("SQLException: " + e.getLocalizedMessage());
+				LOGGER.error(e.getLocalizedMessage());
+				return;
+			}
 		}
 
 		AbstractProducer producer = this.context.getProducer();
 		AbstractBootstrapper bootstrapper = this.context.getBootstrapper();
 
-		final MaxwellReplicator p = new MaxwellReplicator(this.schema, producer, bootstrapper, this.context, this.context.getInitialPosition());
+		final MaxwellReplicator p;
+		if ( this.config.binlogDir != null ) {
+			BinlogPosition start = this.context.getInitialPosition();
+			p = new OfflineMaxwellReplicator(this.schema, producer, bootstrapper, this.context, start,
+					BinlogFileReader.listBinlogFiles(new File(this.config.binlogDir), start));
+		} else {
+			p = new MaxwellReplicator(this.schema, producer, bootstrapper, this.context, this.context.getInitialPosition());
+		}
 
 		bootstrapper.resume(producer, p);
 
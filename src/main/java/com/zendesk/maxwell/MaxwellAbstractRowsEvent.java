@@ -27,6 +27,7 @@ public abstract class MaxwellAbstractRowsEvent extends AbstractRowEvent {
 	protected final Table table;
 	protected final String database;
 	protected final MaxwellFilter filter;
+	private ParallelRowConverter rowConverter;
 
 	public MaxwellAbstractRowsEvent(AbstractRowEvent e, Table table, MaxwellFilter f) {
 		this.tableId = e.getTableId();
@@ -71,6 +72,17 @@ public abstract class MaxwellAbstractRowsEvent extends AbstractRowEvent {
 		return filter.matches(this);
 	}
 
+	/*
+	   like matchesFilter(), but trusts that the table itself passes the filter --
+	   which it does for any event MaxwellReplicator wraps.
+	 */
+	public boolean matchesRowFilter() {
+		if ( filter == null )
+			return true;
+
+		return filter.matchesRows(this);
+	}
+
 	public abstract String getType();
 
 	public Column findColumn(String name, Row r) {
@@ -166,33 +178,52 @@ public abstract class MaxwellAbstractRowsEvent extends AbstractRowEvent {
 		return sql.toString();
 	}
 
-	protected RowMap buildRowMap() {
-		return new RowMap(
+	/*
+	   the row's columns aren't converted here, but when (if) the RowMap's data is first used.
+	   `before` is the before-image of an update, or null.
+	 */
+	protected RowMap buildRowMap(Row row, BitColumn usedColumns, Row before, BitColumn usedColumnsBefore) {
+		return new LazyRowMap(
 				getType(),
 				this.database,
 				getTable().getName(),
 				getHeader().getTimestamp() / 1000,
 				table.getPKList(),
-				this.getNextBinlogPosition());
+				this.getNextBinlogPosition(),
+				table,
+				row,
+				usedColumns,
+				before,
+				usedColumnsBefore);
 	}
 
+	public void setRowConverter(ParallelRowConverter rowConverter) {
+		this.rowConverter = rowConverter;
+	}
 
-	public List<RowMap> jsonMaps() {
-		ArrayList<RowMap> list = new ArrayList<>();
-
-		for ( Iterator<Row> ri = filteredRows().iterator() ; ri.hasNext(); ) {
-			Row r = ri.next();
-
-			RowMap rowMap = buildRowMap();
-
-			for ( ColumnWithDefinition cd : new ColumnWithDefinitionList(table, r, getUsedColumns()) )
-				rowMap.putData(cd.definition.getName(), cd.asJSON());
+	/*
+	   converts each row with `conversion`, in order.  Hands the work off to the
+	   parallel converter if there's one configured and the event is big enough.
+	 */
+	protected <T> List<RowMap> convertRows(List<T> rows, ParallelRowConverter.Conversion<T> conversion) {
+		if ( rowConverter != null && rowConverter.shouldParallelize(rows.size()) )
+			return rowConverter.convert(rows, conversion);
 
-			list.add(rowMap);
-		}
+		ArrayList<RowMap> list = new ArrayList<>(rows.size());
+		for ( T row : rows )
+			list.add(conversion.convert(row));
 
 		return list;
 	}
 
+	public List<RowMap> jsonMaps() {
+		return convertRows(filteredRows(), new ParallelRowConverter.Conversion<Row>() {
+			@Override
+			public RowMap convert(Row r) {
+				return buildRowMap(r, getUsedColumns(), null, null);
+			}
+		});
+	}
+
 	protected abstract BitColumn getUsedColumns();
 }
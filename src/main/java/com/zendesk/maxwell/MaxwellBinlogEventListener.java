@@ -1,17 +1,17 @@
 package com.zendesk.maxwell;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.google.code.or.binlog.BinlogEventListener;
 import com.google.code.or.binlog.BinlogEventV4;
+import com.zendesk.maxwell.util.RingBuffer;
 
 class MaxwellBinlogEventListener implements BinlogEventListener {
-	private final BlockingQueue<BinlogEventV4> queue;
+	private final RingBuffer<BinlogEventV4> queue;
 	protected final AtomicBoolean mustStop = new AtomicBoolean(false);
 
-	public MaxwellBinlogEventListener(BlockingQueue<BinlogEventV4> q) {
+	public MaxwellBinlogEventListener(RingBuffer<BinlogEventV4> q) {
 		this.queue = q;
 	}
 	public void stop() {
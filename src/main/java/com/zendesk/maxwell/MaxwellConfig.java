@@ -11,6 +11,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.zendesk.maxwell.util.AbstractConfig;
+import com.zendesk.maxwell.util.RingBuffer;
+import com.zendesk.maxwell.util.SpillCompression;
 import com.zendesk.maxwell.schema.SchemaStore;
 
 public class MaxwellConfig extends AbstractConfig {
@@ -27,21 +29,63 @@ public class MaxwellConfig extends AbstractConfig {
 	public final Properties kafkaProperties;
 	public String kafkaTopic;
 	public String producerType;
+	public String outputFormat;
 	public String kafkaPartitionHash;
 	public String kafkaPartitionKey;
+	public int kafkaMaxInflight;
 	public String bootstrapperType;
 	public Integer bootstrapperBatchFetchSize;
 
 	public String outputFile;
+	public int outputFileFlushBytes;
+	public int outputFileFlushMillis;
+	public boolean outputFileFsync;
+	public long outputFileRotateBytes;
+	public int outputFileRotateSeconds;
+	public int outputStdoutBufferBytes;
+	public int outputStdoutFlushMillis;
+	public String outputDir;
+	public String benchmarkOutput;
+	public int benchmarkReportInterval;
+	public long outputSegmentBytes;
+	public int outputIndexIntervalBytes;
 	public String log_level;
 
 	public Integer maxSchemas;
 	public BinlogPosition initPosition;
 	public boolean replayMode;
 
+	public int pipelineWorkers;
+	public boolean streamTransactions;
+	public long bufferMemory;
+	public SpillCompression spillCompression;
+	public int parallelConversionThreshold;
+	public Integer parallelConversionThreads;
+	public int binlogEventBufferSize;
+	public RingBuffer.WaitStrategy binlogEventWaitStrategy;
+	public Integer metricsLogInterval;
+
+	public String binlogDir;
+	public Integer binlogReaders;
+	public Long binlogServerID;
+	public Integer lowerCaseTableNames;
+
 	public MaxwellConfig() { // argv is only null in tests
 		this.kafkaProperties = new Properties();
 		this.replayMode = false;
+		this.outputFormat = "json";
+		this.binlogEventBufferSize = 256;
+		this.kafkaMaxInflight = 10000;
+		this.outputFileFlushBytes = 1024 * 1024;
+		this.outputFileFlushMillis = 100;
+		this.outputStdoutBufferBytes = 1024 * 1024;
+		this.outputStdoutFlushMillis = 100;
+		this.outputSegmentBytes = 64 * 1024 * 1024;
+		this.benchmarkReportInterval = 10;
+		this.outputIndexIntervalBytes = 4096;
+		this.bufferMemory = Runtime.getRuntime().maxMemory() / 4;
+		this.spillCompression = SpillCompression.NONE;
+		this.binlogEventWaitStrategy = RingBuffer.WaitStrategy.BLOCKING;
 		this.replicationMysql = new MaxwellMysqlConfig();
 		this.maxwellMysql = new MaxwellMysqlConfig();
 	}
@@ -73,12 +117,26 @@ public class MaxwellConfig extends AbstractConfig {
 
 		parser.accepts( "__separator_3" );
 
-		parser.accepts( "producer", "producer type: stdout|file|kafka" ).withRequiredArg();
+		parser.accepts( "producer", "producer type: stdout|file|log|kafka|benchmark" ).withRequiredArg();
 		parser.accepts( "output_file", "output file for 'file' producer" ).withRequiredArg();
+		parser.accepts( "output_file_flush_bytes", "file producer: write rows out once this many bytes are buffered. default: 1048576" ).withRequiredArg();
+		parser.accepts( "output_file_flush_ms", "file producer: write buffered rows out after this many milliseconds. default: 100" ).withRequiredArg();
+		parser.accepts( "output_file_fsync", "file and log producers: fsync each write before storing the position" );
+		parser.accepts( "output_file_rotate_bytes", "file producer: start a new file once it's this big. default: 0 (off)" ).withRequiredArg();
+		parser.accepts( "output_file_rotate_seconds", "file producer: start a new file once it's been open this long. default: 0 (off)" ).withRequiredArg();
+		parser.accepts( "output_stdout_buffer_bytes", "stdout producer: size of the output buffer. default: 1048576" ).withRequiredArg();
+		parser.accepts( "output_stdout_flush_ms", "stdout producer: write buffered rows out after this many milliseconds. default: 100" ).withRequiredArg();
+		parser.accepts( "output_dir", "directory for the 'log' producer's segments" ).withRequiredArg();
+		parser.accepts( "output_segment_bytes", "log producer: start a new segment once the current one is this big. default: 67108864" ).withRequiredArg();
+		parser.accepts( "output_index_interval_bytes", "log producer: bytes of records between index entries. default: 4096" ).withRequiredArg();
+		parser.accepts( "benchmark_output", "benchmark producer: append JSON reports to this file. default: stdout" ).withRequiredArg();
+		parser.accepts( "benchmark_report_interval", "benchmark producer: report every N seconds, as well as at shutdown. default: 10" ).withRequiredArg();
+		parser.accepts( "output_format", "row encoding: json|smile|cbor|msgpack|positional. default: json" ).withRequiredArg();
 		parser.accepts( "kafka.bootstrap.servers", "at least one kafka server, formatted as HOST:PORT[,HOST:PORT]" ).withRequiredArg();
 		parser.accepts( "kafka_partition_by", "database|table|primary_key, kafka producer assigns partition by hashing the specified parameter").withRequiredArg();
 		parser.accepts( "kafka_partition_hash", "default|murmur3, hash function for partitioning").withRequiredArg();
 		parser.accepts( "kafka_topic", "optionally provide a topic name to push to. default: maxwell").withOptionalArg();
+		parser.accepts( "kafka_max_inflight", "rows sent to kafka and not yet acknowledged before maxwell waits. default: 10000").withRequiredArg();
 
 		parser.accepts( "__separator_4" );
 
@@ -92,6 +150,20 @@ public class MaxwellConfig extends AbstractConfig {
 		parser.accepts( "init_position", "initial binlog position, given as BINLOG_FILE:POSITION").withRequiredArg();
 		parser.accepts( "replay", "replay mode, don't store any information to the server");
 
+		parser.accepts( "pipeline_workers", "run replication as a decode/convert/produce pipeline with this many conversion threads. default: 0 (off)").withRequiredArg();
+		parser.accepts( "stream_transactions", "emit rows as they're decoded instead of buffering each transaction until its commit");
+		parser.accepts( "buffer_memory", "megabytes of heap all buffered rows may use between them before spilling to disk. default: 25% of max heap").withRequiredArg();
+		parser.accepts( "spill_compression", "compress rows spilled to disk: none|lz4|deflate. default: none").withRequiredArg();
+		parser.accepts( "parallel_conversion_threshold", "convert row events with at least this many rows on a thread pool. default: 0 (off)").withRequiredArg();
+		parser.accepts( "parallel_conversion_threads", "size of the parallel conversion thread pool. default: number of cpus").withRequiredArg();
+		parser.accepts( "binlog_event_buffer", "number of binlog events buffered between the replication connection and maxwell. default: 256").withRequiredArg();
+		parser.accepts( "binlog_event_wait", "how threads wait on the binlog event buffer: blocking|yielding|busy_spin. default: blocking").withRequiredArg();
+		parser.accepts( "metrics_log_interval", "log internal metrics every N seconds. default: 0 (off)").withRequiredArg();
+		parser.accepts( "binlog_dir", "offline mode: read archived binlog files from this directory instead of replicating from the server. implies --replay").withRequiredArg();
+		parser.accepts( "binlog_readers", "offline mode: number of binlog files decoded in parallel. default: 2").withRequiredArg();
+		parser.accepts( "binlog_server_id", "offline mode: server_id of the server that wrote the binlogs. default: the only server in the schema database").withRequiredArg();
+		parser.accepts( "lower_case_table_names", "offline mode: the server's @@lower_case_table_names. default: 0").withRequiredArg();
+
 		parser.accepts( "__separator_6" );
 
 		parser.accepts( "include_dbs", "include these databases, formatted as include_dbs=db1,db2").withOptionalArg();
@@ -125,6 +197,29 @@ public class MaxwellConfig extends AbstractConfig {
 		return level;
 	}
 
+	private RingBuffer.WaitStrategy parseWaitStrategy(String strategy) {
+		try {
+			return RingBuffer.WaitStrategy.parse(strategy);
+		} catch ( IllegalArgumentException e ) {
+			usage("unknown binlog_event_wait strategy: " + strategy);
+			return null;
+		}
+	}
+
+	private SpillCompression parseSpillCompression(String compression) {
+		try {
+			return SpillCompression.parse(compression);
+		} catch ( IllegalArgumentException e ) {
+			usage("unknown spill_compression: " + compression);
+			return null;
+		}
+	}
+
+	/* N megabytes, in bytes */
+	private long parseMegabytes(String megabytes) {
+		return Long.valueOf(megabytes) * 1024 * 1024;
+	}
+
 	private void parse(String [] argv) {
 		OptionSet options = buildOptionParser().parse(argv);
 
@@ -151,6 +246,8 @@ public class MaxwellConfig extends AbstractConfig {
 
 		if ( options.has("producer"))
 			this.producerType = (String) options.valueOf("producer");
+		if ( options.has("output_format"))
+			this.outputFormat = (String) options.valueOf("output_format");
 		if ( options.has("bootstrapper"))
 			this.bootstrapperType = (String) options.valueOf("bootstrapper");
 		if ( options.has("bootstrapper_fetch_size"))
@@ -168,9 +265,48 @@ public class MaxwellConfig extends AbstractConfig {
 		if ( options.has("kafka_partition_hash"))
 			this.kafkaPartitionHash = (String) options.valueOf("kafka_partition_hash");
 
+		if ( options.has("kafka_max_inflight"))
+			this.kafkaMaxInflight = Integer.valueOf((String) options.valueOf("kafka_max_inflight"));
+
 		if ( options.has("output_file"))
 			this.outputFile = (String) options.valueOf("output_file");
 
+		if ( options.has("output_file_flush_bytes"))
+			this.outputFileFlushBytes = Integer.valueOf((String) options.valueOf("output_file_flush_bytes"));
+
+		if ( options.has("output_file_flush_ms"))
+			this.outputFileFlushMillis = Integer.valueOf((String) options.valueOf("output_file_flush_ms"));
+
+		if ( options.has("output_file_fsync"))
+			this.outputFileFsync = true;
+
+		if ( options.has("output_file_rotate_bytes"))
+			this.outputFileRotateBytes = Long.valueOf((String) options.valueOf("output_file_rotate_bytes"));
+
+		if ( options.has("output_file_rotate_seconds"))
+			this.outputFileRotateSeconds = Integer.valueOf((String) options.valueOf("output_file_rotate_seconds"));
+
+		if ( options.has("output_stdout_buffer_bytes"))
+			this.outputStdoutBufferBytes = Integer.valueOf((String) options.valueOf("output_stdout_buffer_bytes"));
+
+		if ( options.has("output_stdout_flush_ms"))
+			this.outputStdoutFlushMillis = Integer.valueOf((String) options.valueOf("output_stdout_flush_ms"));
+
+		if ( options.has("benchmark_output"))
+			this.benchmarkOutput = (String) options.valueOf("benchmark_output");
+
+		if ( options.has("benchmark_report_interval"))
+			this.benchmarkReportInterval = Integer.valueOf((String) options.valueOf("benchmark_report_interval"));
+
+		if ( options.has("output_dir"))
+			this.outputDir = (String) options.valueOf("output_dir");
+
+		if ( options.has("output_segment_bytes"))
+			this.outputSegmentBytes = Long.valueOf((String) options.valueOf("output_segment_bytes"));
+
+		if ( options.has("output_index_interval_bytes"))
+			this.outputIndexIntervalBytes = Integer.valueOf((String) options.valueOf("output_index_interval_bytes"));
+
 		if ( options.has("max_schemas"))
 			this.maxSchemas = Integer.valueOf((String)options.valueOf("max_schemas"));
 
@@ -195,6 +331,45 @@ public class MaxwellConfig extends AbstractConfig {
 			this.replayMode = true;
 		}
 
+		if ( options.has("pipeline_workers"))
+			this.pipelineWorkers = Integer.valueOf((String) options.valueOf("pipeline_workers"));
+
+		if ( options.has("stream_transactions"))
+			this.streamTransactions = true;
+
+		if ( options.has("buffer_memory"))
+			this.bufferMemory = parseMegabytes((String) options.valueOf("buffer_memory"));
+
+		if ( options.has("spill_compression"))
+			this.spillCompression = parseSpillCompression((String) options.valueOf("spill_compression"));
+
+		if ( options.has("parallel_conversion_threshold"))
+			this.parallelConversionThreshold = Integer.valueOf((String) options.valueOf("parallel_conversion_threshold"));
+
+		if ( options.has("parallel_conversion_threads"))
+			this.parallelConversionThreads = Integer.valueOf((String) options.valueOf("parallel_conversion_threads"));
+
+		if ( options.has("binlog_event_buffer"))
+			this.binlogEventBufferSize = Integer.valueOf((String) options.valueOf("binlog_event_buffer"));
+
+		if ( options.has("binlog_event_wait"))
+			this.binlogEventWaitStrategy = parseWaitStrategy((String) options.valueOf("binlog_event_wait"));
+
+		if ( options.has("metrics_log_interval"))
+			this.metricsLogInterval = Integer.valueOf((String) options.valueOf("metrics_log_interval"));
+
+		if ( options.has("binlog_dir"))
+			this.binlogDir = (String) options.valueOf("binlog_dir");
+
+		if ( options.has("binlog_readers"))
+			this.binlogReaders = Integer.valueOf((String) options.valueOf("binlog_readers"));
+
+		if ( options.has("binlog_server_id"))
+			this.binlogServerID = Long.valueOf((String) options.valueOf("binlog_server_id"));
+
+		if ( options.has("lower_case_table_names"))
+			this.lowerCaseTableNames = Integer.valueOf((String) options.valueOf("lower_case_table_names"));
+
 		if ( options.has("include_dbs"))
 			this.includeDatabases = (String) options.valueOf("include_dbs");
 
@@ -235,9 +410,23 @@ public class MaxwellConfig extends AbstractConfig {
 		this.producerType    = p.getProperty("producer");
 		this.bootstrapperType = p.getProperty("bootstrapper");
 		this.outputFile      = p.getProperty("output_file");
+		this.outputFileFlushBytes = Integer.valueOf(p.getProperty("output_file_flush_bytes", "1048576"));
+		this.outputFileFlushMillis = Integer.valueOf(p.getProperty("output_file_flush_ms", "100"));
+		this.outputFileFsync = Boolean.valueOf(p.getProperty("output_file_fsync", "false"));
+		this.outputFileRotateBytes = Long.valueOf(p.getProperty("output_file_rotate_bytes", "0"));
+		this.outputFileRotateSeconds = Integer.valueOf(p.getProperty("output_file_rotate_seconds", "0"));
+		this.outputStdoutBufferBytes = Integer.valueOf(p.getProperty("output_stdout_buffer_bytes", "1048576"));
+		this.outputStdoutFlushMillis = Integer.valueOf(p.getProperty("output_stdout_flush_ms", "100"));
+		this.outputDir       = p.getProperty("output_dir");
+		this.benchmarkOutput = p.getProperty("benchmark_output");
+		this.benchmarkReportInterval = Integer.valueOf(p.getProperty("benchmark_report_interval", "10"));
+		this.outputSegmentBytes = Long.valueOf(p.getProperty("output_segment_bytes", "67108864"));
+		this.outputIndexIntervalBytes = Integer.valueOf(p.getProperty("output_index_interval_bytes", "4096"));
+		this.outputFormat    = p.getProperty("output_format", "json");
 		this.kafkaTopic      = p.getProperty("kafka_topic");
 		this.kafkaPartitionHash = p.getProperty("kafka_partition_hash", "default");
 		this.kafkaPartitionKey = p.getProperty("kafka_partition_by", "database");
+		this.kafkaMaxInflight = Integer.valueOf(p.getProperty("kafka_max_inflight", "10000"));
 		this.includeDatabases = p.getProperty("include_dbs");
 		this.excludeDatabases = p.getProperty("exclude_dbs");
 		this.includeTables = p.getProperty("include_tables");
@@ -249,6 +438,39 @@ public class MaxwellConfig extends AbstractConfig {
 		if (maxSchemaString != null)
 			this.maxSchemas      = Integer.valueOf(maxSchemaString);
 
+		this.pipelineWorkers = Integer.valueOf(p.getProperty("pipeline_workers", "0"));
+		this.binlogEventBufferSize = Integer.valueOf(p.getProperty("binlog_event_buffer", "256"));
+		this.parallelConversionThreshold = Integer.valueOf(p.getProperty("parallel_conversion_threshold", "0"));
+		this.streamTransactions = Boolean.valueOf(p.getProperty("stream_transactions", "false"));
+
+		String bufferMemoryString = p.getProperty("buffer_memory");
+		if ( bufferMemoryString != null )
+			this.bufferMemory = parseMegabytes(bufferMemoryString);
+		this.spillCompression = parseSpillCompression(p.getProperty("spill_compression", "none"));
+
+		String parallelConversionThreadsString = p.getProperty("parallel_conversion_threads");
+		if ( parallelConversionThreadsString != null )
+			this.parallelConversionThreads = Integer.valueOf(parallelConversionThreadsString);
+		this.binlogEventWaitStrategy = parseWaitStrategy(p.getProperty("binlog_event_wait", "blocking"));
+
+		String metricsLogIntervalString = p.getProperty("metrics_log_interval");
+		if ( metricsLogIntervalString != null )
+			this.metricsLogInterval = Integer.valueOf(metricsLogIntervalString);
+
+		this.binlogDir = p.getProperty("binlog_dir");
+
+		String binlogReadersString = p.getProperty("binlog_readers");
+		if ( binlogReadersString != null )
+			this.binlogReaders = Integer.valueOf(binlogReadersString);
+
+		String binlogServerIDString = p.getProperty("binlog_server_id");
+		if ( binlogServerIDString != null )
+			this.binlogServerID = Long.valueOf(binlogServerIDString);
+
+		String lowerCaseTableNamesString = p.getProperty("lower_case_table_names");
+		if ( lowerCaseTableNamesString != null )
+			this.lowerCaseTableNames = Integer.valueOf(lowerCaseTableNamesString);
+
 		if ( p.containsKey("log_level") )
 			this.log_level = parseLogLevel(p.getProperty("log_level"));
 
@@ -283,9 +505,45 @@ public class MaxwellConfig extends AbstractConfig {
 					&& !this.kafkaPartitionKey.equals("primary_key") ) {
 				usage("please specify --kafka_partition_by=database|table|primary_key");
 			}
+
+			if ( this.kafkaMaxInflight < 1 )
+				usage("please specify --kafka_max_inflight=N, where N > 0");
 		} else if ( this.producerType.equals("file")
 				&& this.outputFile == null) {
 			usage("please specify --output_file=FILE to use the file producer");
+		} else if ( this.producerType.equals("log") ) {
+			if ( this.outputDir == null )
+				usage("please specify --output_dir=DIR to use the log producer");
+
+			// byte offsets in the index are ints
+			if ( this.outputSegmentBytes < 1 || this.outputSegmentBytes > 1024 * 1024 * 1024 )
+				usage("please specify --output_segment_bytes=N, where 0 < N <= 1073741824");
+
+			if ( this.outputIndexIntervalBytes < 1 )
+				usage("please specify --output_index_interval_bytes=N, where N > 0");
+		}
+
+		if ( this.outputFileFlushBytes < 1 )
+			usage("please specify --output_file_flush_bytes=N, where N > 0");
+
+		if ( this.outputFileFlushMillis < 1 )
+			usage("please specify --output_file_flush_ms=N, where N > 0");
+
+		if ( this.outputStdoutBufferBytes < 1 )
+			usage("please specify --output_stdout_buffer_bytes=N, where N > 0");
+
+		if ( this.outputStdoutFlushMillis < 1 )
+			usage("please specify --output_stdout_flush_ms=N, where N > 0");
+
+		if ( this.benchmarkReportInterval < 0 )
+			usage("please specify --benchmark_report_interval=N, where N >= 0");
+
+		if ( !this.outputFormat.equals("json")
+				&& !this.outputFormat.equals("smile")
+				&& !this.outputFormat.equals("cbor")
+				&& !this.outputFormat.equals("msgpack")
+				&& !this.outputFormat.equals("positional") ) {
+			usage("please specify --output_format=json|smile|cbor|msgpack|positional");
 		}
 
 		if ( this.maxwellMysql.port == null )
@@ -340,6 +598,41 @@ public class MaxwellConfig extends AbstractConfig {
 
 		if ( this.maxSchemas != null )
 			SchemaStore.setMaxSchemas(this.maxSchemas);
+
+		if ( this.binlogEventBufferSize < 1 )
+			usage("please specify --binlog_event_buffer=N, where N > 0");
+
+		if ( this.pipelineWorkers < 0 )
+			usage("please specify --pipeline_workers=N, where N >= 0");
+
+		if ( this.bufferMemory < 1 )
+			usage("please specify --buffer_memory=N, where N > 0 (megabytes)");
+
+		if ( this.parallelConversionThreads == null )
+			this.parallelConversionThreads = Runtime.getRuntime().availableProcessors();
+		else if ( this.parallelConversionThreads < 1 )
+			usage("please specify --parallel_conversion_threads=N, where N > 0");
+
+		if ( this.metricsLogInterval == null )
+			this.metricsLogInterval = 0;
+
+		if ( this.binlogDir != null ) {
+			if ( !new File(this.binlogDir).isDirectory() )
+				usage("--binlog_dir " + this.binlogDir + " is not a directory");
+
+			// reprocessing history must not move the live schema or position on.
+			this.replayMode = true;
+
+			if ( this.lowerCaseTableNames == null )
+				this.lowerCaseTableNames = 0;
+			else if ( this.lowerCaseTableNames < 0 || this.lowerCaseTableNames > 2 )
+				usage("please specify --lower_case_table_names=0|1|2");
+		}
+
+		if ( this.binlogReaders == null )
+			this.binlogReaders = 2;
+		else if ( this.binlogReaders < 1 )
+			usage("please specify --binlog_readers=N, where N > 0");
 	}
 
 	public Properties getKafkaProperties() {
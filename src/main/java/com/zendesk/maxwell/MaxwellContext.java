@@ -5,17 +5,25 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Slf4jReporter;
+
 import com.zendesk.maxwell.bootstrap.AbstractBootstrapper;
 import com.zendesk.maxwell.bootstrap.AsynchronousBootstrapper;
 import com.zendesk.maxwell.bootstrap.NoOpBootstrapper;
 import com.zendesk.maxwell.bootstrap.SynchronousBootstrapper;
 import com.zendesk.maxwell.producer.*;
+import com.zendesk.maxwell.producer.encoders.*;
 import com.zendesk.maxwell.schema.ReadOnlySchemaPosition;
 import com.zendesk.maxwell.schema.SchemaPosition;
 
 import com.zendesk.maxwell.schema.SchemaScavenger;
+import com.zendesk.maxwell.util.BufferMemoryManager;
+import com.zendesk.maxwell.util.SpillExecutor;
+import com.zendesk.maxwell.util.SpillSegmentPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import snaq.db.ConnectionPool;
@@ -30,6 +38,12 @@ public class MaxwellContext {
 	private Long serverID;
 	private BinlogPosition initialPosition;
 	private CaseSensitivity caseSensitivity;
+	private final MetricRegistry metricRegistry;
+	private final BufferMemoryManager bufferMemoryManager;
+	private final SpillSegmentPool spillSegmentPool;
+	private final SpillExecutor spillExecutor;
+	private Slf4jReporter metricsReporter;
+	private AbstractProducer producer;
 
 	public MaxwellContext(MaxwellConfig config) {
 		this.config = config;
@@ -41,6 +55,13 @@ public class MaxwellContext {
 					config.maxwellMysql.getConnectionURI(), config.maxwellMysql.user, config.maxwellMysql.password);
 		this.maxwellConnectionPool.setCaching(false);
 
+		this.metricRegistry = new MetricRegistry();
+		this.bufferMemoryManager = new BufferMemoryManager(config.bufferMemory, this.metricRegistry);
+		this.spillSegmentPool = new SpillSegmentPool(SpillSegmentPool.DEFAULT_SEGMENT_SIZE,
+				SpillSegmentPool.DEFAULT_MAX_IDLE_SEGMENTS, config.spillCompression);
+		this.spillExecutor = new SpillExecutor();
+		this.spillExecutor.registerMetrics(this.metricRegistry);
+
 		if ( this.config.initPosition != null )
 			this.initialPosition = this.config.initPosition;
 	}
@@ -61,12 +82,53 @@ public class MaxwellContext {
 		return conn;
 	}
 
+	public MetricRegistry getMetricRegistry() {
+		return this.metricRegistry;
+	}
+
+	/* the heap budget every transaction's row buffer spills against */
+	public BufferMemoryManager getBufferMemoryManager() {
+		return this.bufferMemoryManager;
+	}
+
+	/* where this context's row buffers spill to, compressed as `spill_compression` says */
+	public SpillSegmentPool getSpillSegmentPool() {
+		return this.spillSegmentPool;
+	}
+
+	/* the thread this context's row buffers do their spill I/O on, timed into spill.* */
+	public SpillExecutor getSpillExecutor() {
+		return this.spillExecutor;
+	}
+
 	public void start() {
 		SchemaScavenger s = new SchemaScavenger(this.maxwellConnectionPool, this.config.databaseName);
 		new Thread(s).start();
+
+		if ( this.config.metricsLogInterval != null && this.config.metricsLogInterval > 0 ) {
+			this.metricsReporter = Slf4jReporter.forRegistry(this.metricRegistry)
+				.outputTo(LoggerFactory.getLogger("com.zendesk.maxwell.metrics"))
+				.convertRatesTo(TimeUnit.SECONDS)
+				.convertDurationsTo(TimeUnit.MILLISECONDS)
+				.build();
+			this.metricsReporter.start(this.config.metricsLogInterval, TimeUnit.SECONDS);
+		}
 	}
 
 	public void terminate() {
+		if ( this.producer != null ) {
+			try {
+				this.producer.close();
+			} catch ( Exception e ) {
+				LOGGER.error("error closing producer", e);
+			}
+		}
+
+		if ( this.metricsReporter != null ) {
+			this.metricsReporter.report();
+			this.metricsReporter.stop();
+		}
+
 		if ( this.schemaPosition != null ) {
 			try {
 				this.schemaPosition.stopLoop();
@@ -74,6 +136,7 @@ public class MaxwellContext {
 				LOGGER.error("got timeout trying to shutdown schemaPosition thread.");
 			}
 		}
+		this.spillExecutor.shutdown();
 		this.replicationConnectionPool.release();
 		this.maxwellConnectionPool.release();
 	}
@@ -127,6 +190,12 @@ public class MaxwellContext {
 		if ( this.serverID != null)
 			return this.serverID;
 
+		// offline, the master may be long gone: ask the schema database instead
+		if ( this.config.binlogDir != null ) {
+			this.serverID = this.config.binlogServerID != null ? this.config.binlogServerID : getStoredServerID();
+			return this.serverID;
+		}
+
 		try ( Connection c = getReplicationConnectionPool().getConnection() ) {
 			ResultSet rs = c.createStatement().executeQuery("SELECT @@server_id as server_id");
 			if ( !rs.next() ) {
@@ -137,40 +206,69 @@ public class MaxwellContext {
 		}
 	}
 
+	/* the server_id of the one server the schema database has positions for */
+	private Long getStoredServerID() throws SQLException {
+		try ( Connection c = getMaxwellConnection() ) {
+			ResultSet rs = c.createStatement().executeQuery("SELECT DISTINCT server_id FROM `positions`");
+			if ( !rs.next() )
+				throw new RuntimeException("No server_id found in " + this.config.databaseName + ".positions; please specify --binlog_server_id");
+
+			Long id = rs.getLong("server_id");
+			if ( rs.next() )
+				throw new RuntimeException("More than one server_id in " + this.config.databaseName + ".positions; please specify --binlog_server_id");
+			return id;
+		}
+	}
 
 	public CaseSensitivity getCaseSensitivity() throws SQLException {
 		if ( this.caseSensitivity != null )
 			return this.caseSensitivity;
 
+		if ( this.config.binlogDir != null ) {
+			this.caseSensitivity = caseSensitivity(this.config.lowerCaseTableNames);
+			return this.caseSensitivity;
+		}
+
 		try ( Connection c = getReplicationConnectionPool().getConnection()) {
 			ResultSet rs = c.createStatement().executeQuery("select @@lower_case_table_names");
 			if ( !rs.next() )
 				throw new RuntimeException("Could not retrieve @@lower_case_table_names!");
 
-			int value = rs.getInt(1);
-			switch(value) {
-				case 0:
-					this.caseSensitivity = CaseSensitivity.CASE_SENSITIVE;
-					break;
-				case 1:
-					this.caseSensitivity = CaseSensitivity.CONVERT_TO_LOWER;
-					break;
-				case 2:
-					this.caseSensitivity = CaseSensitivity.CONVERT_ON_COMPARE;
-					break;
-				default:
-					throw new RuntimeException("Unknown value for @@lower_case_table_names: " + value);
-			}
+			this.caseSensitivity = caseSensitivity(rs.getInt(1));
 			return this.caseSensitivity;
 		}
 	}
 
+	private static CaseSensitivity caseSensitivity(int lowerCaseTableNames) {
+		switch(lowerCaseTableNames) {
+			case 0:
+				return CaseSensitivity.CASE_SENSITIVE;
+			case 1:
+				return CaseSensitivity.CONVERT_TO_LOWER;
+			case 2:
+				return CaseSensitivity.CONVERT_ON_COMPARE;
+			default:
+				throw new RuntimeException("Unknown value for @@lower_case_table_names: " + lowerCaseTableNames);
+		}
+	}
+
+	/* the one producer, made on first use */
 	public AbstractProducer getProducer() throws IOException {
+		if ( this.producer == null )
+			this.producer = buildProducer();
+		return this.producer;
+	}
+
+	private AbstractProducer buildProducer() throws IOException {
 		switch ( this.config.producerType ) {
 		case "file":
 			return new FileProducer(this, this.config.outputFile);
+		case "log":
+			return new SegmentedLogProducer(this);
 		case "kafka":
 			return new MaxwellKafkaProducer(this, this.config.getKafkaProperties(), this.config.kafkaTopic);
+		case "benchmark":
+			return new BenchmarkProducer(this);
 		case "profiler":
 			return new ProfilerProducer(this);
 		case "stdout":
@@ -179,6 +277,22 @@ public class MaxwellContext {
 		}
 	}
 
+	public RowEncoder getEncoder() {
+		switch ( this.config.outputFormat ) {
+		case "smile":
+			return BinaryRowEncoder.smile();
+		case "cbor":
+			return BinaryRowEncoder.cbor();
+		case "msgpack":
+			return BinaryRowEncoder.msgpack();
+		case "positional":
+			return new PositionalRowEncoder();
+		case "json":
+		default:
+			return new JsonRowEncoder();
+		}
+	}
+
 	public AbstractBootstrapper getBootstrapper() throws IOException {
 		switch ( this.config.bootstrapperType ) {
 			case "async":
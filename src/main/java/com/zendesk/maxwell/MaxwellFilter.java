@@ -127,10 +127,26 @@ public class MaxwellFilter {
 		return matchesIncludeExcludeList(includeDatabases, excludeDatabases, dbName);
 	}
 
-	private boolean matchesTable(String tableName) {
+	private boolean matchesTableName(String tableName) {
 		return matchesIncludeExcludeList(includeTables, excludeTables, tableName);
 	}
 
+	private boolean isBootstrapTable(String database, String table) {
+		return database.equals("maxwell") && table.equals("bootstrap");
+	}
+
+	/* the table-level half of matches(); MaxwellTableCache computes it once per table id */
+	public boolean matchesTable(String database, String table) {
+		return isBootstrapTable(database, table)
+			|| ( matchesDatabase(database) && matchesTableName(table) );
+	}
+
+	/* the row-level half of matches() */
+	public boolean matchesRows(MaxwellAbstractRowsEvent e) {
+		return isBootstrapTable(e.getTable().getDatabase(), e.getTable().getName())
+			|| matchesAnyRows(e);
+	}
+
 	public boolean matchesRow(MaxwellAbstractRowsEvent e, Row r) {
 		for (Map.Entry<String, Integer> entry : rowFilter.entrySet()) {
 			Column c = e.findColumn(entry.getKey(), r);
@@ -162,10 +178,7 @@ public class MaxwellFilter {
 	}
 
 	public boolean matches(MaxwellAbstractRowsEvent e) {
-		String database = e.getTable().getDatabase();
-		String table = e.getTable().getName();
-		return ( database.equals("maxwell") && table.equals("bootstrap") )
-			|| ( matchesDatabase(database) && matchesTable(table) && matchesAnyRows(e) );
+		return matchesTable(e.getTable().getDatabase(), e.getTable().getName()) && matchesRows(e);
 	}
 
 	public boolean isDatabaseBlacklisted(String databaseName) {
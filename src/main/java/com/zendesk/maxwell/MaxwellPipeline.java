@@ -0,0 +1,281 @@
+package com.zendesk.maxwell;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.zendesk.maxwell.util.BufferMemoryManager;
+import com.zendesk.maxwell.util.SpillExecutor;
+import com.zendesk.maxwell.util.SpillSegmentPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+   the pipelined replication mode.  The replicator thread (stage one) assembles
+   transactions off the binlog and hands each row event to a pool of conversion
+   workers (stage two), which turn them into RowMaps.  A single producer thread
+   (stage three) collects the converted rows in binlog order, marks the commit
+   row and pushes them out.  That thread ("maxwell-produce") goes through
+   MaxwellReplicator.processRows, so bootstrapper.work() also runs there rather
+   than on the replicator thread.
+
+   Rows are only ever handed to the producer in the same order and with the same
+   xid/commit markers as the single-threaded path, so position semantics are
+   unchanged.
+ */
+public class MaxwellPipeline implements TransactionListener {
+	static final Logger LOGGER = LoggerFactory.getLogger(MaxwellPipeline.class);
+	private static final int UNITS_PER_WORKER = 64;
+
+	private final MaxwellReplicator replicator;
+	private final MetricRegistry metrics;
+	private final long maxTxBytes;
+	private final SpillSegmentPool spillSegmentPool;
+	private final SpillExecutor spillExecutor;
+	private final BufferMemoryManager bufferMemoryManager;
+	private final boolean streaming;
+
+	private final ThreadPoolExecutor converters;
+	private final BlockingQueue<Unit> produceQueue;
+	private final Thread producerThread;
+
+	private volatile boolean running;
+	private volatile Exception exception;
+
+	private final Object progressLock = new Object();
+	private long unitsSubmitted, unitsProduced;
+	private volatile long rowsBuffered;
+
+	/* a row event on its way through the conversion pool, or a commit marker */
+	private static class Unit {
+		final Future<List<RowMap>> rows;
+		final boolean isCommit;
+		final Long xid;
+
+		Unit(Future<List<RowMap>> rows) {
+			this.rows = rows;
+			this.isCommit = false;
+			this.xid = null;
+		}
+
+		Unit(Long xid) {
+			this.rows = null;
+			this.isCommit = true;
+			this.xid = xid;
+		}
+	}
+
+	public MaxwellPipeline(MaxwellReplicator replicator, MetricRegistry metrics, int workers, long maxTxBytes,
+						   SpillSegmentPool spillSegmentPool, SpillExecutor spillExecutor, BufferMemoryManager bufferMemoryManager,
+						   boolean streaming) {
+		this.replicator = replicator;
+		this.metrics = metrics;
+		this.maxTxBytes = maxTxBytes;
+		this.spillSegmentPool = spillSegmentPool;
+		this.spillExecutor = spillExecutor;
+		this.bufferMemoryManager = bufferMemoryManager;
+		this.streaming = streaming;
+
+		this.converters = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "maxwell-convert-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		this.produceQueue = new ArrayBlockingQueue<>(workers * UNITS_PER_WORKER);
+
+		this.producerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				produceLoop();
+			}
+		}, "maxwell-produce");
+		this.producerThread.setDaemon(true);
+	}
+
+	public void start() {
+		registerGauges();
+		this.running = true;
+		this.producerThread.start();
+	}
+
+	public void stop() throws InterruptedException {
+		this.running = false;
+		this.producerThread.join(5000);
+		this.converters.shutdownNow();
+		this.metrics.removeMatching(new MetricFilter() {
+			@Override
+			public boolean matches(String name, Metric metric) {
+				return name.startsWith("pipeline.");
+			}
+		});
+	}
+
+	private void registerGauges() {
+		metrics.register("pipeline.convert.queue", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return converters.getQueue().size() + converters.getActiveCount();
+			}
+		});
+
+		metrics.register("pipeline.produce.queue", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return produceQueue.size();
+			}
+		});
+
+		metrics.register("pipeline.produce.buffered_rows", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return rowsBuffered;
+			}
+		});
+	}
+
+	/* rethrows any exception hit on the producer thread */
+	public void ensureRunning() throws Exception {
+		if ( this.exception != null )
+			throw this.exception;
+	}
+
+	@Override
+	public void begin() throws Exception {
+		ensureRunning();
+	}
+
+	@Override
+	public boolean rowsEvent(final MaxwellAbstractRowsEvent event) throws Exception {
+		Future<List<RowMap>> rows = converters.submit(new Callable<List<RowMap>>() {
+			@Override
+			public List<RowMap> call() throws Exception {
+				// convert the columns here, not on the producer thread
+				List<RowMap> maps = event.jsonMaps();
+				for ( RowMap r : maps )
+					r.materialize();
+				return maps;
+			}
+		});
+
+		enqueue(new Unit(rows));
+		return false;
+	}
+
+	@Override
+	public void commit(Long xid) throws Exception {
+		enqueue(new Unit(xid));
+	}
+
+	private void enqueue(Unit unit) throws Exception {
+		synchronized(progressLock) {
+			unitsSubmitted++;
+		}
+
+		while ( !produceQueue.offer(unit, 100, TimeUnit.MILLISECONDS) )
+			ensureRunning();
+	}
+
+	/*
+	   blocks until everything handed to the pipeline so far has made its way to the
+	   producer thread.  Called before the schema changes underneath us, so that
+	   rows are never produced against a newer schema (or position) than the one
+	   they were read with.
+	 */
+	public void drain() throws Exception {
+		synchronized(progressLock) {
+			while ( unitsProduced < unitsSubmitted ) {
+				ensureRunning();
+				progressLock.wait(100);
+			}
+		}
+	}
+
+	private void produceLoop() {
+		RowMapBuffer buffer = null;
+		RowMap held = null;
+
+		try {
+			while ( running || !produceQueue.isEmpty() ) {
+				Unit unit = produceQueue.poll(100, TimeUnit.MILLISECONDS);
+				if ( unit == null )
+					continue;
+
+				if ( streaming ) {
+					// emit rows as they're converted, holding back the latest one
+					// so that the transaction's final row can carry the commit.
+					if ( !unit.isCommit ) {
+						ArrayList<RowMap> ready = new ArrayList<>();
+						for ( RowMap r : unit.rows.get() ) {
+							if ( held != null )
+								ready.add(held);
+							held = r;
+						}
+
+						if ( !ready.isEmpty() )
+							replicator.processRows(ready);
+					} else if ( held != null ) {
+						held.setXid(unit.xid);
+						held.setTXCommit();
+						replicator.processRow(held);
+						held = null;
+					}
+				} else if ( !unit.isCommit ) {
+					if ( buffer == null )
+						buffer = new RowMapBuffer("pipeline.transaction", maxTxBytes, spillSegmentPool, spillExecutor, bufferMemoryManager);
+
+					for ( RowMap r : unit.rows.get() )
+						buffer.add(r);
+
+					rowsBuffered = buffer.size();
+				} else if ( buffer != null ) {
+					buffer.setXid(unit.xid);
+
+					if ( !buffer.isEmpty() )
+						buffer.getLast().setTXCommit();
+
+					while ( !buffer.isEmpty() ) {
+						ArrayList<RowMap> batch = new ArrayList<>();
+						while ( batch.size() < MaxwellReplicator.MAX_BATCH_ROWS && !buffer.isEmpty() )
+							batch.add(buffer.removeFirst());
+
+						replicator.processRows(batch);
+						rowsBuffered = buffer.size();
+					}
+
+					buffer = null;
+				}
+
+				synchronized(progressLock) {
+					unitsProduced++;
+					progressLock.notifyAll();
+				}
+			}
+		} catch ( ExecutionException e ) {
+			LOGGER.error("pipeline conversion failed", e.getCause());
+			this.exception = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		} catch ( Exception e ) {
+			LOGGER.error("pipeline producer thread exiting with exception", e);
+			this.exception = e;
+		}
+	}
+}
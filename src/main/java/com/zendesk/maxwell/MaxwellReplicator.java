@@ -1,13 +1,13 @@
 package com.zendesk.maxwell;
 
-import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import com.codahale.metrics.Gauge;
 import com.google.code.or.binlog.impl.event.*;
 import com.google.code.or.net.TransportException;
 import org.slf4j.Logger;
@@ -24,15 +24,18 @@ import com.zendesk.maxwell.schema.Table;
 import com.zendesk.maxwell.schema.ddl.SchemaChange;
 import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
 import com.zendesk.maxwell.schema.ddl.InvalidSchemaError;
+import com.zendesk.maxwell.util.RingBuffer;
 
 public class MaxwellReplicator extends RunLoopProcess {
-	private final long MAX_TX_ELEMENTS = 10000;
+	// transactions spill to disk past this much (estimated) row data
+	private final long MAX_TX_BYTES = RowMapBuffer.DEFAULT_MAX_IN_MEMORY_BYTES;
+	static final int MAX_BATCH_ROWS = 1000;
 	String filePath, fileName;
 	private long rowEventsProcessed;
-	protected Schema schema;
+	protected volatile Schema schema;
 	private MaxwellFilter filter;
 
-	private final LinkedBlockingDeque<BinlogEventV4> queue = new LinkedBlockingDeque<>(20);
+	private final RingBuffer<BinlogEventV4> queue;
 
 	protected MaxwellBinlogEventListener binlogEventListener;
 
@@ -41,12 +44,16 @@ public class MaxwellReplicator extends RunLoopProcess {
 	private final MaxwellContext context;
 	protected final AbstractProducer producer;
 	protected final AbstractBootstrapper bootstrapper;
+	private final MaxwellPipeline pipeline;
+	private final ParallelRowConverter rowConverter;
+	private final boolean streamTransactions;
 
 	static final Logger LOGGER = LoggerFactory.getLogger(MaxwellReplicator.class);
 
 	public MaxwellReplicator(Schema currentSchema, AbstractProducer producer, AbstractBootstrapper bootstrapper, MaxwellContext ctx, BinlogPosition start) throws Exception {
 		this.schema = currentSchema;
 
+		this.queue = new RingBuffer<>(ctx.getConfig().binlogEventBufferSize, ctx.getConfig().binlogEventWaitStrategy);
 		this.binlogEventListener = new MaxwellBinlogEventListener(queue);
 
 		this.replicator = new OpenReplicator();
@@ -66,6 +73,27 @@ public class MaxwellReplicator extends RunLoopProcess {
 
 		this.context = ctx;
 		this.setBinlogPosition(start);
+
+		if ( ctx.getConfig().pipelineWorkers > 0 ) {
+			this.pipeline = new MaxwellPipeline(this, ctx.getMetricRegistry(), ctx.getConfig().pipelineWorkers, MAX_TX_BYTES,
+					ctx.getSpillSegmentPool(), ctx.getSpillExecutor(), ctx.getBufferMemoryManager(), ctx.getConfig().streamTransactions);
+			ctx.getMetricRegistry().register("pipeline.decode.queue", new Gauge<Integer>() {
+				@Override
+				public Integer getValue() {
+					return queue.size();
+				}
+			});
+		} else {
+			this.pipeline = null;
+		}
+
+		this.streamTransactions = ctx.getConfig().streamTransactions;
+
+		if ( ctx.getConfig().parallelConversionThreshold > 0 ) {
+			this.rowConverter = new ParallelRowConverter(ctx.getConfig().parallelConversionThreads, ctx.getConfig().parallelConversionThreshold);
+		} else {
+			this.rowConverter = null;
+		}
 	}
 
 	public void setBinlogPosition(BinlogPosition p) {
@@ -77,7 +105,8 @@ public class MaxwellReplicator extends RunLoopProcess {
 		this.replicator.setPort(port);
 	}
 
-	private void ensureReplicatorThread() throws Exception {
+	/* called whenever the event queue comes up empty */
+	protected void ensureReplicatorThread() throws Exception {
 		if ( !replicator.isRunning() ) {
 			LOGGER.warn("open-replicator stopped at position " + replicator.getBinlogFileName() + ":" + replicator.getBinlogPosition() + " -- restarting");
 			replicator.start();
@@ -93,6 +122,13 @@ public class MaxwellReplicator extends RunLoopProcess {
 
 	@Override
 	protected void beforeStart() throws Exception {
+		startReplicator();
+
+		if ( this.pipeline != null )
+			this.pipeline.start();
+	}
+
+	protected void startReplicator() throws Exception {
 		try {
 			this.replicator.start();
 		} catch ( TransportException e ) {
@@ -107,7 +143,19 @@ public class MaxwellReplicator extends RunLoopProcess {
 		}
 	}
 
+	protected void stopReplicator() throws Exception {
+		this.binlogEventListener.stop();
+		this.replicator.stop(5, TimeUnit.SECONDS);
+	}
+
 	public void work() throws Exception {
+		if ( this.pipeline != null ) {
+			this.pipeline.ensureRunning();
+			processNextEvent(this.pipeline);
+			context.ensurePositionThread();
+			return;
+		}
+
 		RowMap row = getRow();
 
 		context.ensurePositionThread();
@@ -115,18 +163,59 @@ public class MaxwellReplicator extends RunLoopProcess {
 		if (row == null)
 			return;
 
+		// hand the producer whatever else of the transaction is ready to go along with it.
+		ArrayList<RowMap> batch = new ArrayList<>();
+		batch.add(row);
+
+		while ( batch.size() < MAX_BATCH_ROWS && hasBufferedRow() )
+			batch.add(rowBuffer.removeFirst());
+
+		processRows(batch);
+	}
+
+	protected void processRow(RowMap row) throws Exception {
 		if ( !bootstrapper.shouldSkip(row) && !isMaxwellRow(row) ) {
 			producer.push(row);
 		} else {
 			bootstrapper.work(row, producer, this);
 		}
+	}
+
+	/*
+	   like processRow(), for a run of rows.  Rows bound for the producer go out
+	   together in a pushBatch(); the bootstrapper still sees its rows one at a time,
+	   in order with the rest.
+	 */
+	protected void processRows(List<RowMap> rows) throws Exception {
+		ArrayList<RowMap> batch = new ArrayList<>(rows.size());
+
+		for ( RowMap row : rows ) {
+			if ( !bootstrapper.shouldSkip(row) && !isMaxwellRow(row) ) {
+				batch.add(row);
+			} else {
+				if ( !batch.isEmpty() ) {
+					producer.pushBatch(batch);
+					batch = new ArrayList<>();
+				}
+				bootstrapper.work(row, producer, this);
+			}
+		}
 
+		if ( !batch.isEmpty() )
+			producer.pushBatch(batch);
 	}
 
 	@Override
 	protected void beforeStop() throws Exception {
-		this.binlogEventListener.stop();
-		this.replicator.stop(5, TimeUnit.SECONDS);
+		stopReplicator();
+
+		if ( this.pipeline != null ) {
+			this.pipeline.stop();
+			this.context.getMetricRegistry().remove("pipeline.decode.queue");
+		}
+
+		if ( this.rowConverter != null )
+			this.rowConverter.shutdown();
 	}
 
 	protected boolean isMaxwellRow(RowMap row) {
@@ -144,8 +233,12 @@ public class MaxwellReplicator extends RunLoopProcess {
 
 		long tableId = e.getTableId();
 
-		if ( tableCache.isTableBlacklisted(tableId) ) {
-			LOGGER.debug(String.format("ignoring row event for blacklisted table %s", tableCache.getBlacklistedTableName(tableId)));
+		MaxwellTableCache.Verdict verdict = tableCache.getVerdict(tableId);
+
+		if ( verdict == MaxwellTableCache.Verdict.BLACKLISTED ) {
+			LOGGER.debug(String.format("ignoring row event for blacklisted table %s", tableCache.getTableName(tableId)));
+			return null;
+		} else if ( verdict == MaxwellTableCache.Verdict.EXCLUDED ) {
 			return null;
 		}
 
@@ -177,17 +270,30 @@ public class MaxwellReplicator extends RunLoopProcess {
 			default:
 				return null;
 		}
+
+		ew.setRowConverter(this.rowConverter);
 		return ew;
 	}
 
 	private static Pattern createTablePattern =
 			Pattern.compile("^CREATE\\s+TABLE", Pattern.CASE_INSENSITIVE);
 
-	private RowMapBuffer getTransactionRows() throws Exception {
+	private boolean transactionOpen = false;
+
+	/*
+	   reads events up to the end of the current transaction, handing its row
+	   events and final commit to the listener.  If the listener asks to pause,
+	   returns with `transactionOpen` still set; calling again picks up where we
+	   left off.
+	 */
+	private void readTransaction(TransactionListener listener) throws Exception {
 		BinlogEventV4 v4Event;
 		MaxwellAbstractRowsEvent event;
 
-		RowMapBuffer buffer = new RowMapBuffer(MAX_TX_ELEMENTS);
+		if ( !transactionOpen ) {
+			listener.begin();
+			transactionOpen = true;
+		}
 
 		while ( true ) {
 			v4Event = pollV4EventFromQueue();
@@ -213,13 +319,13 @@ public class MaxwellReplicator extends RunLoopProcess {
 						continue;
 					}
 
-					if ( event.matchesFilter() ) {
-						for ( RowMap r : event.jsonMaps() )
-							buffer.add(r);
-					}
+					boolean pause = event.matchesRowFilter() && listener.rowsEvent(event);
 
 					setReplicatorPosition(event);
 
+					if ( pause )
+						return;
+
 					break;
 				case MySQLConstants.TABLE_MAP_EVENT:
 					tableCache.processEvent(this.schema, this.filter, (TableMapEvent) v4Event);
@@ -231,10 +337,9 @@ public class MaxwellReplicator extends RunLoopProcess {
 					if ( sql.equals("COMMIT") ) {
 						// MyISAM will output a "COMMIT" QUERY_EVENT instead of a XID_EVENT.
 						// There's no transaction ID but we can still set "commit: true"
-						if ( !buffer.isEmpty() )
-							buffer.getLast().setTXCommit();
-
-						return buffer;
+						transactionOpen = false;
+						listener.commit(null);
+						return;
 					} else if ( sql.toUpperCase().startsWith("SAVEPOINT")) {
 						LOGGER.info("Ignoring SAVEPOINT in transaction: " + qe);
 					} else if ( createTablePattern.matcher(sql).find() ) {
@@ -250,61 +355,109 @@ public class MaxwellReplicator extends RunLoopProcess {
 				case MySQLConstants.XID_EVENT:
 					XidEvent xe = (XidEvent) v4Event;
 
-					buffer.setXid(xe.getXid());
-
-					if ( !buffer.isEmpty() )
-						buffer.getLast().setTXCommit();
-
-					return buffer;
+					transactionOpen = false;
+					listener.commit(xe.getXid());
+					return;
 			}
 		}
 	}
 
 	private RowMapBuffer rowBuffer;
 
-	public RowMap getRow() throws Exception {
-		BinlogEventV4 v4Event;
+	/*
+	   collects a whole transaction into rowBuffer for getRow() to hand out.
+	   When streaming, pauses as soon as there's a row that can be handed out
+	   ahead of the commit.
+	 */
+	private final TransactionListener bufferingListener = new TransactionListener() {
+		@Override
+		public void begin() throws Exception {
+			rowBuffer = new RowMapBuffer("transaction", MAX_TX_BYTES, context.getSpillSegmentPool(), context.getSpillExecutor(),
+					context.getBufferMemoryManager());
+		}
+
+		@Override
+		public boolean rowsEvent(MaxwellAbstractRowsEvent event) throws Exception {
+			for ( RowMap r : event.jsonMaps() )
+				rowBuffer.add(r);
+
+			return streamTransactions && rowBuffer.size() > 1;
+		}
+
+		@Override
+		public void commit(Long xid) throws Exception {
+			rowBuffer.setXid(xid);
+
+			if ( !rowBuffer.isEmpty() )
+				rowBuffer.getLast().setTXCommit();
+		}
+	};
+
+	/*
+	   is there a row in rowBuffer that can be handed out?  While a streamed
+	   transaction is still open its last row is held back: only the transaction's
+	   final row may carry the commit.
+	 */
+	private boolean hasBufferedRow() {
+		return rowBuffer != null && !rowBuffer.isEmpty()
+			&& ( !transactionOpen || rowBuffer.size() > 1 );
+	}
 
+	public RowMap getRow() throws Exception {
 		while (true) {
-			if (rowBuffer != null && !rowBuffer.isEmpty()) {
+			if ( hasBufferedRow() )
 				return rowBuffer.removeFirst();
-			}
 
-			v4Event = pollV4EventFromQueue();
+			if ( transactionOpen ) {
+				readTransaction(bufferingListener);
+				continue;
+			}
 
-			if (v4Event == null) {
-				ensureReplicatorThread();
+			if ( !processNextEvent(bufferingListener) )
 				return null;
-			}
+		}
+	}
 
-			switch (v4Event.getHeader().getEventType()) {
-				case MySQLConstants.WRITE_ROWS_EVENT:
-				case MySQLConstants.WRITE_ROWS_EVENT_V2:
-				case MySQLConstants.UPDATE_ROWS_EVENT:
-				case MySQLConstants.UPDATE_ROWS_EVENT_V2:
-				case MySQLConstants.DELETE_ROWS_EVENT:
-				case MySQLConstants.DELETE_ROWS_EVENT_V2:
-					LOGGER.warn("Started replication stream outside of transaction.  This shouldn't normally happen.");
+	/*
+	   processes the next top-level event from the queue, reading any transaction
+	   it begins through to the end.  Returns false if the queue was empty.
+	 */
+	private boolean processNextEvent(TransactionListener listener) throws Exception {
+		BinlogEventV4 v4Event = pollV4EventFromQueue();
 
-					queue.offerFirst(v4Event);
-					rowBuffer = getTransactionRows();
-					break;
-				case MySQLConstants.TABLE_MAP_EVENT:
-					tableCache.processEvent(this.schema, this.filter, (TableMapEvent) v4Event);
-					break;
-				case MySQLConstants.QUERY_EVENT:
-					QueryEvent qe = (QueryEvent) v4Event;
-					if (qe.getSql().toString().equals("BEGIN"))
-						rowBuffer = getTransactionRows();
-					else
-						processQueryEvent((QueryEvent) v4Event);
-					break;
-				default:
-					break;
-			}
+		if (v4Event == null) {
+			ensureReplicatorThread();
+			return false;
+		}
 
-			setReplicatorPosition((AbstractBinlogEventV4) v4Event);
+		switch (v4Event.getHeader().getEventType()) {
+			case MySQLConstants.WRITE_ROWS_EVENT:
+			case MySQLConstants.WRITE_ROWS_EVENT_V2:
+			case MySQLConstants.UPDATE_ROWS_EVENT:
+			case MySQLConstants.UPDATE_ROWS_EVENT_V2:
+			case MySQLConstants.DELETE_ROWS_EVENT:
+			case MySQLConstants.DELETE_ROWS_EVENT_V2:
+				LOGGER.warn("Started replication stream outside of transaction.  This shouldn't normally happen.");
+
+				queue.pushBack(v4Event);
+				readTransaction(listener);
+				break;
+			case MySQLConstants.TABLE_MAP_EVENT:
+				tableCache.processEvent(this.schema, this.filter, (TableMapEvent) v4Event);
+				break;
+			case MySQLConstants.QUERY_EVENT:
+				QueryEvent qe = (QueryEvent) v4Event;
+				if (qe.getSql().toString().equals("BEGIN"))
+					readTransaction(listener);
+				else
+					processQueryEvent((QueryEvent) v4Event);
+				break;
+			default:
+				break;
 		}
+
+		setReplicatorPosition((AbstractBinlogEventV4) v4Event);
+		return true;
 	}
 
 	protected BinlogEventV4 pollV4EventFromQueue() throws InterruptedException {
@@ -312,7 +465,7 @@ public class MaxwellReplicator extends RunLoopProcess {
 	}
 
 
-	private void processQueryEvent(QueryEvent event) throws InvalidSchemaError, SQLException, IOException {
+	private void processQueryEvent(QueryEvent event) throws Exception {
 		// get charset of the alter event somehow? or just ignore it.
 		String dbName = event.getDatabaseName().toString();
 		String sql = event.getSql().toString();
@@ -323,12 +476,15 @@ public class MaxwellReplicator extends RunLoopProcess {
 			return;
 
 		Schema updatedSchema = this.schema;
+		ArrayList<ResolvedSchemaChange> resolvedChanges = new ArrayList<>();
 
 		for ( SchemaChange change : changes ) {
 			if ( !change.isBlacklisted(this.filter) ) {
 				ResolvedSchemaChange resolved = change.resolve(updatedSchema);
-				if ( resolved != null )
+				if ( resolved != null ) {
 					updatedSchema = resolved.apply(updatedSchema);
+					resolvedChanges.add(resolved);
+				}
 			} else {
 				LOGGER.debug("ignoring blacklisted schema change");
 			}
@@ -338,13 +494,34 @@ public class MaxwellReplicator extends RunLoopProcess {
 			BinlogPosition p = eventBinlogPosition(event);
 			LOGGER.info("storing schema @" + p + " after applying \"" + sql.replace('\n', ' ') + "\"");
 
-			saveSchema(updatedSchema, p);
+			saveSchema(updatedSchema, p, resolvedChanges);
 		}
 	}
 
-	private void saveSchema(Schema updatedSchema, BinlogPosition p) throws SQLException {
+	/* blocks until every row handed to the pipeline (if any) has been produced */
+	protected void drainPipeline() throws Exception {
+		if ( this.pipeline != null )
+			this.pipeline.drain();
+	}
+
+	protected boolean isTransactionOpen() {
+		return transactionOpen;
+	}
+
+	protected boolean isEventQueueEmpty() {
+		return queue.isEmpty();
+	}
+
+	private void saveSchema(Schema updatedSchema, BinlogPosition p, List<ResolvedSchemaChange> changes) throws Exception {
+		// rows already handed to the pipeline were read against the old schema;
+		// let them get all the way out before we move the schema (and position) on.
+		drainPipeline();
+
 		this.schema = updatedSchema;
-		tableCache.clear();
+
+		// only the cached table ids the changes name need dropping; the rest
+		// are moved over to the new schema's copies of their tables.
+		tableCache.invalidate(updatedSchema, changes);
 
 		if ( !this.context.getReplayMode() ) {
 			try (Connection c = this.context.getMaxwellConnection()) {
@@ -361,10 +538,12 @@ public class MaxwellReplicator extends RunLoopProcess {
 
 	public void setSchema(Schema schema) {
 		this.schema = schema;
+		tableCache.clear();
 	}
 
 	public void setFilter(MaxwellFilter filter) {
 		this.filter = filter;
+		tableCache.clear();
 	}
 
 	private void setReplicatorPosition(AbstractBinlogEventV4 e) {
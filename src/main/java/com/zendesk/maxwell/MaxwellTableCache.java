@@ -1,52 +1,139 @@
 package com.zendesk.maxwell;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.google.code.or.binlog.impl.event.TableMapEvent;
 import com.zendesk.maxwell.schema.Database;
 import com.zendesk.maxwell.schema.Schema;
 import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
 
+/*
+   maps binlog table ids to their table, along with the filter's verdict on that
+   table -- computed once, when the id is first seen in a TableMapEvent, rather than
+   once per row event.
+
+   The cache is bounded, evicting the least recently used table id; tools like
+   pt-online-schema-change mint a new table id for every shadow table they create.
+ */
 public class MaxwellTableCache {
-	private final HashMap<Long, Table> tableMapCache = new HashMap<>();
-	private final HashMap<Long, String> blacklistedTableCache = new HashMap<>();
+	public enum Verdict { INCLUDED, EXCLUDED, BLACKLISTED }
+
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private static class Entry {
+		final String database;
+		final String tableName;
+		Table table; // only resolved for INCLUDED tables
+		final Verdict verdict;
+
+		Entry(String database, String tableName, Table table, Verdict verdict) {
+			this.database = database;
+			this.tableName = tableName;
+			this.table = table;
+			this.verdict = verdict;
+		}
+	}
+
+	private final LinkedHashMap<Long, Entry> tableMapCache;
+
+	public MaxwellTableCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	public MaxwellTableCache(final int maxEntries) {
+		this.tableMapCache = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
 	// open-replicator keeps a very similar cache, but we can't get access to it.
 	public void processEvent(Schema schema, MaxwellFilter filter, TableMapEvent event) {
 		Long tableId = event.getTableId();
-		if ( !tableMapCache.containsKey(tableId) ) {
-			String dbName = new String(event.getDatabaseName().getValue());
-			String tblName = new String(event.getTableName().getValue());
-			Database db = schema.findDatabase(dbName);
+		if ( tableMapCache.get(tableId) != null )
+			return;
 
-			if ( filter != null && filter.isTableBlacklisted(dbName, tblName) )
-				blacklistedTableCache.put(tableId, tblName);
-			else if ( db == null )
+		String dbName = new String(event.getDatabaseName().getValue());
+		String tblName = new String(event.getTableName().getValue());
+
+		if ( filter != null && filter.isTableBlacklisted(dbName, tblName) ) {
+			tableMapCache.put(tableId, new Entry(dbName, tblName, null, Verdict.BLACKLISTED));
+		} else if ( filter != null && !filter.matchesTable(dbName, tblName) ) {
+			tableMapCache.put(tableId, new Entry(dbName, tblName, null, Verdict.EXCLUDED));
+		} else {
+			Database db = schema.findDatabase(dbName);
+			if ( db == null )
 				throw new RuntimeException("Couldn't find database " + dbName);
-			else {
-				Table tbl = db.findTable(tblName);
 
-				if (tbl == null)
-					throw new RuntimeException("Couldn't find table " + tblName);
-				else
-					tableMapCache.put(tableId, tbl);
-			}
+			Table tbl = db.findTable(tblName);
+			if ( tbl == null )
+				throw new RuntimeException("Couldn't find table " + tblName);
+
+			tableMapCache.put(tableId, new Entry(dbName, tblName, tbl, Verdict.INCLUDED));
 		}
 	}
 
+	/* null if we haven't seen a TableMapEvent for this id */
+	public Verdict getVerdict(Long tableId) {
+		Entry e = tableMapCache.get(tableId);
+		return e == null ? null : e.verdict;
+	}
+
 	public Table getTable(Long tableId) {
-		return tableMapCache.get(tableId);
+		Entry e = tableMapCache.get(tableId);
+		return e == null ? null : e.table;
 	}
 
 	public boolean isTableBlacklisted(Long tableId) {
-		return blacklistedTableCache.containsKey(tableId);
+		return getVerdict(tableId) == Verdict.BLACKLISTED;
+	}
+
+	public String getTableName(Long tableId) {
+		Entry e = tableMapCache.get(tableId);
+		return e == null ? null : e.database + "." + e.tableName;
+	}
+
+	public int size() {
+		return tableMapCache.size();
 	}
 
-	public String getBlacklistedTableName(Long tableId) {
-		return blacklistedTableCache.get(tableId);
+	/*
+	   forget the table ids whose table was touched by `changes`, and point
+	   the rest at their table in `updatedSchema`: Schema.copy() copies every
+	   table, and the old ones still carry the old schema's id.
+	 */
+	public void invalidate(Schema updatedSchema, List<ResolvedSchemaChange> changes) {
+		Iterator<Entry> iterator = tableMapCache.values().iterator();
+
+		entries:
+		while ( iterator.hasNext() ) {
+			Entry e = iterator.next();
+
+			for ( ResolvedSchemaChange change : changes ) {
+				if ( change.affectsTable(e.database, e.tableName) ) {
+					iterator.remove();
+					continue entries;
+				}
+			}
+
+			if ( e.table != null ) {
+				Database db = updatedSchema.findDatabase(e.database);
+				Table table = db == null ? null : db.findTable(e.tableName);
+				if ( table == null )
+					iterator.remove();
+				else
+					e.table = table;
+			}
+		}
 	}
 
 	public void clear() {
 		tableMapCache.clear();
-		blacklistedTableCache.clear();
 	}
 }
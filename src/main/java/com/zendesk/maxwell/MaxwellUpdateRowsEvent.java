@@ -75,41 +75,12 @@ public class MaxwellUpdateRowsEvent extends MaxwellAbstractRowsEvent {
 
 	@Override
 	public List<RowMap> jsonMaps() {
-		ArrayList<RowMap> list = new ArrayList<>();
-		for (Pair<Row> p : filteredRowsBeforeAndAfter() ) {
-			Row after = p.getAfter();
-			Row before = p.getBefore();
-
-			RowMap rowMap = buildRowMap();
-
-			for ( ColumnWithDefinition cd : new ColumnWithDefinitionList(table, after, event.getUsedColumnsAfter())) {
-				rowMap.putData(cd.definition.getName(), cd.asJSON());
-			}
-
-			for ( ColumnWithDefinition cd : new ColumnWithDefinitionList(table, before, event.getUsedColumnsBefore())) {
-				String name = cd.definition.getName();
-				Object beforeValue = cd.asJSON();
-
-				if (!rowMap.hasData(name)) {
-					/*
-					   If we find a column in the BEFORE image that's *not* present in the AFTER image,
-					   we're running in binlog_row_image = MINIMAL.  In this case, the BEFORE image acts
-					   as a sort of WHERE clause to update rows with the new values (present in the AFTER image).
-
-					   In order to reconstruct as much of the row as posssible, here we fill in
-					   missing data in the rowMap with values from the BEFORE image
-					 */
-					rowMap.putData(name, beforeValue);
-				} else {
-					if (!Objects.equals(rowMap.getData(name), beforeValue)) {
-						rowMap.putOldData(name, beforeValue);
-					}
-				}
+		return convertRows(filteredRowsBeforeAndAfter(), new ParallelRowConverter.Conversion<Pair<Row>>() {
+			@Override
+			public RowMap convert(Pair<Row> p) {
+				return buildRowMap(p.getAfter(), event.getUsedColumnsAfter(), p.getBefore(), event.getUsedColumnsBefore());
 			}
-			list.add(rowMap);
-		}
-
-		return list;
+		});
 	}
 
 	@Override
@@ -0,0 +1,52 @@
+package com.zendesk.maxwell;
+
+import java.io.File;
+import java.util.List;
+
+import com.zendesk.maxwell.bootstrap.AbstractBootstrapper;
+import com.zendesk.maxwell.producer.AbstractProducer;
+import com.zendesk.maxwell.schema.Schema;
+
+/*
+   replicates from archived binlog files on local disk instead of a live server
+   (--binlog_dir).  The files are decoded by a BinlogFileReader, which feeds the
+   same event queue open-replicator would; from there on rows take the normal
+   schema/filter/producer path.  Stops by itself once the last file is done.
+ */
+public class OfflineMaxwellReplicator extends MaxwellReplicator {
+	private final BinlogFileReader reader;
+
+	public OfflineMaxwellReplicator(Schema currentSchema, AbstractProducer producer, AbstractBootstrapper bootstrapper, MaxwellContext ctx, BinlogPosition start, List<File> files) throws Exception {
+		super(currentSchema, producer, bootstrapper, ctx, start);
+
+		this.reader = new BinlogFileReader(files, start, ctx.getConfig().binlogReaders,
+				ctx.getConfig().binlogEventBufferSize, this.binlogEventListener);
+	}
+
+	@Override
+	protected void startReplicator() throws Exception {
+		this.reader.start();
+	}
+
+	@Override
+	protected void stopReplicator() throws Exception {
+		this.binlogEventListener.stop();
+		this.reader.stop();
+	}
+
+	@Override
+	protected void ensureReplicatorThread() throws Exception {
+		this.reader.ensureRunning();
+
+		// check finished before the queue: the reader's last event is queued before it's marked finished.
+		if ( !this.reader.isFinished() || !isEventQueueEmpty() )
+			return;
+
+		if ( isTransactionOpen() )
+			throw new RuntimeException("binlog files ended in the middle of a transaction");
+
+		LOGGER.info("offline replication complete, stopping");
+		drainPipeline();
+		requestStop();
+	}
+}
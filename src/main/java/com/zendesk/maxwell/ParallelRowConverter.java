@@ -0,0 +1,83 @@
+package com.zendesk.maxwell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+   converts the rows of a very large row event (think a bulk UPDATE touching a
+   million rows) on a fork-join pool.  The row list is split into chunks which are
+   converted concurrently into slots of a shared array, so the result comes back
+   in the original row order.  Rows are materialized on the pool rather than
+   left for whoever first reads their data.
+
+   Only events at or above `threshold` rows take this path; smaller events are
+   cheaper to convert inline.
+ */
+public class ParallelRowConverter {
+	private static final int MIN_CHUNK_SIZE = 256;
+
+	public interface Conversion<T> {
+		RowMap convert(T row);
+	}
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+
+	public ParallelRowConverter(int parallelism, int threshold) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.threshold = threshold;
+	}
+
+	public boolean shouldParallelize(int rowCount) {
+		return rowCount >= threshold;
+	}
+
+	public <T> List<RowMap> convert(List<T> rows, Conversion<T> conversion) {
+		if ( !(rows instanceof RandomAccess) )
+			rows = new ArrayList<>(rows);
+
+		RowMap[] result = new RowMap[rows.size()];
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, rows.size() / (pool.getParallelism() * 4));
+
+		pool.invoke(new ConvertChunk<>(rows, conversion, result, 0, rows.size(), chunkSize));
+		return Arrays.asList(result);
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private static class ConvertChunk<T> extends RecursiveAction {
+		private final List<T> rows;
+		private final Conversion<T> conversion;
+		private final RowMap[] result;
+		private final int from, to, chunkSize;
+
+		ConvertChunk(List<T> rows, Conversion<T> conversion, RowMap[] result, int from, int to, int chunkSize) {
+			this.rows = rows;
+			this.conversion = conversion;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if ( to - from <= chunkSize ) {
+				for ( int i = from; i < to; i++ ) {
+					result[i] = conversion.convert(rows.get(i));
+					result[i].materialize();
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ConvertChunk<>(rows, conversion, result, from, mid, chunkSize),
+						  new ConvertChunk<>(rows, conversion, result, mid, to, chunkSize));
+			}
+		}
+	}
+}
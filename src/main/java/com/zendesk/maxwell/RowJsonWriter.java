@@ -0,0 +1,397 @@
+package com.zendesk.maxwell;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.*;
+
+/*
+   writes RowMaps of one version of one table as JSON.  Everything that's the
+   same from row to row is worked out once, when the writer is compiled: the
+   database and table values and every field name are kept as pre-encoded
+   SerializedStrings, the columns are written in table order, and how each
+   value gets written is decided from its ColumnDef rather than by inspecting
+   the value.  It also writes the positional form of a row (no column names)
+   and the table-layout message that goes with it, for --output_format=positional.
+
+   A Table compiles its writer on first use (Table#getJsonWriter) and drops it
+   whenever its columns, name or keys change; schema changes work on a copy of
+   the schema, so a table that's been altered always comes with a fresh writer.
+   Row values are read by position, in the layout of the same table's
+   ColumnIndex (Table#getColumnIndex).
+ */
+public class RowJsonWriter {
+	private static final SerializedString DATABASE_FIELD = new SerializedString("database");
+	private static final SerializedString TABLE_FIELD = new SerializedString("table");
+	private static final SerializedString TYPE_FIELD = new SerializedString("type");
+	private static final SerializedString TS_FIELD = new SerializedString("ts");
+	private static final SerializedString XID_FIELD = new SerializedString("xid");
+	private static final SerializedString COMMIT_FIELD = new SerializedString("commit");
+	private static final SerializedString DATA_FIELD = new SerializedString("data");
+	private static final SerializedString OLD_FIELD = new SerializedString("old");
+	private static final SerializedString UUID_FIELD = new SerializedString("_uuid");
+	private static final SerializedString SCHEMA_ID_FIELD = new SerializedString("schema_id");
+	private static final SerializedString LAYOUT_FIELD = new SerializedString("layout");
+	private static final SerializedString COLUMNS_FIELD = new SerializedString("columns");
+	private static final SerializedString NAME_FIELD = new SerializedString("name");
+	private static final SerializedString PRIMARY_KEY_FIELD = new SerializedString("primary_key");
+	private static final SerializedString TABLE_LAYOUT = new SerializedString("table-layout");
+
+	private static final SerializedString INSERT = new SerializedString("insert");
+	private static final SerializedString UPDATE = new SerializedString("update");
+	private static final SerializedString DELETE = new SerializedString("delete");
+
+	/* how a column's converted (ColumnDef.asJSON) value is written */
+	private enum ValueKind {
+		LONG,      // int and friends: always a Long
+		INTEGER,   // bigint and bit: a Long, or a BigInteger past Long.MAX_VALUE
+		DECIMAL,   // a BigDecimal
+		STRING,    // strings, enums, dates and times, geometry
+		LIST,      // sets, as a list of strings
+		OBJECT     // float/double and year: left to jackson
+	}
+
+	private final SerializedString database;
+	private final SerializedString table;
+
+	private final String[] columns;
+	private final SerializedString[] columnFields;
+	private final ValueKind[] kinds;
+
+	private final String[] pkColumns;
+	private final int[] pkPositions;
+	private final SerializedString[] pkFields;
+
+	private final String[] columnTypes;
+	private final SerializedString[] positionFields;
+	private final SerializedString layoutID;
+
+	public RowJsonWriter(Table table) {
+		this.database = new SerializedString(table.getDatabase());
+		this.table = new SerializedString(table.getName());
+
+		List<ColumnDef> columnList = table.getColumnList();
+		int n = columnList.size();
+
+		this.columns = new String[n];
+		this.columnFields = new SerializedString[n];
+		this.kinds = new ValueKind[n];
+		this.columnTypes = new String[n];
+		this.positionFields = new SerializedString[n];
+
+		for ( int i = 0; i < n; i++ ) {
+			ColumnDef c = columnList.get(i);
+			this.columns[i] = c.getName();
+			this.columnFields[i] = new SerializedString(c.getName());
+			this.kinds[i] = kindOf(c);
+			this.columnTypes[i] = c.getType();
+			this.positionFields[i] = new SerializedString(String.valueOf(i));
+		}
+
+		List<String> pks = table.getPKList();
+		int nPK = pks == null ? 0 : pks.size();
+
+		this.pkColumns = new String[nPK];
+		this.pkPositions = new int[nPK];
+		this.pkFields = new SerializedString[nPK];
+
+		for ( int i = 0; i < nPK; i++ ) {
+			this.pkColumns[i] = pks.get(i);
+			this.pkPositions[i] = table.getColumnIndex().indexOf(pks.get(i));
+			this.pkFields[i] = new SerializedString("pk." + pks.get(i));
+		}
+
+		this.layoutID = new SerializedString(fingerprint(table));
+	}
+
+	/*
+	   identifies the table's layout -- its name, columns and their types, and
+	   primary key -- across schema versions and restarts.
+	 */
+	private String fingerprint(Table table) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(table.getDatabase()).append('.').append(table.getName());
+
+		for ( int i = 0; i < columns.length; i++ )
+			sb.append('|').append(columns[i]).append(':').append(columnTypes[i]);
+
+		sb.append('|');
+		for ( String pk : pkColumns )
+			sb.append(pk).append(',');
+
+		CRC32 crc = new CRC32();
+		crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+		return String.format("%08x", crc.getValue());
+	}
+
+	public String getLayoutID() {
+		return layoutID.getValue();
+	}
+
+	private static ValueKind kindOf(ColumnDef c) {
+		if ( c instanceof IntColumnDef )
+			return ValueKind.LONG;
+		else if ( c instanceof BigIntColumnDef || c instanceof BitColumnDef )
+			return ValueKind.INTEGER;
+		else if ( c instanceof DecimalColumnDef )
+			return ValueKind.DECIMAL;
+		else if ( c instanceof SetColumnDef )
+			return ValueKind.LIST;
+		else if ( c instanceof StringColumnDef
+				|| c instanceof EnumColumnDef
+				|| c instanceof DateColumnDef
+				|| c instanceof DateTimeColumnDef
+				|| c instanceof TimeColumnDef
+				|| c instanceof GeometryColumnDef )
+			return ValueKind.STRING;
+		else
+			return ValueKind.OBJECT;
+	}
+
+	private static SerializableString typeString(String type) {
+		switch ( type ) {
+			case "insert":
+				return INSERT;
+			case "update":
+				return UPDATE;
+			case "delete":
+				return DELETE;
+			default:
+				return new SerializedString(type);
+		}
+	}
+
+	public void writeRow(JsonGenerator g, String type, Long timestamp, Long xid, boolean txCommit,
+						 RowValues data, RowValues oldData) throws IOException {
+		g.writeStartObject();
+
+		g.writeFieldName(DATABASE_FIELD);
+		g.writeString(database);
+		g.writeFieldName(TABLE_FIELD);
+		g.writeString(table);
+		g.writeFieldName(TYPE_FIELD);
+		g.writeString(typeString(type));
+		g.writeFieldName(TS_FIELD);
+		g.writeNumber(timestamp);
+
+		if ( xid != null ) {
+			g.writeFieldName(XID_FIELD);
+			g.writeNumber(xid);
+		}
+
+		if ( txCommit ) {
+			g.writeFieldName(COMMIT_FIELD);
+			g.writeBoolean(true);
+		}
+
+		g.writeFieldName(DATA_FIELD);
+		writeColumns(g, data, false);
+
+		if ( !oldData.isEmpty() ) {
+			g.writeFieldName(OLD_FIELD);
+			writeColumns(g, oldData, true);
+		}
+
+		g.writeEndObject();
+	}
+
+	public void writePK(JsonGenerator g, RowValues data, String uuid) throws IOException {
+		g.writeStartObject();
+
+		g.writeFieldName(DATABASE_FIELD);
+		g.writeString(database);
+		g.writeFieldName(TABLE_FIELD);
+		g.writeString(table);
+
+		if ( pkColumns.length == 0 ) {
+			g.writeFieldName(UUID_FIELD);
+			g.writeString(uuid);
+		} else {
+			for ( int i = 0; i < pkColumns.length; i++ ) {
+				g.writeFieldName(pkFields[i]);
+				writeObject(g, pkPositions[i] < 0 ? null : data.getAt(pkPositions[i]));
+			}
+		}
+
+		g.writeEndObject();
+	}
+
+	/*
+	   the row without its column names: data is an array in column order
+	   (columns missing from the row image come out null), and old data is keyed
+	   by column position.  The layout tag refers to writeLayout()'s message.
+	 */
+	public void writePositionalRow(JsonGenerator g, String type, Long timestamp, Long xid, boolean txCommit,
+								   Long schemaID, RowValues data, RowValues oldData) throws IOException {
+		g.writeStartObject();
+
+		g.writeFieldName(DATABASE_FIELD);
+		g.writeString(database);
+		g.writeFieldName(TABLE_FIELD);
+		g.writeString(table);
+		g.writeFieldName(TYPE_FIELD);
+		g.writeString(typeString(type));
+		g.writeFieldName(TS_FIELD);
+		g.writeNumber(timestamp);
+
+		if ( xid != null ) {
+			g.writeFieldName(XID_FIELD);
+			g.writeNumber(xid);
+		}
+
+		if ( txCommit ) {
+			g.writeFieldName(COMMIT_FIELD);
+			g.writeBoolean(true);
+		}
+
+		if ( schemaID != null ) {
+			g.writeFieldName(SCHEMA_ID_FIELD);
+			g.writeNumber(schemaID);
+		}
+
+		g.writeFieldName(LAYOUT_FIELD);
+		g.writeString(layoutID);
+
+		g.writeFieldName(DATA_FIELD);
+		g.writeStartArray();
+		for ( int i = 0; i < columns.length; i++ ) {
+			Object value = data.getAt(i);
+			if ( value == null )
+				g.writeNull();
+			else
+				writeValue(g, kinds[i], value);
+		}
+		g.writeEndArray();
+
+		if ( !oldData.isEmpty() ) {
+			g.writeFieldName(OLD_FIELD);
+			g.writeStartObject();
+			for ( int i = 0; i < columns.length; i++ ) {
+				if ( !oldData.isSetAt(i) )
+					continue;
+
+				g.writeFieldName(positionFields[i]);
+
+				Object value = oldData.getAt(i);
+				if ( value == null )
+					g.writeNull();
+				else
+					writeValue(g, kinds[i], value);
+			}
+			g.writeEndObject();
+		}
+
+		g.writeEndObject();
+	}
+
+	/* the message that tells consumers of positional rows what a layout's columns are */
+	public void writeLayout(JsonGenerator g, Long schemaID) throws IOException {
+		g.writeStartObject();
+
+		g.writeFieldName(TYPE_FIELD);
+		g.writeString(TABLE_LAYOUT);
+		g.writeFieldName(DATABASE_FIELD);
+		g.writeString(database);
+		g.writeFieldName(TABLE_FIELD);
+		g.writeString(table);
+
+		if ( schemaID != null ) {
+			g.writeFieldName(SCHEMA_ID_FIELD);
+			g.writeNumber(schemaID);
+		}
+
+		g.writeFieldName(LAYOUT_FIELD);
+		g.writeString(layoutID);
+
+		g.writeFieldName(COLUMNS_FIELD);
+		g.writeStartArray();
+		for ( int i = 0; i < columns.length; i++ ) {
+			g.writeStartObject();
+			g.writeFieldName(NAME_FIELD);
+			g.writeString(columnFields[i]);
+			g.writeFieldName(TYPE_FIELD);
+			g.writeString(columnTypes[i]);
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+
+		g.writeFieldName(PRIMARY_KEY_FIELD);
+		g.writeStartArray();
+		for ( String pk : pkColumns )
+			g.writeString(pk);
+		g.writeEndArray();
+
+		g.writeEndObject();
+	}
+
+	private void writeColumns(JsonGenerator g, RowValues values, boolean includeNullField) throws IOException {
+		g.writeStartObject();
+
+		for ( int i = 0; i < columns.length; i++ ) {
+			Object value = values.getAt(i);
+
+			if ( value == null ) {
+				// a null value is only written if the column is actually there
+				if ( !includeNullField || !values.isSetAt(i) )
+					continue;
+
+				g.writeFieldName(columnFields[i]);
+				g.writeNull();
+				continue;
+			}
+
+			g.writeFieldName(columnFields[i]);
+			writeValue(g, kinds[i], value);
+		}
+
+		g.writeEndObject();
+	}
+
+	private static void writeValue(JsonGenerator g, ValueKind kind, Object value) throws IOException {
+		switch ( kind ) {
+			case LONG:
+				g.writeNumber((Long) value);
+				break;
+			case INTEGER:
+				if ( value instanceof BigInteger )
+					g.writeNumber((BigInteger) value);
+				else
+					g.writeNumber((Long) value);
+				break;
+			case DECIMAL:
+				g.writeNumber((BigDecimal) value);
+				break;
+			case STRING:
+				g.writeString((String) value);
+				break;
+			case LIST:
+				writeList(g, (List<?>) value);
+				break;
+			default:
+				g.writeObject(value);
+		}
+	}
+
+	private static void writeList(JsonGenerator g, List<?> list) throws IOException {
+		g.writeStartArray();
+		for ( Object o : list )
+			g.writeObject(o);
+		g.writeEndArray();
+	}
+
+	/* a value of unknown type -- used for rows that don't come with a compiled writer */
+	static void writeObject(JsonGenerator g, Object value) throws IOException {
+		if ( value instanceof List ) // sets come back from .asJSON as lists, and jackson can't deal with lists natively.
+			writeList(g, (List<?>) value);
+		else
+			g.writeObject(value);
+	}
+}
@@ -2,15 +2,16 @@ package com.zendesk.maxwell;
 
 import com.fasterxml.jackson.core.*;
 import com.google.code.or.common.glossary.Column;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.util.HashKeyBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
 import java.util.UUID;
 
 public class RowMap implements Serializable {
@@ -25,10 +26,13 @@ public class RowMap implements Serializable {
 	private Long xid;
 	private boolean txCommit;
 
-	private final HashMap<String, Object> data;
-	private final HashMap<String, Object> oldData;
+	private final RowValues data;
+	private final RowValues oldData;
 	private final List<String> pkColumns;
 
+	// the table the data was converted against, if it was; its compiled writer does toJSON()
+	private transient Table tableDef;
+
 	private static final JsonFactory jsonFactory = new JsonFactory();
 
 	private static final ThreadLocal<ByteArrayOutputStream> byteArrayThreadLocal =
@@ -56,18 +60,117 @@ public class RowMap implements Serializable {
 			};
 
 	public RowMap(String type, String database, String table, Long timestamp, List<String> pkColumns, BinlogPosition nextPosition) {
+		this(type, database, table, timestamp, pkColumns, nextPosition, ColumnIndex.EMPTY);
+	}
+
+	/*
+	   a row whose values are stored by position in `columns` (usually the
+	   table's Table#getColumnIndex()); names outside of it still work, just slower.
+	 */
+	public RowMap(String type, String database, String table, Long timestamp, List<String> pkColumns, BinlogPosition nextPosition, ColumnIndex columns) {
 		this.rowType = type;
 		this.database = database;
 		this.table = table;
 		this.timestamp = timestamp;
-		this.data = new HashMap<>();
-		this.oldData = new HashMap<>();
+		this.data = new RowValues(columns);
+		this.oldData = new RowValues(columns);
 		this.nextPosition = nextPosition;
 		this.pkColumns = pkColumns;
 	}
 
+	/*
+	   fills in the row's data, for subclasses that defer converting it.
+	   Everything that reads or writes data/oldData goes through here first.
+	 */
+	public void materialize() { }
+
+	/*
+	   marks the row's data as exactly the columns of `tableDef`, converted by
+	   their ColumnDefs, so that toJSON() and pkToJson() can use the table's
+	   compiled RowJsonWriter.  Changing the data afterwards clears it again.
+	 */
+	protected void setTableDef(Table tableDef) {
+		this.tableDef = tableDef;
+	}
+
+	/*
+	   positional access for subclasses filling in the row's data; `pos` is an
+	   index into the ColumnIndex the row was built with.  Unlike putData(),
+	   these leave the table definition in place.
+	 */
+	protected boolean hasDataAt(int pos) {
+		return this.data.isSetAt(pos);
+	}
+
+	protected Object getDataAt(int pos) {
+		return this.data.getAt(pos);
+	}
+
+	protected void putDataAt(int pos, Object value) {
+		this.data.putAt(pos, value);
+	}
+
+	protected void putOldDataAt(int pos, Object value) {
+		this.oldData.putAt(pos, value);
+	}
+
+	/*
+	   roughly how much heap the row holds on to, for deciding when a buffer
+	   of rows should spill to disk.  Doesn't convert a row that hasn't been.
+	 */
+	public long getApproximateSize() {
+		return 200 + data.approximateSize() + oldData.approximateSize();
+	}
+
+	/* the row's fields as RowMapCodec spills them */
+	String getRowType() {
+		return rowType;
+	}
+
+	List<String> getPKColumns() {
+		return pkColumns;
+	}
+
+	RowValues getDataValues() {
+		materialize();
+		return data;
+	}
+
+	RowValues getOldDataValues() {
+		materialize();
+		return oldData;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		materialize();
+		out.defaultWriteObject();
+	}
+
 	public String pkToJson() throws IOException {
+		writePKJSON();
+		return jsonFromStream();
+	}
+
+	/* pkToJson(), as UTF-8 */
+	public byte[] pkToJsonBytes() throws IOException {
+		writePKJSON();
+		return jsonBytesFromStream();
+	}
+
+	private void writePKJSON() throws IOException {
 		JsonGenerator g = jsonGeneratorThreadLocal.get();
+		writePKTo(g);
+		g.flush();
+	}
+
+	/* writes the row's key document to `g`, which may be any jackson format */
+	public void writePKTo(JsonGenerator g) throws IOException {
+		materialize();
+
+		if ( tableDef != null ) {
+			tableDef.getJsonWriter().writePK(g, data, pkColumns.isEmpty() ? UUID.randomUUID().toString() : null);
+			return;
+		}
 
 		g.writeStartObject(); // start of row {
 
@@ -82,62 +185,75 @@ public class RowMap implements Serializable {
 				if ( data.containsKey(pk) )
 					pkValue = data.get(pk);
 
-				g.writeObjectField("pk." + pk, pkValue);
+				g.writeFieldName("pk." + pk);
+				RowJsonWriter.writeObject(g, pkValue);
 			}
 		}
 
 		g.writeEndObject(); // end of 'data: { }'
-		g.flush();
-		return jsonFromStream();
 	}
 
 	public String pkAsConcatString() {
+		materialize();
+
 		if (pkColumns.isEmpty()) {
 			return database + table;
 		}
-		String keys="";
+		StringBuilder keys = new StringBuilder();
 		for (String pk : pkColumns) {
-			Object pkValue = null;
-			if (data.containsKey(pk))
-				pkValue = data.get(pk);
+			Object pkValue = data.get(pk);
 			if (pkValue != null)
-				keys += pkValue.toString();
+				keys.append(pkValue.toString());
 		}
-		if (keys.isEmpty())
+		if (keys.length() == 0)
 			return "None";
-		return keys;
+		return keys.toString();
 	}
 
-	private void writeMapToJSON(String jsonMapName, HashMap<String, Object> data, boolean includeNullField) throws IOException {
-		JsonGenerator generator = jsonGeneratorThreadLocal.get();
-		generator.writeObjectFieldStart(jsonMapName); // start of jsonMapName: {
-
-		/* TODO: maintain ordering of fields in column order */
-		for ( String key: data.keySet() ) {
-			Object value = data.get(key);
+	/* pkAsConcatString(), built into `key` for hashing instead of made into a String */
+	public void buildPKHashKey(HashKeyBuilder key) {
+		materialize();
 
-			if ( value == null && !includeNullField)
-				continue;
-
-			if ( value instanceof List) { // sets come back from .asJSON as lists, and jackson can't deal with lists natively.
-				List stringList = (List) value;
-
-				generator.writeArrayFieldStart(key);
-				for ( Object s : stringList )  {
-					generator.writeObject(s);
-				}
-				generator.writeEndArray();
-			} else {
-				generator.writeObjectField(key, value);
-			}
+		key.reset();
+		if (pkColumns.isEmpty()) {
+			key.append(String.valueOf(database)).append(String.valueOf(table));
+			return;
 		}
 
-		generator.writeEndObject(); // end of 'jsonMapName: { }'
-		return;
+		for (String pk : pkColumns) {
+			Object pkValue = data.get(pk);
+			if (pkValue != null)
+				key.append(pkValue);
+		}
+		if (key.length() == 0)
+			key.append("None");
 	}
 
 	public String toJSON() throws IOException {
+		writeJSON();
+		return jsonFromStream();
+	}
+
+	/* toJSON(), as UTF-8 */
+	public byte[] toJSONBytes() throws IOException {
+		writeJSON();
+		return jsonBytesFromStream();
+	}
+
+	private void writeJSON() throws IOException {
 		JsonGenerator g = jsonGeneratorThreadLocal.get();
+		writeTo(g);
+		g.flush();
+	}
+
+	/* writes the row document to `g`, which may be any jackson format */
+	public void writeTo(JsonGenerator g) throws IOException {
+		materialize();
+
+		if ( tableDef != null ) {
+			tableDef.getJsonWriter().writeRow(g, rowType, timestamp, xid, txCommit, data, oldData);
+			return;
+		}
 
 		g.writeStartObject(); // start of row {
 
@@ -153,38 +269,78 @@ public class RowMap implements Serializable {
 		if ( this.txCommit )
 			g.writeBooleanField("commit", true);
 
-		writeMapToJSON("data", this.data, false);
+		/* rows without a table definition (bootstrapped, or read back from disk) still come out in column order */
+		g.writeFieldName("data");
+		this.data.write(g, false);
 
 		if ( !this.oldData.isEmpty()) {
-			writeMapToJSON("old", this.oldData, true);
+			g.writeFieldName("old");
+			this.oldData.write(g, true);
 		}
 
 		g.writeEndObject(); // end of row
-		g.flush();
+	}
 
-		return jsonFromStream();
+	/*
+	   writes the row with its data as a positional array, tagged with its table
+	   layout (RowJsonWriter#writePositionalRow).  Rows that have no table to
+	   take the layout from are written by writeTo() instead; returns false then.
+	 */
+	public boolean writePositionalTo(JsonGenerator g) throws IOException {
+		materialize();
+
+		if ( tableDef == null ) {
+			writeTo(g);
+			return false;
+		}
+
+		tableDef.getJsonWriter().writePositionalRow(g, rowType, timestamp, xid, txCommit, tableDef.getSchemaID(), data, oldData);
+		return true;
+	}
+
+	/* the table the row's data is laid out by, or null (see setTableDef) */
+	public Table getTableDef() {
+		materialize();
+		return tableDef;
 	}
 
-	private String jsonFromStream() {
+	/*
+	   the generator writes UTF-8 into a per-thread buffer that's reused from
+	   row to row; these take the row out of it and reset it.
+	 */
+	private String jsonFromStream() throws IOException {
 		ByteArrayOutputStream b = byteArrayThreadLocal.get();
-		String s = b.toString();
+		String s = b.toString("UTF-8");
 		b.reset();
 		return s;
 	}
 
+	private byte[] jsonBytesFromStream() {
+		ByteArrayOutputStream b = byteArrayThreadLocal.get();
+		byte[] bytes = b.toByteArray();
+		b.reset();
+		return bytes;
+	}
+
 	public Object getData(String key) {
+		materialize();
 		return this.data.get(key);
 	}
 
 	public void putData(String key, Object value) {
+		materialize();
+		this.tableDef = null;
 		this.data.put(key,  value);
 	}
 
 	public Object getOldData(String key) {
+		materialize();
 		return this.oldData.get(key);
 	}
 
 	public void putOldData(String key, Object value) {
+		materialize();
+		this.tableDef = null;
 		this.oldData.put(key,  value);
 	}
 
@@ -221,6 +377,7 @@ public class RowMap implements Serializable {
 	}
 
 	public boolean hasData(String name) {
+		materialize();
 		return this.data.containsKey(name);
 	}
 }
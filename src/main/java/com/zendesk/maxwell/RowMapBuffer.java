@@ -1,18 +1,38 @@
 package com.zendesk.maxwell;
 
+import com.zendesk.maxwell.util.BufferMemoryManager;
 import com.zendesk.maxwell.util.ListWithDiskBuffer;
+import com.zendesk.maxwell.util.SpillExecutor;
+import com.zendesk.maxwell.util.SpillSegmentPool;
 
 import java.io.IOException;
 
 public class RowMapBuffer extends ListWithDiskBuffer<RowMap> {
 	private Long xid;
 
+	// what a transaction may hold in memory before it starts spilling to disk
+	public static final long DEFAULT_MAX_IN_MEMORY_BYTES = 32 * 1024 * 1024;
+
 	public RowMapBuffer(long maxInMemoryElements) throws IOException {
-		super(maxInMemoryElements);
+		super(maxInMemoryElements, new RowMapCodec());
+	}
+
+	public RowMapBuffer(long maxInMemoryElements, long maxInMemoryBytes) throws IOException {
+		super(maxInMemoryElements, maxInMemoryBytes, new RowMapCodec(), SpillSegmentPool.DEFAULT);
+	}
+
+	/*
+	   a buffer spilling into `pool` on `executor`'s thread, that also counts
+	   against `manager`'s budget, reported under `name`
+	 */
+	public RowMapBuffer(String name, long maxInMemoryBytes, SpillSegmentPool pool, SpillExecutor executor,
+						BufferMemoryManager manager) throws IOException {
+		super(name, Long.MAX_VALUE, maxInMemoryBytes, new RowMapCodec(), pool, executor, manager);
 	}
 
-	public RowMap removeFirst() throws IOException, ClassNotFoundException {
-		RowMap r = super.removeFirst(RowMap.class);
+	@Override
+	public RowMap removeFirst() throws IOException {
+		RowMap r = super.removeFirst();
 		r.setXid(this.xid);
 		return r;
 	}
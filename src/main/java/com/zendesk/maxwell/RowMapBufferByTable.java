@@ -1,56 +1,105 @@
 package com.zendesk.maxwell;
 
+import com.zendesk.maxwell.util.SpillLog;
+import com.zendesk.maxwell.util.SpillSegmentPool;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 
-public class RowMapBufferByTable {
+/*
+   the rows skipped for tables being (or waiting to be) bootstrapped, kept
+   until each table's bootstrap is done and its rows are replayed.
+
+   Every table's rows go into one shared SpillLog, and an index of each
+   table's records -- their offsets into the log -- is kept in memory, so a
+   table's replay seeks from record to record.  A segment of the log goes
+   back to the pool once every table with rows in it has replayed them, and
+   a table's index is dropped once its last row has been replayed.
 
-	private final long MAX_TX_ELEMENTS = 10000;
+   Each table has its own RowMapCodec for each direction, since a codec's
+   shared strings only make sense read back in the order they were written.
+   Thread-safe: rows are skipped on the replication thread and may be
+   replayed from the bootstrap thread.
+ */
+public class RowMapBufferByTable {
+	private static class TableRows {
+		final RowMapCodec writeCodec = new RowMapCodec();
+		final RowMapCodec readCodec = new RowMapCodec();
+		// [start, end) of each record in the log; `next` is the first not yet replayed
+		long[] offsets = new long[32];
+		int count = 0;
+		int next = 0;
 
-	private class Buffer extends RowMapBuffer {
-		public Buffer() throws IOException {
-			super(MAX_TX_ELEMENTS);
+		void add(long start, long end) {
+			if ( count * 2 == offsets.length )
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			offsets[count * 2] = start;
+			offsets[count * 2 + 1] = end;
+			count++;
 		}
 	}
 
-	private HashMap<String, Buffer> buffers = new LinkedHashMap<>();
+	private final SpillLog log;
+	private final DataOutputStream os;
+	private final DataInputStream is;
+	private final HashMap<String, TableRows> tables = new HashMap<>();
 
-	public void add(RowMap row) throws IOException {
-		getBuffer(row).add(row);
+	public RowMapBufferByTable() {
+		this(SpillSegmentPool.DEFAULT);
 	}
 
-	public RowMap removeFirst(String databaseName, String tableName) throws IOException, ClassNotFoundException {
-		return getBuffer(databaseName, tableName).removeFirst();
+	public RowMapBufferByTable(SpillSegmentPool pool) {
+		this.log = new SpillLog(pool);
+		this.os = new DataOutputStream(log.getOutputStream());
+		this.is = new DataInputStream(log.getInputStream());
 	}
 
-	public Long size(String databaseName, String tableName) throws IOException {
-		return getBuffer(databaseName, tableName).size();
-	}
+	public synchronized void add(RowMap row) throws IOException {
+		String key = getKey(row.getDatabase(), row.getTable());
+		TableRows rows = tables.get(key);
+		if ( rows == null ) {
+			rows = new TableRows();
+			tables.put(key, rows);
+		}
 
-	public void flushToDisk(String databaseName, String tableName) throws IOException {
-		getBuffer(databaseName, tableName).flushToDisk();
-	}
+		long start = log.getEnd();
+		rows.writeCodec.write(os, row);
+		long end = log.getEnd();
 
-	private Buffer getBuffer(RowMap row) throws IOException {
-		return getBuffer(getKey(row));
+		log.retain(start, end);
+		rows.add(start, end);
 	}
 
-	private Buffer getBuffer(String databaseName, String tableName) throws IOException {
-		return getBuffer(getKey(databaseName, tableName));
+	public synchronized RowMap removeFirst(String databaseName, String tableName) throws IOException {
+		String key = getKey(databaseName, tableName);
+		TableRows rows = tables.get(key);
+		if ( rows == null || rows.next == rows.count )
+			throw new IOException("no skipped rows left for " + databaseName + "." + tableName);
+
+		long start = rows.offsets[rows.next * 2];
+		long end = rows.offsets[rows.next * 2 + 1];
+		rows.next++;
+
+		log.seek(start);
+		RowMap row = rows.readCodec.read(is);
+
+		if ( rows.next == rows.count )
+			tables.remove(key);
+		log.release(start, end);
+		return row;
 	}
 
-	private Buffer getBuffer(String key) throws IOException {
-		Buffer buffer = buffers.get(key);
-		if (buffer == null) {
-			buffer = new Buffer();
-			buffers.put(key, buffer);
-		}
-		return buffer;
+	public synchronized Long size(String databaseName, String tableName) {
+		TableRows rows = tables.get(getKey(databaseName, tableName));
+		return rows == null ? 0L : (long) (rows.count - rows.next);
 	}
 
-	private String getKey(RowMap row) {
-		return getKey(row.getDatabase(), row.getTable());
+	/* how many of the log's segments are still held */
+	public synchronized int getSegmentCount() {
+		return log.getSegmentCount();
 	}
 
 	private String getKey(String databaseName, String tableName) {
@@ -0,0 +1,489 @@
+package com.zendesk.maxwell;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import com.zendesk.maxwell.util.RecordCodec;
+
+/*
+   the binary form RowMapBuffer spills rows in.  Each record is its length,
+   then a format version, the row's fields, its binlog position and its data
+   and old data as (column position, value) pairs, each value led by a tag
+   saying what kind it is.  Integers are varints (longs zig-zagged), and a
+   record is put together in an array and handed to the stream in one write,
+   and read back the same way.
+
+   Strings that repeat from row to row -- row types, database, table and
+   column names, binlog file names -- are written out in full the first time
+   and as a number after that, and so is each table's ColumnIndex; reading
+   the records back in order rebuilds the same tables.  Values of a type the
+   codec doesn't know (bootstrap rows can hold anything JDBC hands back) fall
+   back to java serialization.
+
+   One codec per buffer: its tables only make sense for the one file.
+ */
+public class RowMapCodec implements RecordCodec<RowMap> {
+	private static final byte VERSION = 1;
+
+	private static final byte NULL = 0;
+	private static final byte LONG = 1;
+	private static final byte INTEGER = 2;
+	private static final byte BIG_INTEGER = 3;
+	private static final byte BIG_DECIMAL = 4;
+	private static final byte STRING = 5;
+	private static final byte LIST = 6;
+	private static final byte DOUBLE = 7;
+	private static final byte FLOAT = 8;
+	private static final byte BOOLEAN = 9;
+	private static final byte SERIALIZED = 10;
+
+	private final HashMap<String, Integer> writtenSymbols = new HashMap<>();
+	private final ArrayList<String> readSymbols = new ArrayList<>();
+
+	private final IdentityHashMap<ColumnIndex, Integer> writtenIndexes = new IdentityHashMap<>();
+	private final ArrayList<ColumnIndex> readIndexes = new ArrayList<>();
+
+	// the record being written, and the one being read; a buffer can do both at once
+	private byte[] out = new byte[1024];
+	private int outPos;
+	private byte[] in = new byte[1024];
+	private int inPos;
+	private int inLimit;
+
+	@Override
+	public long estimateSize(RowMap r) {
+		return r.getApproximateSize();
+	}
+
+	@Override
+	public void write(DataOutputStream stream, RowMap r) throws IOException {
+		RowValues data = r.getDataValues();
+		RowValues oldData = r.getOldDataValues();
+
+		outPos = 0;
+		writeByte(VERSION);
+
+		writeSymbol(r.getRowType());
+		writeSymbol(r.getDatabase());
+		writeSymbol(r.getTable());
+		writeNullableLong(r.getTimestamp());
+		writePosition(r.getPosition());
+		writeNullableLong(r.getXid());
+		writeByte(r.isTXCommit() ? 1 : 0);
+
+		List<String> pks = r.getPKColumns();
+		if ( pks == null ) {
+			writeVarInt(0);
+		} else {
+			writeVarInt(pks.size() + 1);
+			for ( String pk : pks )
+				writeSymbol(pk);
+		}
+
+		writeIndex(data.getIndex());
+		writeValues(data);
+		writeValues(oldData);
+
+		int length = outPos;
+		stream.writeInt(length);
+		stream.write(out, 0, length);
+	}
+
+	@Override
+	public RowMap read(DataInputStream stream) throws IOException {
+		int length = stream.readInt();
+		if ( length > in.length )
+			in = new byte[Math.max(length, in.length * 2)];
+
+		stream.readFully(in, 0, length);
+		inPos = 0;
+		inLimit = length;
+
+		byte version = readByte();
+		if ( version != VERSION )
+			throw new IOException("unknown spilled row format version " + version);
+
+		String type = readSymbol();
+		String database = readSymbol();
+		String table = readSymbol();
+		Long timestamp = readNullableLong();
+		BinlogPosition position = readPosition();
+		Long xid = readNullableLong();
+		boolean txCommit = readByte() != 0;
+
+		List<String> pks = null;
+		int nPK = readVarInt();
+		if ( nPK > 0 ) {
+			pks = new ArrayList<>(nPK - 1);
+			for ( int i = 0; i < nPK - 1; i++ )
+				pks.add(readSymbol());
+		}
+
+		ColumnIndex index = readIndex();
+
+		RowMap r = new RowMap(type, database, table, timestamp, pks, position, index);
+		readValues(r.getDataValues());
+		readValues(r.getOldDataValues());
+
+		r.setXid(xid);
+		if ( txCommit )
+			r.setTXCommit();
+
+		return r;
+	}
+
+	private void writePosition(BinlogPosition position) {
+		if ( position == null ) {
+			writeByte(0);
+			return;
+		}
+
+		writeByte(1);
+		writeSymbol(position.getFile());
+		writeVarLong(position.getOffset());
+	}
+
+	private BinlogPosition readPosition() throws IOException {
+		if ( readByte() == 0 )
+			return null;
+
+		String file = readSymbol();
+		return new BinlogPosition(readVarLong(), file);
+	}
+
+	private void writeIndex(ColumnIndex index) {
+		Integer id = writtenIndexes.get(index);
+		if ( id != null ) {
+			writeVarInt(id + 1);
+			return;
+		}
+
+		writtenIndexes.put(index, writtenIndexes.size());
+		writeVarInt(0);
+		writeVarInt(index.size());
+		for ( int i = 0; i < index.size(); i++ )
+			writeSymbol(index.nameAt(i));
+	}
+
+	private ColumnIndex readIndex() throws IOException {
+		int id = readVarInt();
+		if ( id > 0 )
+			return readIndexes.get(id - 1);
+
+		String[] names = new String[readVarInt()];
+		for ( int i = 0; i < names.length; i++ )
+			names[i] = readSymbol();
+
+		ColumnIndex index = ColumnIndex.forNames(names);
+		readIndexes.add(index);
+		return index;
+	}
+
+	private void writeValues(RowValues values) throws IOException {
+		int size = values.getIndex().size();
+
+		int set = 0;
+		for ( int i = 0; i < size; i++ ) {
+			if ( values.isSetAt(i) )
+				set++;
+		}
+
+		writeVarInt(set);
+		for ( int i = 0; i < size; i++ ) {
+			if ( !values.isSetAt(i) )
+				continue;
+
+			writeVarInt(i);
+			writeValue(values.getAt(i));
+		}
+
+		Map<String, Object> extra = values.getExtra();
+		if ( extra == null ) {
+			writeVarInt(0);
+			return;
+		}
+
+		writeVarInt(extra.size());
+		for ( Map.Entry<String, Object> e : extra.entrySet() ) {
+			writeSymbol(e.getKey());
+			writeValue(e.getValue());
+		}
+	}
+
+	private void readValues(RowValues values) throws IOException {
+		int set = readVarInt();
+		for ( int i = 0; i < set; i++ ) {
+			int pos = readVarInt();
+			values.putAt(pos, readValue());
+		}
+
+		int extra = readVarInt();
+		for ( int i = 0; i < extra; i++ ) {
+			String name = readSymbol();
+			values.put(name, readValue());
+		}
+	}
+
+	private void writeValue(Object value) throws IOException {
+		if ( value == null ) {
+			writeByte(NULL);
+		} else if ( value instanceof Long ) {
+			writeByte(LONG);
+			writeVarLong((Long) value);
+		} else if ( value instanceof String ) {
+			writeByte(STRING);
+			writeString((String) value);
+		} else if ( value instanceof Integer ) {
+			writeByte(INTEGER);
+			writeVarLong((Integer) value);
+		} else if ( value instanceof BigDecimal ) {
+			BigDecimal d = (BigDecimal) value;
+			writeByte(BIG_DECIMAL);
+			writeVarLong(d.scale());
+			writeBytes(d.unscaledValue().toByteArray());
+		} else if ( value instanceof BigInteger ) {
+			writeByte(BIG_INTEGER);
+			writeBytes(((BigInteger) value).toByteArray());
+		} else if ( value instanceof List ) {
+			List<?> list = (List<?>) value;
+			writeByte(LIST);
+			writeVarInt(list.size());
+			for ( Object o : list )
+				writeValue(o);
+		} else if ( value instanceof Double ) {
+			writeByte(DOUBLE);
+			writeFixedLong(Double.doubleToRawLongBits((Double) value));
+		} else if ( value instanceof Float ) {
+			writeByte(FLOAT);
+			writeFixedLong(Float.floatToRawIntBits((Float) value));
+		} else if ( value instanceof Boolean ) {
+			writeByte(BOOLEAN);
+			writeByte((Boolean) value ? 1 : 0);
+		} else {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream os = new ObjectOutputStream(bytes);
+			os.writeObject(value);
+			os.close();
+
+			writeByte(SERIALIZED);
+			writeBytes(bytes.toByteArray());
+		}
+	}
+
+	private Object readValue() throws IOException {
+		byte tag = readByte();
+		switch ( tag ) {
+			case NULL:
+				return null;
+			case LONG:
+				return readVarLong();
+			case STRING:
+				return readString();
+			case INTEGER:
+				return (int) readVarLong();
+			case BIG_DECIMAL:
+				int scale = (int) readVarLong();
+				return new BigDecimal(new BigInteger(readBytes()), scale);
+			case BIG_INTEGER:
+				return new BigInteger(readBytes());
+			case LIST:
+				int n = readVarInt();
+				ArrayList<Object> list = new ArrayList<>(n);
+				for ( int i = 0; i < n; i++ )
+					list.add(readValue());
+				return list;
+			case DOUBLE:
+				return Double.longBitsToDouble(readFixedLong());
+			case FLOAT:
+				return Float.intBitsToFloat((int) readFixedLong());
+			case BOOLEAN:
+				return readByte() != 0;
+			case SERIALIZED:
+				try ( ObjectInputStream is = new ObjectInputStream(new ByteArrayInputStream(readBytes())) ) {
+					return is.readObject();
+				} catch ( ClassNotFoundException e ) {
+					throw new IOException(e);
+				}
+			default:
+				throw new IOException("unknown value tag " + tag + " in spilled row");
+		}
+	}
+
+	/* a string that's likely to repeat: by number once it's been written */
+	private void writeSymbol(String s) {
+		if ( s == null ) {
+			writeVarInt(0);
+			return;
+		}
+
+		Integer id = writtenSymbols.get(s);
+		if ( id != null ) {
+			writeVarInt(id + 2);
+			return;
+		}
+
+		writtenSymbols.put(s, writtenSymbols.size());
+		writeVarInt(1);
+		writeString(s);
+	}
+
+	private String readSymbol() throws IOException {
+		int id = readVarInt();
+		if ( id == 0 )
+			return null;
+		else if ( id > 1 )
+			return readSymbols.get(id - 2);
+
+		String s = readString();
+		readSymbols.add(s);
+		return s;
+	}
+
+	/* length in chars, then the chars; all-ASCII strings (the usual case) go out a byte apiece */
+	private void writeString(String s) {
+		int length = s.length();
+		ensure(5 + length);
+
+		int start = outPos;
+		writeVarInt(length << 1);
+		for ( int i = 0; i < length; i++ ) {
+			char c = s.charAt(i);
+			if ( c >= 0x80 ) {
+				outPos = start;
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeVarInt((bytes.length << 1) | 1);
+				ensure(bytes.length);
+				System.arraycopy(bytes, 0, out, outPos, bytes.length);
+				outPos += bytes.length;
+				return;
+			}
+			out[outPos++] = (byte) c;
+		}
+	}
+
+	private String readString() throws IOException {
+		int header = readVarInt();
+		int length = header >>> 1;
+		check(length);
+
+		String s;
+		if ( (header & 1) == 0 )
+			s = new String(in, inPos, length, StandardCharsets.ISO_8859_1);
+		else
+			s = new String(in, inPos, length, StandardCharsets.UTF_8);
+
+		inPos += length;
+		return s;
+	}
+
+	private void writeBytes(byte[] bytes) {
+		writeVarInt(bytes.length);
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, out, outPos, bytes.length);
+		outPos += bytes.length;
+	}
+
+	private byte[] readBytes() throws IOException {
+		int length = readVarInt();
+		check(length);
+
+		byte[] bytes = Arrays.copyOfRange(in, inPos, inPos + length);
+		inPos += length;
+		return bytes;
+	}
+
+	private void writeNullableLong(Long l) {
+		if ( l == null ) {
+			writeByte(0);
+		} else {
+			writeByte(1);
+			writeVarLong(l);
+		}
+	}
+
+	private Long readNullableLong() throws IOException {
+		if ( readByte() == 0 )
+			return null;
+		return readVarLong();
+	}
+
+	private void ensure(int n) {
+		if ( outPos + n > out.length )
+			out = Arrays.copyOf(out, Math.max(outPos + n, out.length * 2));
+	}
+
+	private void check(int n) throws IOException {
+		if ( n < 0 || inPos + n > inLimit )
+			throw new IOException("truncated spilled row");
+	}
+
+	private void writeByte(int b) {
+		ensure(1);
+		out[outPos++] = (byte) b;
+	}
+
+	private byte readByte() throws IOException {
+		check(1);
+		return in[inPos++];
+	}
+
+	private void writeFixedLong(long v) {
+		ensure(8);
+		for ( int i = 56; i >= 0; i -= 8 )
+			out[outPos++] = (byte) (v >>> i);
+	}
+
+	private long readFixedLong() throws IOException {
+		check(8);
+		long v = 0;
+		for ( int i = 0; i < 8; i++ )
+			v = (v << 8) | (in[inPos++] & 0xff);
+		return v;
+	}
+
+	private void writeVarInt(int v) {
+		ensure(5);
+		while ( (v & ~0x7f) != 0 ) {
+			out[outPos++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out[outPos++] = (byte) v;
+	}
+
+	private int readVarInt() throws IOException {
+		int v = 0;
+		for ( int shift = 0; shift < 32; shift += 7 ) {
+			int b = readByte();
+			v |= (b & 0x7f) << shift;
+			if ( (b & 0x80) == 0 )
+				return v;
+		}
+		throw new IOException("malformed varint in spilled row");
+	}
+
+	/* zig-zagged, so that small negative numbers stay short too */
+	private void writeVarLong(long l) {
+		long v = (l << 1) ^ (l >> 63);
+
+		ensure(10);
+		while ( (v & ~0x7fL) != 0 ) {
+			out[outPos++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out[outPos++] = (byte) v;
+	}
+
+	private long readVarLong() throws IOException {
+		long v = 0;
+		for ( int shift = 0; shift < 64; shift += 7 ) {
+			long b = readByte();
+			v |= (b & 0x7f) << shift;
+			if ( (b & 0x80) == 0 )
+				return (v >>> 1) ^ -(v & 1);
+		}
+		throw new IOException("malformed varint in spilled row");
+	}
+}
@@ -0,0 +1,158 @@
+package com.zendesk.maxwell;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/*
+   one image of a row -- a RowMap's data, or its old data.  Values live in an
+   array indexed by column position, with a bitmap of the positions that have
+   been set; the names come from the table's shared ColumnIndex.  A name the
+   index doesn't have (a row with no table behind it, or a field added by hand)
+   goes into a small map on the side, and is written after the columns.
+
+   Nothing is allocated until the first value is put.
+ */
+class RowValues implements Serializable {
+	private final ColumnIndex index;
+
+	private Object[] values;
+	private long[] present;
+	private LinkedHashMap<String, Object> extra;
+
+	RowValues(ColumnIndex index) {
+		this.index = index;
+	}
+
+	ColumnIndex getIndex() {
+		return index;
+	}
+
+	boolean isSetAt(int pos) {
+		return present != null && (present[pos >>> 6] & (1L << pos)) != 0;
+	}
+
+	Object getAt(int pos) {
+		return values == null ? null : values[pos];
+	}
+
+	void putAt(int pos, Object value) {
+		if ( values == null ) {
+			values = new Object[index.size()];
+			present = new long[(index.size() + 63) >>> 6];
+		}
+
+		values[pos] = value;
+		present[pos >>> 6] |= 1L << pos;
+	}
+
+	Object get(String name) {
+		int pos = index.indexOf(name);
+		if ( pos >= 0 )
+			return getAt(pos);
+
+		return extra == null ? null : extra.get(name);
+	}
+
+	boolean containsKey(String name) {
+		int pos = index.indexOf(name);
+		if ( pos >= 0 )
+			return isSetAt(pos);
+
+		return extra != null && extra.containsKey(name);
+	}
+
+	void put(String name, Object value) {
+		int pos = index.indexOf(name);
+		if ( pos >= 0 ) {
+			putAt(pos, value);
+			return;
+		}
+
+		if ( extra == null )
+			extra = new LinkedHashMap<>();
+		extra.put(name, value);
+	}
+
+	/* the values put under names outside the index, or null */
+	Map<String, Object> getExtra() {
+		return extra;
+	}
+
+	boolean hasExtra() {
+		return extra != null;
+	}
+
+	boolean isEmpty() {
+		return values == null && extra == null;
+	}
+
+	/*
+	   a rough count of the heap the values take up: the arrays, plus each
+	   value by its kind (strings and lists by their length).
+	 */
+	long approximateSize() {
+		long size = 16;
+		if ( values != null ) {
+			size += 16 + 4 * values.length + 16 + 8 * present.length;
+			for ( Object v : values )
+				size += approximateSize(v);
+		}
+
+		if ( extra != null ) {
+			size += 64;
+			for ( Map.Entry<String, Object> e : extra.entrySet() )
+				size += 32 + approximateSize(e.getKey()) + approximateSize(e.getValue());
+		}
+		return size;
+	}
+
+	static long approximateSize(Object v) {
+		if ( v == null )
+			return 0;
+		else if ( v instanceof String )
+			return 40 + 2 * ((String) v).length();
+		else if ( v instanceof byte[] )
+			return 16 + ((byte[]) v).length;
+		else if ( v instanceof List ) {
+			long size = 40;
+			for ( Object o : (List) v )
+				size += 4 + approximateSize(o);
+			return size;
+		} else if ( v instanceof BigDecimal || v instanceof BigInteger )
+			return 64;
+		else
+			return 24;
+	}
+
+	/* writes the values as an object, columns in table order, then any extras */
+	void write(JsonGenerator g, boolean includeNullField) throws IOException {
+		g.writeStartObject();
+
+		for ( int i = 0; i < index.size(); i++ ) {
+			if ( !isSetAt(i) || (values[i] == null && !includeNullField) )
+				continue;
+
+			g.writeFieldName(index.nameAt(i));
+			RowJsonWriter.writeObject(g, values[i]);
+		}
+
+		if ( extra != null ) {
+			for ( Map.Entry<String, Object> e : extra.entrySet() ) {
+				if ( e.getValue() == null && !includeNullField )
+					continue;
+
+				g.writeFieldName(e.getKey());
+				RowJsonWriter.writeObject(g, e.getValue());
+			}
+		}
+
+		g.writeEndObject();
+	}
+}
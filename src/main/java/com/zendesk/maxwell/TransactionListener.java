@@ -0,0 +1,15 @@
+package com.zendesk.maxwell;
+
+/*
+   receives a transaction from MaxwellReplicator as it's read off the binlog:
+   a call to begin(), the (filtered) row events in binlog order, and then a
+   single call to commit() once the XID_EVENT or COMMIT is seen.
+
+   rowsEvent() may return true to ask the reader to pause after that event and
+   hand control back to its caller; the transaction is resumed later.
+ */
+interface TransactionListener {
+	void begin() throws Exception;
+	boolean rowsEvent(MaxwellAbstractRowsEvent event) throws Exception;
+	void commit(Long xid) throws Exception;
+}
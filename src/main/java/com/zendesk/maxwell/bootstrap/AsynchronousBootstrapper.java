@@ -26,7 +26,7 @@ public class AsynchronousBootstrapper extends AbstractBootstrapper {
 
 	public AsynchronousBootstrapper( MaxwellContext context ) throws IOException {
 		super(context);
-		skippedRows = new RowMapBufferByTable();
+		skippedRows = new RowMapBufferByTable(context.getSpillSegmentPool());
 	}
 
 	protected SynchronousBootstrapper getSynchronousBootstrapper( ) {
@@ -125,7 +125,6 @@ public class AsynchronousBootstrapper extends AbstractBootstrapper {
 	private void replaySkippedRows(String databaseName, String tableName, AbstractProducer producer, RowMap bootstrapCompleteRow) throws Exception {
 		BinlogPosition bootstrapStartBinlogPosition = getBootstrapStartBinlogPosition(bootstrapCompleteRow);
 		LOGGER.info("async bootstrapping: replaying " + skippedRows.size(databaseName, tableName) + " skipped rows...");
-		skippedRows.flushToDisk(databaseName, tableName);
 		while ( skippedRows.size(databaseName, tableName) > 0 ) {
 			RowMap row = skippedRows.removeFirst(databaseName, tableName);
 			if ( bootstrapStartBinlogPosition == null || row.getPosition().newerThan(bootstrapStartBinlogPosition) )
@@ -59,7 +59,8 @@ public class SynchronousBootstrapper extends AbstractBootstrapper {
 						tableName,
 						System.currentTimeMillis() / 1000,
 						table.getPKList(),
-						position);
+						position,
+						table.getColumnIndex());
 				setRowValues(row, resultSet, table);
 
 				if ( LOGGER.isDebugEnabled() )
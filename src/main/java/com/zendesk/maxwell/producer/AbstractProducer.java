@@ -3,13 +3,33 @@ package com.zendesk.maxwell.producer;
 import com.zendesk.maxwell.MaxwellAbstractRowsEvent;
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.producer.encoders.RowEncoder;
+
+import java.util.List;
 
 public abstract class AbstractProducer {
 	protected final MaxwellContext context;
+	protected final RowEncoder encoder;
 
 	public AbstractProducer(MaxwellContext context) {
 		this.context = context;
+		this.encoder = context.getEncoder();
 	}
 
 	abstract public void push(RowMap r) throws Exception;
+
+	/*
+	   a run of rows in binlog order: all or part of a transaction, or several
+	   transactions.  Producers that can share work across rows (flushing,
+	   storing the position, network round trips) should override this; the
+	   position may only move forward to a row that's marked as a commit.
+	 */
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		for ( RowMap r : rows )
+			push(r);
+	}
+
+	/* called once at shutdown: write out anything still buffered, and store the position it gets to */
+	public void close() throws Exception {
+	}
 }
@@ -0,0 +1,221 @@
+package com.zendesk.maxwell.producer;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.zendesk.maxwell.MaxwellConfig;
+import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.RowMap;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+   encodes rows and throws them away, recording latency distributions
+   along the way, overall and for each table:
+
+     lag_ms        from the binlog event's timestamp to the row being pushed
+                   (binlog timestamps only have whole seconds)
+     serialize_ns  encoding the row
+     gap_ns        since the previous row (of that table)
+
+   Every `benchmark_report_interval` seconds it writes a line of JSON with
+   percentiles of what was recorded in that interval to `benchmark_output`
+   (stdout by default), and at shutdown one more with the totals, for
+   comparing runs.
+ */
+public class BenchmarkProducer extends AbstractProducer {
+	static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkProducer.class);
+
+	private static final JsonFactory jsonFactory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+	private static final int SIGNIFICANT_DIGITS = 3;
+
+	private static class Metric {
+		final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+		final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+		Histogram interval;
+
+		// on the reporting thread
+		Histogram takeInterval() {
+			interval = recorder.getIntervalHistogram(interval);
+			total.add(interval);
+			return interval;
+		}
+	}
+
+	private static class Stats {
+		final Metric lag = new Metric();
+		final Metric serialize = new Metric();
+		final Metric gap = new Metric();
+		long lastRowAt; // on the producer thread
+
+		void record(RowMap r, long now, long serializeNanos) {
+			if ( r.getTimestamp() != null )
+				lag.recorder.recordValue(Math.max(0, System.currentTimeMillis() - r.getTimestamp() * 1000));
+			serialize.recorder.recordValue(serializeNanos);
+			if ( lastRowAt != 0 )
+				gap.recorder.recordValue(Math.max(0, now - lastRowAt));
+			lastRowAt = now;
+		}
+	}
+
+	private final Stats all = new Stats();
+	private final ConcurrentHashMap<String, Stats> tables = new ConcurrentHashMap<>();
+	private final OutputStream out;
+	private final ScheduledExecutorService reporter;
+	private long lastReportAt = System.currentTimeMillis();
+	private final long startedAt = lastReportAt;
+	private volatile long bytes;
+	private long bytesAtLastReport;
+
+	public BenchmarkProducer(MaxwellContext context) throws IOException {
+		this(context, openOutput(context.getConfig()));
+	}
+
+	BenchmarkProducer(MaxwellContext context, OutputStream out) {
+		super(context);
+		MaxwellConfig config = context.getConfig();
+		this.out = out;
+
+		if ( config.benchmarkReportInterval > 0 ) {
+			this.reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "maxwell-benchmark-report");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+
+			this.reporter.scheduleAtFixedRate(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						report(false);
+					} catch ( Exception e ) {
+						LOGGER.error("error writing benchmark report", e);
+					}
+				}
+			}, config.benchmarkReportInterval, config.benchmarkReportInterval, TimeUnit.SECONDS);
+		} else {
+			this.reporter = null;
+		}
+	}
+
+	private static OutputStream openOutput(MaxwellConfig config) throws IOException {
+		if ( config.benchmarkOutput == null )
+			return System.out;
+		return new FileOutputStream(config.benchmarkOutput, true);
+	}
+
+	@Override
+	public void push(RowMap r) throws Exception {
+		long start = System.nanoTime();
+		byte[] encoded = this.encoder.encode(r);
+		long now = System.nanoTime();
+		bytes += encoded.length;
+
+		all.record(r, now, now - start);
+		tableStats(r.getDatabase() + "." + r.getTable()).record(r, now, now - start);
+
+		this.context.setPosition(r);
+	}
+
+	private Stats tableStats(String table) {
+		Stats stats = tables.get(table);
+		if ( stats == null ) {
+			stats = new Stats();
+			Stats existing = tables.putIfAbsent(table, stats);
+			if ( existing != null )
+				stats = existing;
+		}
+		return stats;
+	}
+
+	/*
+	   {"report":"interval"|"total","time":..,"elapsed_ms":..,"bytes":..,
+	    "all":{STATS},"tables":{"db.table":{STATS},...}}, where STATS is
+	   {"rows":..,"lag_ms":{DIST},"serialize_ns":{DIST},"gap_ns":{DIST}}
+	   and DIST {"count":..,"mean":..,"p50":..,..,"p99.99":..,"max":..}.
+	   Like everything else in the report, elapsed_ms and bytes (encoded) cover
+	   the interval since the last report, or the whole run for the total.
+	 */
+	synchronized void report(boolean total) throws IOException {
+		long now = System.currentTimeMillis();
+		long encoded = bytes;
+
+		JsonGenerator g = jsonFactory.createGenerator(out);
+		g.writeStartObject();
+		g.writeStringField("report", total ? "total" : "interval");
+		g.writeNumberField("time", now);
+		g.writeNumberField("elapsed_ms", now - (total ? startedAt : lastReportAt));
+		g.writeNumberField("bytes", total ? encoded : encoded - bytesAtLastReport);
+
+		g.writeFieldName("all");
+		writeStats(g, all, total);
+
+		g.writeObjectFieldStart("tables");
+		for ( Map.Entry<String, Stats> e : new TreeMap<>(tables).entrySet() ) {
+			g.writeFieldName(e.getKey());
+			writeStats(g, e.getValue(), total);
+		}
+		g.writeEndObject();
+
+		g.writeEndObject();
+		g.close();
+		out.write('\n');
+		out.flush();
+
+		lastReportAt = now;
+		bytesAtLastReport = encoded;
+	}
+
+	private void writeStats(JsonGenerator g, Stats stats, boolean total) throws IOException {
+		// always take the interval, so it's counted in the totals
+		Histogram lag = stats.lag.takeInterval();
+		Histogram serialize = stats.serialize.takeInterval();
+		Histogram gap = stats.gap.takeInterval();
+
+		if ( total ) {
+			lag = stats.lag.total;
+			serialize = stats.serialize.total;
+			gap = stats.gap.total;
+		}
+
+		g.writeStartObject();
+		g.writeNumberField("rows", serialize.getTotalCount());
+		writeDistribution(g, "lag_ms", lag);
+		writeDistribution(g, "serialize_ns", serialize);
+		writeDistribution(g, "gap_ns", gap);
+		g.writeEndObject();
+	}
+
+	private void writeDistribution(JsonGenerator g, String name, Histogram h) throws IOException {
+		g.writeObjectFieldStart(name);
+		g.writeNumberField("count", h.getTotalCount());
+		g.writeNumberField("mean", h.getTotalCount() == 0 ? 0 : h.getMean());
+		for ( double p : PERCENTILES )
+			g.writeNumberField("p" + (p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p)), h.getValueAtPercentile(p));
+		g.writeNumberField("max", h.getMaxValue());
+		g.writeEndObject();
+	}
+
+	@Override
+	public void close() throws Exception {
+		if ( reporter != null )
+			reporter.shutdown();
+		report(true);
+	}
+}
@@ -1,29 +1,168 @@
 package com.zendesk.maxwell.producer;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import com.zendesk.maxwell.BinlogPosition;
 import com.zendesk.maxwell.MaxwellAbstractRowsEvent;
+import com.zendesk.maxwell.MaxwellConfig;
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.util.BufferedChannelWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/*
+   writes rows to a file, group-committing them: rows collect in a buffer
+   of `output_file_flush_bytes`, which is written out once it's full or
+   `output_file_flush_ms` after the last write, and (with `output_file_fsync`)
+   forced to disk.  The stored position only moves to a commit row once the
+   write holding it is done, so it never gets ahead of what's in the file.
+
+   Once the file has reached `output_file_rotate_bytes`, or been open for
+   `output_file_rotate_seconds`, it's renamed to FILE.<time it was opened>
+   at the next transaction boundary and a new FILE started, so tailers can
+   work on closed files.
+ */
 public class FileProducer extends AbstractProducer {
+	static final Logger LOGGER = LoggerFactory.getLogger(FileProducer.class);
+
 	private final File file;
-	private final FileWriter fileWriter;
+	private final BufferedChannelWriter writer;
+	private final int flushBytes;
+	private final boolean fsync;
+	private final long rotateBytes;
+	private final long rotateMillis;
+	private final ScheduledExecutorService flusher;
+
+	// the last commit row written and not yet flushed, and whether the last row written ended a transaction
+	private BinlogPosition pendingPosition;
+	private boolean atCommit = true;
+	private long openedAt;
+	private Exception failure;
 
 	public FileProducer(MaxwellContext context, String filename) throws IOException {
 		super(context);
+		MaxwellConfig config = context.getConfig();
+
 		this.file = new File(filename);
-		this.fileWriter = new FileWriter(this.file, true);
+		this.flushBytes = config.outputFileFlushBytes;
+		this.fsync = config.outputFileFsync;
+		this.rotateBytes = config.outputFileRotateBytes;
+		this.rotateMillis = config.outputFileRotateSeconds * 1000L;
+		this.writer = new BufferedChannelWriter(this.file, this.flushBytes);
+		this.openedAt = System.currentTimeMillis();
+
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "maxwell-file-flush");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		this.flusher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					flushAndRotate();
+				} catch ( Exception e ) {
+					LOGGER.error("error flushing " + file, e);
+					fail(e);
+				}
+			}
+		}, config.outputFileFlushMillis, config.outputFileFlushMillis, TimeUnit.MILLISECONDS);
 	}
 
 	@Override
 	public void push(RowMap r) throws Exception {
-		this.fileWriter.write(r.toJSON());
-		this.fileWriter.write('\n');
-		this.fileWriter.flush();
+		synchronized ( this ) {
+			checkFailure();
+			write(r);
+
+			if ( writer.getBuffered() >= flushBytes || (atCommit && rotationDue()) )
+				flushAndRotate();
+		}
+	}
+
+	@Override
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		synchronized ( this ) {
+			checkFailure();
+			for ( RowMap r : rows )
+				write(r);
 
-		context.setPosition(r);
+			if ( writer.getBuffered() >= flushBytes || (atCommit && rotationDue()) )
+				flushAndRotate();
+		}
+	}
+
+	private void write(RowMap r) throws IOException {
+		this.encoder.writeDelimited(this.writer, r);
+
+		atCommit = r.isTXCommit();
+		if ( atCommit )
+			pendingPosition = r.getPosition();
+	}
+
+	private boolean rotationDue() {
+		if ( rotateBytes > 0 && writer.getFileSize() >= rotateBytes )
+			return true;
+		return rotateMillis > 0 && writer.getFileSize() > 0 && System.currentTimeMillis() - openedAt >= rotateMillis;
+	}
+
+	private synchronized void flushAndRotate() throws Exception {
+		if ( atCommit && rotationDue() ) {
+			File closed = closedFile();
+			writer.rotate(closed, fsync);
+			openedAt = System.currentTimeMillis();
+			LOGGER.info("rotated " + file + " to " + closed);
+		} else if ( writer.getBuffered() > 0 ) {
+			if ( fsync )
+				writer.sync();
+			else
+				writer.flush();
+		}
+
+		if ( pendingPosition != null ) {
+			context.setPosition(pendingPosition);
+			pendingPosition = null;
+		}
+	}
+
+	/* FILE.<yyyyMMdd-HHmmss it was opened>, with a -N on the end if that's taken */
+	private File closedFile() {
+		String name = file.getPath() + "." + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(openedAt));
+		File closed = new File(name);
+		for ( int n = 1; closed.exists(); n++ )
+			closed = new File(name + "-" + n);
+		return closed;
+	}
+
+	private synchronized void fail(Exception e) {
+		if ( failure == null )
+			failure = e;
+	}
+
+	private void checkFailure() throws Exception {
+		if ( failure != null )
+			throw new IOException("writing " + file + " failed", failure);
+	}
+
+	@Override
+	public void close() throws Exception {
+		flusher.shutdown();
+		synchronized ( this ) {
+			flushAndRotate();
+			writer.close();
+		}
 	}
 }
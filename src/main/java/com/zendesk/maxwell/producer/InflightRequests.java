@@ -0,0 +1,93 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.BinlogPosition;
+
+import java.io.IOException;
+
+/*
+   the rows a producer has sent but not yet heard back about, as a ring of
+   sequence numbers in the order they were sent.  Acks can come back in any
+   order; the watermark only moves past a row once it and every row sent
+   before it have been acked, and the position worth storing is that of the
+   last commit row it moved past -- so a stored position never skips a row
+   that might not have made it.
+
+   At most `capacity` rows are in flight: add() waits for acks once that
+   many are.  A failed send stops the watermark for good, and makes add()
+   throw from then on.
+ */
+public class InflightRequests {
+	private final int capacity;
+	// by sequence number mod capacity: the row's position if it's a commit row, and whether it's been acked
+	private final BinlogPosition[] commits;
+	private final boolean[] acked;
+
+	private long head = 0; // oldest row not yet acked
+	private long tail = 0; // sequence number of the next row sent
+	private Exception failure;
+
+	public InflightRequests(int capacity) {
+		if ( capacity < 1 )
+			throw new IllegalArgumentException("InflightRequests capacity must be positive");
+
+		this.capacity = capacity;
+		this.commits = new BinlogPosition[capacity];
+		this.acked = new boolean[capacity];
+	}
+
+	/*
+	   takes the next sequence number for a row about to be sent, waiting for
+	   room in the window.  `commitPosition` is null for rows that don't end
+	   a transaction.
+	 */
+	public synchronized long add(BinlogPosition commitPosition) throws IOException, InterruptedException {
+		while ( tail - head >= capacity && failure == null )
+			wait();
+
+		if ( failure != null )
+			throw new IOException("halting: an earlier send failed", failure);
+
+		int i = (int) (tail % capacity);
+		commits[i] = commitPosition;
+		acked[i] = false;
+		return tail++;
+	}
+
+	/* returns the position of the last commit row the watermark moved past, or null if it didn't pass one */
+	public synchronized BinlogPosition ack(long sequence) {
+		acked[(int) (sequence % capacity)] = true;
+		if ( failure != null )
+			return null;
+
+		BinlogPosition position = null;
+		long before = head;
+		while ( head < tail ) {
+			int i = (int) (head % capacity);
+			if ( !acked[i] )
+				break;
+
+			if ( commits[i] != null )
+				position = commits[i];
+			commits[i] = null;
+			head++;
+		}
+
+		if ( head != before )
+			notifyAll();
+		return position;
+	}
+
+	public synchronized void fail(long sequence, Exception e) {
+		if ( failure == null )
+			failure = e;
+		notifyAll();
+	}
+
+	public synchronized Exception getFailure() {
+		return failure;
+	}
+
+	public synchronized long getInflight() {
+		return tail - head;
+	}
+}
@@ -1,69 +1,113 @@
 package com.zendesk.maxwell.producer;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.util.Iterator;
 import java.util.Properties;
 
+import com.codahale.metrics.Gauge;
+import com.zendesk.maxwell.BinlogPosition;
 import com.zendesk.maxwell.MaxwellAbstractRowsEvent;
 import com.zendesk.maxwell.MaxwellContext;
 
 import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.producer.encoders.RowEncoder;
 import com.zendesk.maxwell.producer.partitioners.*;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
-import org.apache.kafka.common.serialization.StringSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 class KafkaCallback implements Callback {
 	static final Logger LOGGER = LoggerFactory.getLogger(MaxwellKafkaProducer.class);
+
 	private final MaxwellContext context;
+	private final InflightRequests inflight;
+	private final long sequence;
 	private final RowMap rowMap;
-	private final String json;
-	private final String key;
+	private final ProducerRecord<byte[], byte[]> record;
 
-	public KafkaCallback(RowMap r, MaxwellContext c, String key, String json) {
+	public KafkaCallback(RowMap r, MaxwellContext c, InflightRequests inflight, long sequence, ProducerRecord<byte[], byte[]> record) {
 		this.context = c;
+		this.inflight = inflight;
+		this.sequence = sequence;
 		this.rowMap= r;
-		this.key = key;
-		this.json = json;
+		this.record = record;
 	}
 
 	@Override
 	public void onCompletion(RecordMetadata md, Exception e) {
 		if ( e != null ) {
-			e.printStackTrace();
+			// kafka has already retried as many times as `retries` allows.  The
+			// stored position stays behind this row, and the next push halts replication.
+			LOGGER.error("kafka send failed for " + rowMap.getPosition() + ", halting", e);
+			failed(e);
 		} else {
 			try {
 				if ( LOGGER.isDebugEnabled()) {
+					String key = record.key() == null ? null : new String(record.key(), StandardCharsets.UTF_8);
 					LOGGER.debug("->  key:" + key + ", partition:" +md.partition() + ", offset:" + md.offset());
-					LOGGER.debug("   " + this.json);
+					LOGGER.debug("   " + new String(record.value(), StandardCharsets.UTF_8));
 					LOGGER.debug("   " + rowMap.getPosition());
 					LOGGER.debug("");
 				}
-				if ( rowMap.isTXCommit() ) {
-					context.setPosition(rowMap.getPosition());
+
+				BinlogPosition position = inflight.ack(sequence);
+				if ( position != null ) {
+					context.setPosition(position);
 				}
 			} catch (SQLException e1) {
-				e1.printStackTrace();
+				LOGGER.error("couldn't store position " + rowMap.getPosition() + ", halting", e1);
+				failed(e1);
 			}
 		}
 	}
+
+	protected RowMap rowMap() {
+		return rowMap;
+	}
+
+	protected void failed(Exception e) {
+		inflight.fail(sequence, e);
+	}
+}
+
+/* a table layout the encoder handed out: if it doesn't arrive, the encoder has to hand it out again */
+class KafkaLayoutCallback extends KafkaCallback {
+	private final RowEncoder encoder;
+	private final int partition;
+
+	public KafkaLayoutCallback(RowMap r, MaxwellContext c, InflightRequests inflight, long sequence,
+							   ProducerRecord<byte[], byte[]> record, RowEncoder encoder, int partition) {
+		super(r, c, inflight, sequence, record);
+		this.encoder = encoder;
+		this.partition = partition;
+	}
+
+	@Override
+	protected void failed(Exception e) {
+		encoder.forgetLayout(rowMap(), partition);
+		super.failed(e);
+	}
 }
 
 public class MaxwellKafkaProducer extends AbstractProducer {
 	static final Object KAFKA_DEFAULTS[] = {
 		"compression.type", "gzip",
-		"metadata.fetch.timeout.ms", 5000
+		"metadata.fetch.timeout.ms", 5000,
+		// retried sends must not overtake later ones, or the watermark could pass an undelivered row
+		"retries", 3,
+		"max.in.flight.requests.per.connection", 1
 	};
-	private final KafkaProducer<String, String> kafka;
+	private final KafkaProducer<byte[], byte[]> kafka;
 	private String topic;
 	private final int numPartitions;
 	private final MaxwellKafkaPartitioner partitioner;
+	private final InflightRequests inflight;
 
 	public MaxwellKafkaProducer(MaxwellContext context, Properties kafkaProperties, String kafkaTopic) {
 		super(context);
@@ -74,22 +118,44 @@ public class MaxwellKafkaProducer extends AbstractProducer {
 		}
 
 		this.setDefaults(kafkaProperties);
-		this.kafka = new KafkaProducer<>(kafkaProperties, new StringSerializer(), new StringSerializer());
+		this.kafka = new KafkaProducer<>(kafkaProperties, new ByteArraySerializer(), new ByteArraySerializer());
 		this.numPartitions = kafka.partitionsFor(topic).size(); //returns 1 for new topics
 
 		String hash = context.getConfig().kafkaPartitionHash;
 		String partitionKey = context.getConfig().kafkaPartitionKey;
 		this.partitioner = new MaxwellKafkaPartitioner(hash, partitionKey);
+
+		this.inflight = new InflightRequests(context.getConfig().kafkaMaxInflight);
+		context.getMetricRegistry().register("kafka.inflight", new Gauge<Long>() {
+			@Override
+			public Long getValue() {
+				return inflight.getInflight();
+			}
+		});
 	}
 
 	@Override
 	public void push(RowMap r) throws Exception {
-		String key = r.pkToJson();
-		String value = r.toJSON();
-		ProducerRecord<String, String> record =
-				new ProducerRecord<>(topic, this.partitioner.kafkaPartition(r, this.numPartitions), r.pkToJson(), r.toJSON());
+		int partition = this.partitioner.kafkaPartition(r, this.numPartitions);
+
+		// a layout the row refers to goes to the row's partition first, so it arrives in order.
+		// It's tracked like a row, so the position can't move past rows that need it until it's delivered.
+		byte[] layout = this.encoder.encodeLayout(r, partition);
+		if ( layout != null ) {
+			ProducerRecord<byte[], byte[]> layoutRecord = new ProducerRecord<>(topic, partition, null, layout);
+			long layoutSequence = inflight.add(null);
+			kafka.send(layoutRecord, new KafkaLayoutCallback(r, this.context, inflight, layoutSequence, layoutRecord, this.encoder, partition));
+		}
+
+		// serialized once, in the configured format; the record and the callback share the bytes
+		byte[] key = this.encoder.encodeKey(r);
+		byte[] value = this.encoder.encode(r);
+		ProducerRecord<byte[], byte[]> record =
+				new ProducerRecord<>(topic, partition, key, value);
 
-		kafka.send(record, new KafkaCallback(r, this.context, key, value));
+		// waits for room in the window, and throws once a send has failed for good
+		long sequence = inflight.add(r.isTXCommit() ? r.getPosition() : null);
+		kafka.send(record, new KafkaCallback(r, this.context, inflight, sequence, record));
 	}
 
 	private void setDefaults(Properties p) {
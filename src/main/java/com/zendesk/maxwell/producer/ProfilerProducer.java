@@ -27,7 +27,7 @@ public class ProfilerProducer extends AbstractProducer {
 			this.startTime = System.currentTimeMillis();
 
 
-		nullOutputStream.write(r.toJSON().getBytes());
+		nullOutputStream.write(this.encoder.encode(r));
 
 		this.count++;
 		if ( this.count % 10000 == 0 ) {
@@ -0,0 +1,224 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.util.BufferedChannelWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+   Maxwell's output as an on-disk log, the way kafka keeps a partition: a
+   directory of segment files, each starting at a sequence number and
+   named for it (00000000000000000000.log, ...).  Every record gets the
+   next sequence number and is stored as
+
+     [payload length: int][sequence: long][binlog file number: int][binlog offset: long][payload]
+
+   A segment is closed once it's past `segmentBytes`, and the next record
+   starts a new one.  Alongside each .log is a sparse .index of fixed-size
+   entries,
+
+     [sequence: long][binlog file number: int][binlog offset: long][byte offset in the .log: int]
+
+   one for a segment's first record and then one every `indexIntervalBytes`
+   or so, which SegmentedLogReader binary searches to find a sequence number
+   or binlog position.  The binlog file number is the numeric suffix of the
+   binlog file's name (mysql-bin.000123 is 123).
+
+   Opening a log carries on from its last complete record, cutting off any
+   record that was only partly written.  Not thread-safe.
+ */
+public class SegmentedLog {
+	static final Logger LOGGER = LoggerFactory.getLogger(SegmentedLog.class);
+
+	static final int RECORD_HEADER = 24;
+	static final int INDEX_ENTRY = 24;
+	static final String LOG_SUFFIX = ".log";
+	static final String INDEX_SUFFIX = ".index";
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final File dir;
+	private final long segmentBytes;
+	private final int indexIntervalBytes;
+	private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+
+	private BufferedChannelWriter log;
+	private BufferedChannelWriter index;
+	private long nextSequence;
+	private long lastIndexedAt;
+
+	public SegmentedLog(File dir, long segmentBytes, int indexIntervalBytes) throws IOException {
+		this.dir = dir;
+		this.segmentBytes = segmentBytes;
+		this.indexIntervalBytes = indexIntervalBytes;
+
+		if ( !dir.isDirectory() && !dir.mkdirs() )
+			throw new IOException("couldn't create log directory " + dir);
+
+		long[] segments = listSegments(dir);
+		if ( segments.length == 0 ) {
+			openSegment(0);
+		} else {
+			recover(segments[segments.length - 1]);
+		}
+	}
+
+	public long getNextSequence() {
+		return nextSequence;
+	}
+
+	/* appends a record, returning its sequence number */
+	public long append(BinlogPosition position, byte[] payload) throws IOException {
+		if ( log.getFileSize() >= segmentBytes )
+			openSegment(nextSequence);
+
+		long sequence = nextSequence++;
+		int file = binlogFileNumber(position);
+		long offset = position.getOffset();
+		int at = (int) log.getFileSize();
+
+		if ( at == 0 || at - lastIndexedAt >= indexIntervalBytes ) {
+			header.clear();
+			header.putLong(sequence).putInt(file).putLong(offset).putInt(at);
+			index.write(header.array(), 0, INDEX_ENTRY);
+			lastIndexedAt = at;
+		}
+
+		header.clear();
+		header.putInt(payload.length).putLong(sequence).putInt(file).putLong(offset);
+		log.write(header.array(), 0, RECORD_HEADER);
+		log.write(payload);
+		return sequence;
+	}
+
+	/* writes out everything appended so far; with `sync`, onto the disk too */
+	public void flush(boolean sync) throws IOException {
+		if ( sync ) {
+			index.sync();
+			log.sync();
+		} else {
+			index.flush();
+			log.flush();
+		}
+	}
+
+	public void close() throws IOException {
+		index.close();
+		log.close();
+	}
+
+	private void openSegment(long baseSequence) throws IOException {
+		if ( log != null )
+			close();
+
+		log = new BufferedChannelWriter(segmentFile(dir, baseSequence, LOG_SUFFIX), BUFFER_SIZE);
+		index = new BufferedChannelWriter(segmentFile(dir, baseSequence, INDEX_SUFFIX), 4096);
+		nextSequence = baseSequence;
+		lastIndexedAt = 0;
+	}
+
+	/* finds the last segment's last complete record, and cuts off anything after it */
+	private void recover(long baseSequence) throws IOException {
+		File logFile = segmentFile(dir, baseSequence, LOG_SUFFIX);
+		File indexFile = segmentFile(dir, baseSequence, INDEX_SUFFIX);
+
+		long sequence = baseSequence;
+		long position = 0;
+		long indexEntries = 0;
+
+		try ( RandomAccessFile raf = new RandomAccessFile(logFile, "rw");
+			  RandomAccessFile idx = new RandomAccessFile(indexFile, "rw") ) {
+			long size = raf.length();
+
+			// start from the last index entry that points inside the log
+			indexEntries = idx.length() / INDEX_ENTRY;
+			while ( indexEntries > 0 ) {
+				idx.seek((indexEntries - 1) * INDEX_ENTRY);
+				long entrySequence = idx.readLong();
+				idx.readInt();
+				idx.readLong();
+				int entryPosition = idx.readInt();
+
+				if ( entryPosition + RECORD_HEADER <= size ) {
+					sequence = entrySequence;
+					position = entryPosition;
+					break;
+				}
+				indexEntries--;
+			}
+
+			while ( position + RECORD_HEADER <= size ) {
+				raf.seek(position);
+				int length = raf.readInt();
+				long recordSequence = raf.readLong();
+				if ( length < 0 || position + RECORD_HEADER + length > size )
+					break;
+
+				sequence = recordSequence + 1;
+				position += RECORD_HEADER + length;
+			}
+
+			if ( position < size )
+				LOGGER.warn("truncating " + (size - position) + " bytes of partly written records from " + logFile);
+
+			// index entries for records that didn't make it
+			while ( indexEntries > 0 ) {
+				idx.seek(indexEntries * INDEX_ENTRY - 4);
+				if ( idx.readInt() < position )
+					break;
+				indexEntries--;
+			}
+
+			raf.getChannel().truncate(position);
+			idx.getChannel().truncate(indexEntries * INDEX_ENTRY);
+
+			if ( indexEntries > 0 ) {
+				idx.seek(indexEntries * INDEX_ENTRY - 4);
+				lastIndexedAt = idx.readInt();
+			}
+		}
+
+		log = new BufferedChannelWriter(logFile, BUFFER_SIZE);
+		index = new BufferedChannelWriter(indexFile, 4096);
+		nextSequence = sequence;
+	}
+
+	static File segmentFile(File dir, long baseSequence, String suffix) {
+		return new File(dir, String.format("%020d%s", baseSequence, suffix));
+	}
+
+	/* the base sequence numbers of the segments in `dir`, in order */
+	static long[] listSegments(File dir) {
+		String[] names = dir.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File d, String name) {
+				return name.endsWith(LOG_SUFFIX) && name.length() == 20 + LOG_SUFFIX.length();
+			}
+		});
+		if ( names == null )
+			return new long[0];
+
+		long[] segments = new long[names.length];
+		for ( int i = 0; i < names.length; i++ )
+			segments[i] = Long.parseLong(names[i].substring(0, 20));
+		Arrays.sort(segments);
+		return segments;
+	}
+
+	/* mysql-bin.000123 -> 123 */
+	static int binlogFileNumber(BinlogPosition position) {
+		String file = position.getFile();
+		try {
+			return Integer.parseInt(file.substring(file.lastIndexOf('.') + 1));
+		} catch ( NumberFormatException e ) {
+			return 0;
+		}
+	}
+}
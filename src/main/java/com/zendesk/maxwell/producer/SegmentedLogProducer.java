@@ -0,0 +1,77 @@
+package com.zendesk.maxwell.producer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.MaxwellConfig;
+import com.zendesk.maxwell.MaxwellContext;
+import com.zendesk.maxwell.RowMap;
+
+/*
+   writes rows into a SegmentedLog in `output_dir`, one record per row
+   (plus one for any table layout the encoder needs sent ahead of it).
+   The log is written out, and fsynced with `output_file_fsync`, at the end of
+   every push or batch that finishes a transaction, before the position moves
+   to that commit row.  Rows outside of one (bootstrapped rows, say) only go
+   out as the log's buffer fills, so they don't each cost a flush.
+ */
+public class SegmentedLogProducer extends AbstractProducer {
+	private final SegmentedLog log;
+	private final boolean fsync;
+
+	public SegmentedLogProducer(MaxwellContext context) throws IOException {
+		super(context);
+		MaxwellConfig config = context.getConfig();
+
+		this.fsync = config.outputFileFsync;
+		this.log = new SegmentedLog(new File(config.outputDir), config.outputSegmentBytes, config.outputIndexIntervalBytes);
+	}
+
+	@Override
+	public void push(RowMap r) throws Exception {
+		synchronized ( this ) {
+			append(r);
+
+			if ( r.isTXCommit() )
+				log.flush(fsync);
+		}
+
+		if ( r.isTXCommit() )
+			context.setPosition(r.getPosition());
+	}
+
+	@Override
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		BinlogPosition lastCommit = null;
+
+		synchronized ( this ) {
+			for ( RowMap r : rows ) {
+				append(r);
+				if ( r.isTXCommit() )
+					lastCommit = r.getPosition();
+			}
+
+			if ( lastCommit != null )
+				log.flush(fsync);
+		}
+
+		if ( lastCommit != null )
+			context.setPosition(lastCommit);
+	}
+
+	private void append(RowMap r) throws IOException {
+		byte[] layout = this.encoder.encodeLayout(r, 0);
+		if ( layout != null )
+			log.append(r.getPosition(), layout);
+
+		log.append(r.getPosition(), this.encoder.encode(r));
+	}
+
+	@Override
+	public synchronized void close() throws Exception {
+		log.flush(fsync);
+		log.close();
+	}
+}
@@ -0,0 +1,211 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.BinlogPosition;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+   reads a SegmentedLog back, from any sequence number or binlog position.
+   seek() binary searches the segments' base sequence numbers (or first
+   index entries), then that segment's index, and scans forward from the
+   entry it lands on -- at most `indexIntervalBytes` or so of records.
+   Segments are memory-mapped read-only, and the last one is mapped again
+   as it grows, so a reader can follow a log that's still being written.
+
+   Not thread-safe.
+ */
+public class SegmentedLogReader {
+	public static class Record {
+		public final long sequence;
+		public final int binlogFileNumber;
+		public final long binlogOffset;
+		public final byte[] payload;
+
+		Record(long sequence, int binlogFileNumber, long binlogOffset, byte[] payload) {
+			this.sequence = sequence;
+			this.binlogFileNumber = binlogFileNumber;
+			this.binlogOffset = binlogOffset;
+			this.payload = payload;
+		}
+	}
+
+	private final File dir;
+
+	private long[] segments;
+	private int segment = -1;
+	private MappedByteBuffer log;
+	private MappedByteBuffer index;
+	private int position;
+
+	public SegmentedLogReader(File dir) {
+		this.dir = dir;
+		this.segments = SegmentedLog.listSegments(dir);
+	}
+
+	/* positions the reader at the record numbered `sequence`, or the next one there is */
+	public void seek(long sequence) throws IOException {
+		segments = SegmentedLog.listSegments(dir);
+		int i = Arrays.binarySearch(segments, sequence);
+		if ( i < 0 )
+			i = Math.max(0, -i - 2);
+		if ( !open(i) )
+			return;
+
+		// last index entry at or before `sequence`
+		int lo = 0, hi = indexEntries() - 1, found = -1;
+		while ( lo <= hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( index.getLong(mid * SegmentedLog.INDEX_ENTRY) <= sequence ) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		position = found < 0 ? 0 : entryPosition(found);
+
+		while ( ensureRecord() && log.getLong(position + 4) < sequence )
+			skipRecord();
+	}
+
+	/* positions the reader at the first record from `target` on in the binlog */
+	public void seek(BinlogPosition target) throws IOException {
+		int file = SegmentedLog.binlogFileNumber(target);
+		long offset = target.getOffset();
+
+		// the last segment starting before `target`: any record at it or after
+		// could be the last one in that segment, but not in an earlier one.
+		segments = SegmentedLog.listSegments(dir);
+		int lo = 0, hi = segments.length - 1, found = 0;
+		while ( lo <= hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( !open(mid) || indexEntries() == 0 || compareEntry(0, file, offset) >= 0 ) {
+				hi = mid - 1;
+			} else {
+				found = mid;
+				lo = mid + 1;
+			}
+		}
+		if ( !open(found) )
+			return;
+
+		lo = 0;
+		hi = indexEntries() - 1;
+		int entry = -1;
+		while ( lo <= hi ) {
+			int mid = (lo + hi) >>> 1;
+			if ( compareEntry(mid, file, offset) < 0 ) {
+				entry = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		position = entry < 0 ? 0 : entryPosition(entry);
+
+		while ( ensureRecord() && compare(log.getInt(position + 12), log.getLong(position + 16), file, offset) < 0 )
+			skipRecord();
+	}
+
+	/* the next record, or null if the reader's caught up with the log */
+	public Record next() throws IOException {
+		if ( !ensureRecord() )
+			return null;
+
+		int length = log.getInt(position);
+		long sequence = log.getLong(position + 4);
+		int file = log.getInt(position + 12);
+		long offset = log.getLong(position + 16);
+
+		byte[] payload = new byte[length];
+		log.position(position + SegmentedLog.RECORD_HEADER);
+		log.get(payload);
+		position += SegmentedLog.RECORD_HEADER + length;
+
+		return new Record(sequence, file, offset, payload);
+	}
+
+	private void skipRecord() {
+		position += SegmentedLog.RECORD_HEADER + log.getInt(position);
+	}
+
+	/*
+	   makes sure there's a whole record at `position`, mapping the segment
+	   again if it's grown, or moving on to the next segment once this one's
+	   done.  false if there's nothing more to read yet.
+	 */
+	private boolean ensureRecord() throws IOException {
+		if ( segment < 0 ) {
+			segments = SegmentedLog.listSegments(dir);
+			if ( !open(0) )
+				return false;
+		}
+
+		while ( true ) {
+			if ( hasRecord() )
+				return true;
+
+			int at = position;
+			if ( !open(segment) )
+				return false;
+			position = at;
+			if ( hasRecord() )
+				return true;
+
+			if ( segment + 1 >= segments.length )
+				segments = SegmentedLog.listSegments(dir);
+			if ( segment + 1 >= segments.length )
+				return false;
+
+			open(segment + 1);
+		}
+	}
+
+	private boolean hasRecord() {
+		if ( position + SegmentedLog.RECORD_HEADER > log.limit() )
+			return false;
+		return position + SegmentedLog.RECORD_HEADER + log.getInt(position) <= log.limit();
+	}
+
+	private boolean open(int i) throws IOException {
+		if ( i >= segments.length )
+			return false;
+
+		log = map(SegmentedLog.segmentFile(dir, segments[i], SegmentedLog.LOG_SUFFIX));
+		index = map(SegmentedLog.segmentFile(dir, segments[i], SegmentedLog.INDEX_SUFFIX));
+		segment = i;
+		position = 0;
+		return true;
+	}
+
+	private static MappedByteBuffer map(File file) throws IOException {
+		try ( RandomAccessFile raf = new RandomAccessFile(file, "r") ) {
+			FileChannel channel = raf.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private int indexEntries() {
+		return index.limit() / SegmentedLog.INDEX_ENTRY;
+	}
+
+	private int entryPosition(int entry) {
+		return index.getInt(entry * SegmentedLog.INDEX_ENTRY + 20);
+	}
+
+	private int compareEntry(int entry, int file, long offset) {
+		int at = entry * SegmentedLog.INDEX_ENTRY;
+		return compare(index.getInt(at + 8), index.getLong(at + 12), file, offset);
+	}
+
+	private static int compare(int fileA, long offsetA, int fileB, long offsetB) {
+		if ( fileA != fileB )
+			return fileA < fileB ? -1 : 1;
+		return offsetA < offsetB ? -1 : (offsetA == offsetB ? 0 : 1);
+	}
+}
@@ -1,18 +1,122 @@
 package com.zendesk.maxwell.producer;
 
-import com.zendesk.maxwell.MaxwellAbstractRowsEvent;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.MaxwellConfig;
 import com.zendesk.maxwell.MaxwellContext;
 import com.zendesk.maxwell.RowMap;
-import com.zendesk.maxwell.producer.AbstractProducer;
+import com.zendesk.maxwell.util.BufferedChannelWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/*
+   writes rows to stdout's file descriptor, through a buffer of
+   `output_stdout_buffer_bytes` instead of System.out's line-flushed
+   PrintStream.  The buffer is written out at the end of every push or
+   batch that finishes a transaction, and `output_stdout_flush_ms` after
+   rows were written into it otherwise, so a long transaction still shows
+   up; the position only moves to a commit row once it's been written.
+ */
 public class StdoutProducer extends AbstractProducer {
+	static final Logger LOGGER = LoggerFactory.getLogger(StdoutProducer.class);
+
+	private final BufferedChannelWriter writer;
+	private final ScheduledExecutorService flusher;
+	private Exception failure;
+
 	public StdoutProducer(MaxwellContext context) {
+		this(context, new FileOutputStream(FileDescriptor.out));
+	}
+
+	StdoutProducer(MaxwellContext context, FileOutputStream out) {
 		super(context);
+		MaxwellConfig config = context.getConfig();
+
+		this.writer = new BufferedChannelWriter(out, config.outputStdoutBufferBytes);
+
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "maxwell-stdout-flush");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		this.flusher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					flush();
+				} catch ( Exception e ) {
+					LOGGER.error("error writing to stdout", e);
+					fail(e);
+				}
+			}
+		}, config.outputStdoutFlushMillis, config.outputStdoutFlushMillis, TimeUnit.MILLISECONDS);
 	}
 
 	@Override
 	public void push(RowMap r) throws Exception {
-		System.out.println(r.toJSON());
-		this.context.setPosition(r);
+		synchronized ( this ) {
+			checkFailure();
+			this.encoder.writeDelimited(this.writer, r);
+
+			if ( r.isTXCommit() )
+				writer.flush();
+		}
+
+		if ( r.isTXCommit() )
+			this.context.setPosition(r);
+	}
+
+	@Override
+	public void pushBatch(List<RowMap> rows) throws Exception {
+		BinlogPosition lastCommit = null;
+
+		synchronized ( this ) {
+			checkFailure();
+			for ( RowMap r : rows ) {
+				this.encoder.writeDelimited(this.writer, r);
+
+				if ( r.isTXCommit() )
+					lastCommit = r.getPosition();
+			}
+
+			if ( lastCommit != null )
+				writer.flush();
+		}
+
+		if ( lastCommit != null )
+			this.context.setPosition(lastCommit);
+	}
+
+	private synchronized void flush() throws IOException {
+		writer.flush();
+	}
+
+	private synchronized void fail(Exception e) {
+		if ( failure == null )
+			failure = e;
+	}
+
+	private void checkFailure() throws Exception {
+		if ( failure != null )
+			throw new IOException("writing to stdout failed", failure);
+	}
+
+	/* stdout itself stays open */
+	@Override
+	public void close() throws Exception {
+		flusher.shutdown();
+		flush();
 	}
 }
@@ -0,0 +1,80 @@
+package com.zendesk.maxwell.producer.encoders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.zendesk.maxwell.RowMap;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+/*
+   a binary jackson format (Smile, CBOR, MessagePack).  Each row gets a
+   generator of its own so that it comes out as a complete, standalone
+   document -- a Smile header included -- rather than as part of a stream.
+   When delimited, each row is preceded by its length as a 4-byte big-endian int.
+ */
+public class BinaryRowEncoder extends RowEncoder {
+	private final JsonFactory factory;
+
+	private final ThreadLocal<ByteArrayOutputStream> buffer = new ThreadLocal<ByteArrayOutputStream>() {
+		@Override
+		protected ByteArrayOutputStream initialValue() {
+			return new ByteArrayOutputStream();
+		}
+	};
+
+	public BinaryRowEncoder(JsonFactory factory) {
+		this.factory = factory;
+	}
+
+	public static BinaryRowEncoder smile() {
+		return new BinaryRowEncoder(new SmileFactory());
+	}
+
+	public static BinaryRowEncoder cbor() {
+		return new BinaryRowEncoder(new CBORFactory());
+	}
+
+	public static BinaryRowEncoder msgpack() {
+		return new BinaryRowEncoder(new MessagePackFactory());
+	}
+
+	private byte[] encode(RowMap r, boolean key) throws IOException {
+		ByteArrayOutputStream out = buffer.get();
+		out.reset();
+
+		JsonGenerator g = factory.createGenerator(out);
+		if ( key )
+			r.writePKTo(g);
+		else
+			r.writeTo(g);
+		g.close();
+
+		return out.toByteArray();
+	}
+
+	@Override
+	public byte[] encode(RowMap r) throws IOException {
+		return encode(r, false);
+	}
+
+	@Override
+	public byte[] encodeKey(RowMap r) throws IOException {
+		return encode(r, true);
+	}
+
+	@Override
+	public void writeDelimited(OutputStream out, RowMap r) throws IOException {
+		byte[] bytes = encode(r, false);
+
+		out.write(bytes.length >>> 24);
+		out.write(bytes.length >>> 16);
+		out.write(bytes.length >>> 8);
+		out.write(bytes.length);
+		out.write(bytes);
+	}
+}
@@ -0,0 +1,25 @@
+package com.zendesk.maxwell.producer.encoders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.zendesk.maxwell.RowMap;
+
+/* JSON text, one row per line when delimited */
+public class JsonRowEncoder extends RowEncoder {
+	@Override
+	public byte[] encode(RowMap r) throws IOException {
+		return r.toJSONBytes();
+	}
+
+	@Override
+	public byte[] encodeKey(RowMap r) throws IOException {
+		return r.pkToJsonBytes();
+	}
+
+	@Override
+	public void writeDelimited(OutputStream out, RowMap r) throws IOException {
+		out.write(r.toJSONBytes());
+		out.write('\n');
+	}
+}
@@ -0,0 +1,111 @@
+package com.zendesk.maxwell.producer.encoders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.schema.Table;
+
+/*
+   JSON rows without their column names: the data goes out as an array in
+   column order, tagged with the schema id and a fingerprint of the table's
+   layout.  Before the first row of each layout on each stream, a
+   "table-layout" message lists that layout's columns, so consumers can keep
+   the layouts and put names back on the values.  An altered table has a
+   new fingerprint and gets a new layout message.
+
+   Rows without a table layout (bootstrapped, or read back from the disk
+   buffer) are written in the usual keyed form.
+ */
+public class PositionalRowEncoder extends RowEncoder {
+	static final int MAX_PUBLISHED = 10000;
+
+	private final JsonFactory factory = new JsonFactory();
+
+	// database.table/stream -> the layout id last handed out for it.  Bounded,
+	// least recently used first; forgetting one only means sending it again.
+	private final LinkedHashMap<String, String> published = new LinkedHashMap<String, String>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_PUBLISHED;
+		}
+	};
+
+	private final ThreadLocal<ByteArrayOutputStream> buffer = new ThreadLocal<ByteArrayOutputStream>() {
+		@Override
+		protected ByteArrayOutputStream initialValue() {
+			return new ByteArrayOutputStream();
+		}
+	};
+
+	private ByteArrayOutputStream reset() {
+		ByteArrayOutputStream out = buffer.get();
+		out.reset();
+		return out;
+	}
+
+	@Override
+	public byte[] encode(RowMap r) throws IOException {
+		ByteArrayOutputStream out = reset();
+
+		JsonGenerator g = factory.createGenerator(out);
+		r.writePositionalTo(g);
+		g.close();
+
+		return out.toByteArray();
+	}
+
+	@Override
+	public byte[] encodeKey(RowMap r) throws IOException {
+		return r.pkToJsonBytes();
+	}
+
+	@Override
+	public byte[] encodeLayout(RowMap r, int stream) throws IOException {
+		Table table = r.getTableDef();
+		if ( table == null )
+			return null;
+
+		String layoutID = table.getJsonWriter().getLayoutID();
+		synchronized ( published ) {
+			if ( layoutID.equals(published.put(publishedKey(r, stream), layoutID)) )
+				return null;
+		}
+
+		ByteArrayOutputStream out = reset();
+
+		JsonGenerator g = factory.createGenerator(out);
+		table.getJsonWriter().writeLayout(g, table.getSchemaID());
+		g.close();
+
+		return out.toByteArray();
+	}
+
+	@Override
+	public void forgetLayout(RowMap r, int stream) {
+		synchronized ( published ) {
+			published.remove(publishedKey(r, stream));
+		}
+	}
+
+	private static String publishedKey(RowMap r, int stream) {
+		return r.getDatabase() + "." + r.getTable() + "/" + stream;
+	}
+
+	@Override
+	public void writeDelimited(OutputStream out, RowMap r) throws IOException {
+		byte[] layout = encodeLayout(r, 0);
+		if ( layout != null ) {
+			out.write(layout);
+			out.write('\n');
+		}
+
+		out.write(encode(r));
+		out.write('\n');
+	}
+}
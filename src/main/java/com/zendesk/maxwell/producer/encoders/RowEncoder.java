@@ -0,0 +1,37 @@
+package com.zendesk.maxwell.producer.encoders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.zendesk.maxwell.RowMap;
+
+/*
+   turns a RowMap into the bytes a producer sends (--output_format).  Every
+   format carries the same document: the row as toJSON() would write it, and
+   for message keys, the row's key as pkToJson() would.
+ */
+public abstract class RowEncoder {
+	public abstract byte[] encode(RowMap r) throws IOException;
+
+	public abstract byte[] encodeKey(RowMap r) throws IOException;
+
+	/*
+	   a message that has to reach the consumers of `stream` ahead of `r` -- the
+	   positional format's table layouts -- or null if there's none.  `stream`
+	   tells apart destinations that are ordered independently, like kafka
+	   partitions.  writeDelimited() already includes it, as stream 0.
+	 */
+	public byte[] encodeLayout(RowMap r, int stream) throws IOException {
+		return null;
+	}
+
+	/* the layout encodeLayout() returned for `r` on `stream` never arrived; hand it out again next time */
+	public void forgetLayout(RowMap r, int stream) {
+	}
+
+	/*
+	   appends the row to a stream of rows in such a way that it can be split
+	   back out again: newline-terminated for text, length-prefixed for binary.
+	 */
+	public abstract void writeDelimited(OutputStream out, RowMap r) throws IOException;
+}
@@ -1,8 +1,13 @@
 package com.zendesk.maxwell.producer.partitioners;
 
+import com.zendesk.maxwell.util.HashKeyBuilder;
+
 /**
  * Created by kaufmannkr on 1/21/16.
  */
 public interface HashFunction {
 	int hashCode(String s);
+
+	/* the same as hashCode() of the String `key` was built from */
+	int hashCode(HashKeyBuilder key);
 }
@@ -1,6 +1,6 @@
 package com.zendesk.maxwell.producer.partitioners;
 
-import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.util.HashKeyBuilder;
 
 /**
  * Created by kaufmannkr on 1/18/16.
@@ -9,4 +9,8 @@ public class HashFunctionDefault implements HashFunction {
 	public int hashCode(String s) {
 		return s.hashCode();
 	}
+
+	public int hashCode(HashKeyBuilder key) {
+		return key.stringHashCode();
+	}
 }
@@ -1,6 +1,6 @@
 package com.zendesk.maxwell.producer.partitioners;
 
-import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.util.HashKeyBuilder;
 import com.zendesk.maxwell.util.MurmurHash3;
 
 /**
@@ -14,4 +14,8 @@ public class HashFunctionMurmur3 implements HashFunction {
 	public int hashCode(String s) {
 		return MurmurHash3.murmurhash3_x86_32(s, 0, s.length(), seed);
 	}
+
+	public int hashCode(HashKeyBuilder key) {
+		return key.murmur3(seed);
+	}
 }
@@ -2,11 +2,27 @@ package com.zendesk.maxwell.producer.partitioners;
 
 import com.zendesk.maxwell.RowMap;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Created by kaufmannkr on 1/18/16.
  */
 public class HashStringDatabase implements HashStringProvider{
+	// database name -> hash; there's only ever a handful
+	private final ConcurrentHashMap<String, Integer> hashes = new ConcurrentHashMap<>();
+
 	public String getHashString(RowMap r) {
 		return r.getDatabase();
 	}
+
+	public int getHash(RowMap r, HashFunction hashFunc) {
+		String database = r.getDatabase();
+
+		Integer hash = hashes.get(database);
+		if ( hash == null ) {
+			hash = hashFunc.hashCode(database);
+			hashes.put(database, hash);
+		}
+		return hash;
+	}
 }
@@ -1,12 +1,27 @@
 package com.zendesk.maxwell.producer.partitioners;
 
 import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.util.HashKeyBuilder;
 
 /**
  * Created by kaufmannkr on 1/18/16.
  */
 public class HashStringPrimaryKey implements HashStringProvider {
+	private static final ThreadLocal<HashKeyBuilder> keyThreadLocal = new ThreadLocal<HashKeyBuilder>() {
+		@Override
+		protected HashKeyBuilder initialValue() {
+			return new HashKeyBuilder();
+		}
+	};
+
 	public String getHashString(RowMap r) {
 		return r.pkAsConcatString();
 	}
+
+	/* hashes the primary key values straight out of the row, with no concatenated String */
+	public int getHash(RowMap r, HashFunction hashFunc) {
+		HashKeyBuilder key = keyThreadLocal.get();
+		r.buildPKHashKey(key);
+		return hashFunc.hashCode(key);
+	}
 }
@@ -7,4 +7,10 @@ import com.zendesk.maxwell.RowMap;
  */
 public interface HashStringProvider {
 	String getHashString(RowMap r);
+
+	/*
+	   hashFunc's hash of getHashString(r), worked out without the String
+	   where possible.  A provider is only ever used with the one function.
+	 */
+	int getHash(RowMap r, HashFunction hashFunc);
 }
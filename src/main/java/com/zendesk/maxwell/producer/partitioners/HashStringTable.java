@@ -2,11 +2,27 @@ package com.zendesk.maxwell.producer.partitioners;
 
 import com.zendesk.maxwell.RowMap;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Created by kaufmannkr on 1/18/16.
  */
 public class HashStringTable implements HashStringProvider {
+	// table name -> hash, one per table seen
+	private final ConcurrentHashMap<String, Integer> hashes = new ConcurrentHashMap<>();
+
 	public String getHashString(RowMap r) {
 		return r.getTable();
 	}
+
+	public int getHash(RowMap r, HashFunction hashFunc) {
+		String table = r.getTable();
+
+		Integer hash = hashes.get(table);
+		if ( hash == null ) {
+			hash = hashFunc.hashCode(table);
+			hashes.put(table, hash);
+		}
+		return hash;
+	}
 }
@@ -46,6 +46,6 @@ public class MaxwellKafkaPartitioner {
 	}
 
 	public int kafkaPartition(RowMap r, int numPartitions) {
-		return Math.abs(hashFunc.hashCode(provider.getHashString(r)) % numPartitions);
+		return Math.abs(provider.getHash(r, hashFunc) % numPartitions);
 	}
 }
@@ -100,4 +100,15 @@ public class Schema {
 	public CaseSensitivity getCaseSensitivity() {
 		return sensitivity;
 	};
+
+	/*
+	   records the id SchemaStore saved (or restored) this schema under on each
+	   of its tables, where rows can get at it.  A copy starts out without one.
+	 */
+	public void setSchemaID(Long schemaID) {
+		for ( Database d : this.databases ) {
+			for ( Table t : d.getTableList() )
+				t.setSchemaID(schemaID);
+		}
+	}
 }
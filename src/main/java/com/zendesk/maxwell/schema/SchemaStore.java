@@ -105,6 +105,7 @@ public class SchemaStore {
 		} finally {
 			connection.setAutoCommit(true);
 		}
+		this.schema.setSchemaID(this.schema_id);
 		if ( this.schema_id != null ) {
 			deleteOldSchemas(schema_id);
 		}
@@ -276,6 +277,8 @@ public class SchemaStore {
 
 		if ( shouldResave )
 			this.schema_id = saveSchema();
+
+		this.schema.setSchemaID(this.schema_id);
 	}
 
 	private Database restoreDatabase(int id, String name, String charset) throws SQLException {
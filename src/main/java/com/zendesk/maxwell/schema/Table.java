@@ -10,6 +10,8 @@ import com.zendesk.maxwell.schema.columndef.StringColumnDef;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.zendesk.maxwell.ColumnIndex;
+import com.zendesk.maxwell.RowJsonWriter;
 
 public class Table {
 	public String database;
@@ -24,6 +26,13 @@ public class Table {
 	@JsonIgnore
 	public int pkIndex;
 
+	// compiled on first use, dropped whenever the table's shape changes
+	private volatile RowJsonWriter jsonWriter;
+	// the names rows of this table store their values under; dropped with the columns
+	private volatile ColumnIndex columnIndex;
+	// the stored schema this version of the table belongs to, if it's been saved
+	private Long schemaID;
+
 	public Table() { }
 	public Table(String database, String name, String charset, List<ColumnDef> list, List<String> pks) {
 		this.database = database;
@@ -45,6 +54,8 @@ public class Table {
 	@JsonProperty("columns")
 	public void setColumnList(List<ColumnDef> list) {
 		this.columnList = list;
+		this.jsonWriter = null;
+		this.columnIndex = null;
 		renumberColumns();
 	}
 
@@ -62,6 +73,31 @@ public class Table {
 		return this.name;
 	}
 
+	@JsonIgnore
+	public Long getSchemaID() {
+		return schemaID;
+	}
+
+	public void setSchemaID(Long schemaID) {
+		this.schemaID = schemaID;
+	}
+
+	@JsonIgnore
+	public RowJsonWriter getJsonWriter() {
+		RowJsonWriter w = this.jsonWriter;
+		if ( w == null )
+			this.jsonWriter = w = new RowJsonWriter(this);
+		return w;
+	}
+
+	@JsonIgnore
+	public ColumnIndex getColumnIndex() {
+		ColumnIndex idx = this.columnIndex;
+		if ( idx == null )
+			this.columnIndex = idx = ColumnIndex.forColumns(columnList);
+		return idx;
+	}
+
 	private void initColumnOffsetMap() {
 		if ( this.columnOffsetMap != null )
 			return;
@@ -118,6 +154,7 @@ public class Table {
 
 	public void rename(String tableName) {
 		this.name = tableName;
+		this.jsonWriter = null;
 	}
 
 	private void diffColumnList(List<String> diffs, Table a, Table b, String nameA, String nameB) {
@@ -215,6 +252,8 @@ public class Table {
 	public void addColumn(int index, ColumnDef definition) {
 		this.columnList.add(index, definition);
 		this.columnOffsetMap = null;
+		this.jsonWriter = null;
+		this.columnIndex = null;
 		renumberColumns();
 	}
 
@@ -225,11 +264,14 @@ public class Table {
 	public void removeColumn(int idx) {
 		this.columnList.remove(idx);
 		this.columnOffsetMap = null;
+		this.jsonWriter = null;
+		this.columnIndex = null;
 		renumberColumns();
 	}
 
 	public void setDatabase(String database) {
 		this.database = database;
+		this.jsonWriter = null;
 	}
 
 	public String getCharset() {
@@ -251,5 +293,6 @@ public class Table {
 
 	public void setPKList(List<String> pkColumnNames) {
 		this.pkColumnNames = pkColumnNames;
+		this.jsonWriter = null;
 	}
 }
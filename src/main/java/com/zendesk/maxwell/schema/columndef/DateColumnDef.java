@@ -10,13 +10,17 @@ public class DateColumnDef extends ColumnDef {
 		super(name, type, pos);
 	}
 
-	private static SimpleDateFormat dateFormatter;
+	// SimpleDateFormat isn't thread-safe; keep one per thread so that rows can be
+	// converted concurrently without serializing on a shared formatter.
+	private static final ThreadLocal<SimpleDateFormat> dateFormatter = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return new SimpleDateFormat("yyyy-MM-dd");
+		}
+	};
 
 	private static SimpleDateFormat getDateFormatter() {
-		if ( dateFormatter == null ) {
-			dateFormatter = new SimpleDateFormat("yyyy-MM-dd");
-		}
-		return dateFormatter;
+		return dateFormatter.get();
 	}
 
 
@@ -26,10 +30,7 @@ public class DateColumnDef extends ColumnDef {
 	}
 
 	private String formatDate(Object value) {
-		/* protect against multithreaded access of static dateFormatter */
-		synchronized ( DateColumnDef.class ) {
-			return getDateFormatter().format((Date) value);
-		}
+		return getDateFormatter().format((Date) value);
 	}
 
 	@Override
@@ -11,13 +11,17 @@ public class DateTimeColumnDef extends ColumnDef {
 		super(name, type, pos);
 	}
 
-	private static SimpleDateFormat dateTimeFormatter;
+	// SimpleDateFormat isn't thread-safe; keep one per thread so that rows can be
+	// converted concurrently without serializing on a shared formatter.
+	private static final ThreadLocal<SimpleDateFormat> dateTimeFormatter = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		}
+	};
 
 	private static SimpleDateFormat getDateTimeFormatter() {
-		if ( dateTimeFormatter == null ) {
-			dateTimeFormatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-		}
-		return dateTimeFormatter;
+		return dateTimeFormatter.get();
 	}
 
 
@@ -33,17 +37,14 @@ public class DateTimeColumnDef extends ColumnDef {
 	}
 
 	private String formatValue(Object value) {
-		/* protect against multithreaded access of static dateTimeFormatter */
-		synchronized ( DateTimeColumnDef.class ) {
-			if ( value instanceof Long && getType().equals("datetime") )
-				return formatLong(( Long ) value);
-			else if ( value instanceof Timestamp )
-				return getDateTimeFormatter().format(( Timestamp ) value);
-			else if ( value instanceof Date )
-				return getDateTimeFormatter().format(( Date ) value);
-			else
-				return "";
-		}
+		if ( value instanceof Long && getType().equals("datetime") )
+			return formatLong(( Long ) value);
+		else if ( value instanceof Timestamp )
+			return getDateTimeFormatter().format(( Timestamp ) value);
+		else if ( value instanceof Date )
+			return getDateTimeFormatter().format(( Date ) value);
+		else
+			return "";
 	}
 
 	private String formatLong(Long value) {
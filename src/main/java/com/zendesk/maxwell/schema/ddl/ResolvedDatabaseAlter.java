@@ -28,4 +28,8 @@ public class ResolvedDatabaseAlter extends ResolvedSchemaChange {
 		return schema;
 	}
 
+	@Override
+	public boolean affectsTable(String database, String table) {
+		return this.database.equalsIgnoreCase(database);
+	}
 }
@@ -22,4 +22,9 @@ public class ResolvedDatabaseCreate extends ResolvedSchemaChange {
 		newSchema.addDatabase(new Database(database, charset));
 		return newSchema;
 	}
+
+	@Override
+	public boolean affectsTable(String database, String table) {
+		return this.database.equalsIgnoreCase(database);
+	}
 }
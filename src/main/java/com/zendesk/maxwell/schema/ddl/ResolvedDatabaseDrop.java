@@ -18,4 +18,9 @@ public class ResolvedDatabaseDrop extends ResolvedSchemaChange {
 		newSchema.getDatabases().remove(d);
 		return newSchema;
 	}
+
+	@Override
+	public boolean affectsTable(String database, String table) {
+		return this.database.equalsIgnoreCase(database);
+	}
 }
@@ -15,4 +15,7 @@ import com.zendesk.maxwell.schema.Schema;
 
 public abstract class ResolvedSchemaChange {
 	public abstract Schema apply(Schema originalSchema) throws InvalidSchemaError;
+
+	/* could applying this change alter (or remove) the definition of database.table? */
+	public abstract boolean affectsTable(String database, String table);
 }
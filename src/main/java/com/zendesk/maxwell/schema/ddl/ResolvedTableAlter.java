@@ -45,5 +45,10 @@ public class ResolvedTableAlter extends ResolvedSchemaChange {
 		newDatabase.addTable(newTable);
 		return newSchema;
 	}
-}
 
+	@Override
+	public boolean affectsTable(String database, String table) {
+		return ( this.database.equalsIgnoreCase(database) && this.table.equalsIgnoreCase(table) )
+			|| ( newTable.database.equalsIgnoreCase(database) && newTable.name.equalsIgnoreCase(table) );
+	}
+}
@@ -30,4 +30,9 @@ public class ResolvedTableCreate extends ResolvedSchemaChange {
 		d.addTable(this.def);
 		return newSchema;
 	}
+
+	@Override
+	public boolean affectsTable(String database, String table) {
+		return this.database.equalsIgnoreCase(database) && this.table.equalsIgnoreCase(table);
+	}
 }
@@ -22,4 +22,9 @@ public class ResolvedTableDrop extends ResolvedSchemaChange {
 		d.removeTable(this.table);
 		return newSchema;
 	}
+
+	@Override
+	public boolean affectsTable(String database, String table) {
+		return this.database.equalsIgnoreCase(database) && this.table.equalsIgnoreCase(table);
+	}
 }
@@ -0,0 +1,167 @@
+package com.zendesk.maxwell.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+   one heap budget for every ListWithDiskBuffer in the process -- the
+   transaction being buffered, the pipeline's transactions, and whatever
+   else registers.  Buffers tell the manager whenever what they
+   hold in memory changes; once the total goes over the budget, the manager
+   has buffers spill to disk until it's back under SPILL_TO of it.
+
+   Cold buffers (nothing added for COLD_MILLIS) are spilled first, largest
+   first; then the largest of the rest.  A buffer's last element never
+   spills (see ListWithDiskBuffer), so a single huge row can still go over.
+
+   Buffers are held weakly: one that's dropped without being drained stops
+   counting once it's collected.  Usage is reported as `buffer_memory.*`
+   metrics, with a gauge per buffer name.
+ */
+public class BufferMemoryManager {
+	static final Logger LOGGER = LoggerFactory.getLogger(BufferMemoryManager.class);
+
+	private static final double SPILL_TO = 0.8;
+	private static final long COLD_MILLIS = 5000;
+
+	private final long budget;
+	private final MetricRegistry metrics;
+
+	private final AtomicLong used = new AtomicLong();
+	private final AtomicLong spilledBytes = new AtomicLong();
+	private final Set<ListWithDiskBuffer<?>> buffers = Collections.newSetFromMap(new WeakHashMap<ListWithDiskBuffer<?>, Boolean>());
+	private final ConcurrentHashMap<String, Boolean> gaugedNames = new ConcurrentHashMap<>();
+	// one spilling pass at a time; never taken while holding a buffer's lock
+	private final Object rebalanceLock = new Object();
+
+	public BufferMemoryManager(long budget, MetricRegistry metrics) {
+		this.budget = budget;
+		this.metrics = metrics;
+
+		if ( metrics != null ) {
+			metrics.register("buffer_memory.budget", new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return BufferMemoryManager.this.budget;
+				}
+			});
+			metrics.register("buffer_memory.used", new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return used.get();
+				}
+			});
+			metrics.register("buffer_memory.spilled_bytes", new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return spilledBytes.get();
+				}
+			});
+		}
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public long getUsed() {
+		return used.get();
+	}
+
+	/* bytes of buffered elements the manager has had spilled so far */
+	public long getSpilledBytes() {
+		return spilledBytes.get();
+	}
+
+	/* what the live buffers called `name` hold in memory between them */
+	public long getUsed(String name) {
+		long total = 0;
+		for ( ListWithDiskBuffer<?> b : snapshot() ) {
+			if ( name.equals(b.getName()) )
+				total += b.inMemoryBytes();
+		}
+		return total;
+	}
+
+	void register(ListWithDiskBuffer<?> buffer) {
+		synchronized ( buffers ) {
+			buffers.add(buffer);
+		}
+
+		final String name = buffer.getName();
+		if ( metrics != null && gaugedNames.putIfAbsent(name, Boolean.TRUE) == null ) {
+			metrics.register(MetricRegistry.name("buffer_memory.buffers", name), new Gauge<Long>() {
+				@Override
+				public Long getValue() {
+					return getUsed(name);
+				}
+			});
+		}
+	}
+
+	void unregister(ListWithDiskBuffer<?> buffer, long bytes) {
+		synchronized ( buffers ) {
+			buffers.remove(buffer);
+		}
+		used.addAndGet(-bytes);
+	}
+
+	/* called by a buffer, holding none of its locks, when its in-memory size changes */
+	void changed(long delta) throws IOException {
+		long now = used.addAndGet(delta);
+		if ( delta > 0 && now > budget )
+			rebalance();
+	}
+
+	private List<ListWithDiskBuffer<?>> snapshot() {
+		synchronized ( buffers ) {
+			return new ArrayList<>(buffers);
+		}
+	}
+
+	private void rebalance() throws IOException {
+		synchronized ( rebalanceLock ) {
+			long target = (long) (budget * SPILL_TO);
+			if ( used.get() <= budget )
+				return;
+
+			final long now = System.currentTimeMillis();
+			List<ListWithDiskBuffer<?>> candidates = snapshot();
+
+			// cold ones first, then by size; sizes are read once, they move under us
+			final HashMap<ListWithDiskBuffer<?>, Long> sizes = new HashMap<>();
+			for ( ListWithDiskBuffer<?> b : candidates )
+				sizes.put(b, b.inMemoryBytes());
+
+			Collections.sort(candidates, new Comparator<ListWithDiskBuffer<?>>() {
+				@Override
+				public int compare(ListWithDiskBuffer<?> a, ListWithDiskBuffer<?> b) {
+					boolean aCold = now - a.getLastAddedAt() > COLD_MILLIS;
+					boolean bCold = now - b.getLastAddedAt() > COLD_MILLIS;
+					if ( aCold != bCold )
+						return aCold ? -1 : 1;
+					return Long.compare(sizes.get(b), sizes.get(a));
+				}
+			});
+
+			for ( ListWithDiskBuffer<?> b : candidates ) {
+				long excess = used.get() - target;
+				if ( excess <= 0 )
+					break;
+
+				long freed = b.spill(excess);
+				if ( freed > 0 ) {
+					spilledBytes.addAndGet(freed);
+					LOGGER.debug("buffer memory over budget: spilled " + freed + " bytes of " + b.getName());
+				}
+			}
+		}
+	}
+}
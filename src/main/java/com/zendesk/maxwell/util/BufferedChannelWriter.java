@@ -0,0 +1,120 @@
+package com.zendesk.maxwell.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+   an OutputStream appending to a file through a FileChannel, from a buffer
+   of `bufferSize` bytes that only goes to the file when it's full or on
+   flush().  sync() also forces what's been written onto the disk, and
+   rotate() closes the file off under another name and starts a new one in
+   its place.  It can also wrap a stream that's already open, like stdout;
+   that can't be rotated, and its size is what's been written through us.
+
+   Not thread-safe.
+ */
+public class BufferedChannelWriter extends OutputStream {
+	private final File file;
+	private final ByteBuffer buffer;
+
+	private FileOutputStream stream;
+	private FileChannel channel;
+	private long fileSize;
+
+	public BufferedChannelWriter(File file, int bufferSize) throws IOException {
+		this.file = file;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		open();
+	}
+
+	public BufferedChannelWriter(FileOutputStream stream, int bufferSize) {
+		this.file = null;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.stream = stream;
+		this.channel = stream.getChannel();
+		this.fileSize = 0;
+	}
+
+	private void open() throws IOException {
+		this.stream = new FileOutputStream(file, true);
+		this.channel = stream.getChannel();
+		this.fileSize = channel.size();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if ( !buffer.hasRemaining() )
+			writeBuffer();
+		buffer.put((byte) b);
+		fileSize++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		fileSize += len;
+		while ( len > 0 ) {
+			if ( !buffer.hasRemaining() )
+				writeBuffer();
+
+			int n = Math.min(len, buffer.remaining());
+			buffer.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		buffer.flip();
+		while ( buffer.hasRemaining() )
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/* bytes written since the last flush */
+	public int getBuffered() {
+		return buffer.position();
+	}
+
+	/* the file's size, counting what's still in the buffer */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if ( buffer.position() > 0 )
+			writeBuffer();
+	}
+
+	/* flush(), and then wait for the data to be on the disk */
+	public void sync() throws IOException {
+		flush();
+		channel.force(false);
+	}
+
+	/* flushes and closes the file, renames it to `closedFile`, and carries on writing to a new, empty file */
+	public void rotate(File closedFile, boolean sync) throws IOException {
+		if ( file == null )
+			throw new IllegalStateException("can't rotate a stream");
+
+		if ( sync )
+			sync();
+		else
+			flush();
+		stream.close();
+
+		if ( !file.renameTo(closedFile) )
+			throw new IOException("couldn't rename " + file + " to " + closedFile);
+		open();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		stream.close();
+	}
+}
@@ -0,0 +1,118 @@
+package com.zendesk.maxwell.util;
+
+import java.util.Arrays;
+
+/*
+   builds up a key to hash out of pieces -- strings and numbers -- without
+   making a String of it, and hashes it exactly as the concatenated String
+   would be: String#hashCode over its chars, or MurmurHash3 over its UTF-8
+   bytes (encoded the way MurmurHash3's CharSequence variant does).  Meant to
+   be reset and reused, one per thread.
+ */
+public class HashKeyBuilder {
+	private char[] chars = new char[64];
+	private int length;
+
+	private byte[] bytes = new byte[256];
+
+	public void reset() {
+		length = 0;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public HashKeyBuilder append(String s) {
+		int n = s.length();
+		ensure(n);
+		s.getChars(0, n, chars, length);
+		length += n;
+		return this;
+	}
+
+	/* the same chars as Long.toString(l) */
+	public HashKeyBuilder append(long l) {
+		if ( l == Long.MIN_VALUE )
+			return append(Long.toString(l));
+
+		ensure(20);
+		if ( l < 0 ) {
+			chars[length++] = '-';
+			l = -l;
+		}
+
+		int start = length;
+		do {
+			chars[length++] = (char) ('0' + (l % 10));
+			l /= 10;
+		} while ( l != 0 );
+
+		// the digits went in backwards
+		for ( int i = start, j = length - 1; i < j; i++, j-- ) {
+			char c = chars[i];
+			chars[i] = chars[j];
+			chars[j] = c;
+		}
+		return this;
+	}
+
+	/* as value.toString() would, without the String for the common types */
+	public HashKeyBuilder append(Object value) {
+		if ( value instanceof String )
+			return append((String) value);
+		else if ( value instanceof Long || value instanceof Integer )
+			return append(((Number) value).longValue());
+		else
+			return append(value.toString());
+	}
+
+	public int stringHashCode() {
+		int h = 0;
+		for ( int i = 0; i < length; i++ )
+			h = 31 * h + chars[i];
+		return h;
+	}
+
+	public int murmur3(int seed) {
+		return MurmurHash3.murmurhash3_x86_32(bytes, 0, encodeUTF8(), seed);
+	}
+
+	/*
+	   UTF-8 into `bytes`, returning the length.  Like MurmurHash3's
+	   CharSequence variant (and unlike String#getBytes), an unpaired surrogate
+	   is encoded as its 3 bytes rather than replaced.
+	 */
+	private int encodeUTF8() {
+		if ( bytes.length < length * 3 )
+			bytes = new byte[length * 3];
+
+		int n = 0;
+		int pos = 0;
+		while ( pos < length ) {
+			int code = chars[pos++];
+			if ( code < 0x80 ) {
+				bytes[n++] = (byte) code;
+			} else if ( code < 0x800 ) {
+				bytes[n++] = (byte) (0xC0 | (code >> 6));
+				bytes[n++] = (byte) (0x80 | (code & 0x3F));
+			} else if ( code < 0xD800 || code > 0xDFFF || pos >= length ) {
+				bytes[n++] = (byte) (0xE0 | (code >> 12));
+				bytes[n++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+				bytes[n++] = (byte) (0x80 | (code & 0x3F));
+			} else {
+				int utf32 = ((code - 0xD7C0) << 10) + (chars[pos++] & 0x3FF);
+				bytes[n++] = (byte) (0xF0 | (utf32 >> 18));
+				bytes[n++] = (byte) (0x80 | ((utf32 >> 12) & 0x3F));
+				bytes[n++] = (byte) (0x80 | ((utf32 >> 6) & 0x3F));
+				bytes[n++] = (byte) (0x80 | (utf32 & 0x3F));
+			}
+		}
+		return n;
+	}
+
+	private void ensure(int n) {
+		if ( length + n > chars.length )
+			chars = Arrays.copyOf(chars, Math.max(length + n, chars.length * 2));
+	}
+}
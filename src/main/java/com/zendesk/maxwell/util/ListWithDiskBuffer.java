@@ -7,87 +7,383 @@ import java.io.*;
 import java.util.*;
 
 /*
-   a wrapper class for a linked list that will keep N tail elements
-   in memory, spilling its head onto disk as needed.
+   a wrapper class for a linked list that will keep its tail elements in
+   memory, spilling its head onto disk once there are more than
+   `maxInMemoryElements` of them or they come to more than `maxInMemoryBytes`
+   (as the codec estimates them), or when a BufferMemoryManager it's
+   registered with asks it to.  Spilled elements are written and read back
+   by `codec`, into a SpillStore of memory-mapped segments borrowed from a
+   SpillSegmentPool and handed back as they're read.
+
+   The spill I/O happens on a SpillExecutor's thread, not the caller's.
+   Spilled elements are gathered into a block; once it's full (or the
+   writer's idle) it's handed over to be written, and the next block starts
+   filling.  Only MAX_BLOCKS_IN_FLIGHT blocks can be waiting to be written,
+   so when the writer falls behind, add() waits for it.  Reading back, the
+   next READ_AHEAD elements are read in the background while the current
+   ones are being taken.  Elements are always taken in the order they were
+   added, wherever they are at the time.
+
+   The last element always stays in memory, so getLast() can be changed.
+   Thread-safe, so that the memory manager can spill a buffer from whichever
+   thread went over the budget.
  */
 public class ListWithDiskBuffer<T> {
 	static final Logger LOGGER = LoggerFactory.getLogger(ListWithDiskBuffer.class);
+
+	static final int BLOCK_ELEMENTS = 1024;
+	static final long BLOCK_BYTES = 1024 * 1024;
+	static final int MAX_BLOCKS_IN_FLIGHT = 1;
+	static final int READ_AHEAD = 1024;
+
+	private final String name;
 	private final long maxInMemoryElements;
-	private final LinkedList<T> list;
+	private final long maxInMemoryBytes;
+	private final RecordCodec<T> codec;
+	private final SpillSegmentPool pool;
+	private final BufferMemoryManager manager;
+	private final SpillExecutor executor;
+
+	// oldest first: readAhead, then what's being read back, in the store,
+	// being written, and in the outgoing block; then the in-memory list.
+	private final ArrayDeque<T> readAhead = new ArrayDeque<>();
+	private long elementsReading = 0;
 	private long elementsInFile = 0;
-	private File file;
-	private ObjectInputStream is;
-	private ObjectOutputStream os;
+	private long elementsInFlight = 0;
+	private int blocksInFlight = 0;
+	private ArrayDeque<T> outgoing = new ArrayDeque<>();
+	private long outgoingBytes = 0;
+	private final LinkedList<T> list;
+	// the codec's estimate of each element in `list`, taken as it was added
+	private final LinkedList<Long> sizes;
+
+	private long inMemoryBytes = 0;
+	// what the memory manager has been told we hold
+	private long reportedBytes = 0;
+	private volatile long lastAddedAt = System.currentTimeMillis();
+	private IOException failure;
+	private boolean closed = false;
 
-	public ListWithDiskBuffer(long maxInMemoryElements) throws IOException {
+	// only ever touched on the executor's thread
+	private SpillStore store;
+	private DataInputStream is;
+	private DataOutputStream os;
+
+	public ListWithDiskBuffer(String name, long maxInMemoryElements, long maxInMemoryBytes, RecordCodec<T> codec,
+							  SpillSegmentPool pool, SpillExecutor executor, BufferMemoryManager manager) throws IOException {
+		this.name = name;
 		this.maxInMemoryElements = maxInMemoryElements;
+		this.maxInMemoryBytes = maxInMemoryBytes;
+		this.codec = codec;
+		this.pool = pool;
+		this.executor = executor;
+		this.manager = manager;
 		list = new LinkedList<>();
+		sizes = new LinkedList<>();
+
+		if ( manager != null )
+			manager.register(this);
+	}
+
+	public ListWithDiskBuffer(String name, long maxInMemoryElements, long maxInMemoryBytes, RecordCodec<T> codec,
+							  SpillSegmentPool pool, BufferMemoryManager manager) throws IOException {
+		this(name, maxInMemoryElements, maxInMemoryBytes, codec, pool, SpillExecutor.DEFAULT, manager);
+	}
+
+	public ListWithDiskBuffer(long maxInMemoryElements, long maxInMemoryBytes, RecordCodec<T> codec, SpillSegmentPool pool) throws IOException {
+		this("buffer", maxInMemoryElements, maxInMemoryBytes, codec, pool, null);
+	}
+
+	public ListWithDiskBuffer(long maxInMemoryElements, RecordCodec<T> codec) throws IOException {
+		this(maxInMemoryElements, Long.MAX_VALUE, codec, SpillSegmentPool.DEFAULT);
+	}
+
+	public String getName() {
+		return name;
 	}
 
 	public void add(T element) throws IOException {
-		list.add(element);
+		long size = codec.estimateSize(element);
+
+		synchronized ( this ) {
+			checkFailure();
+			list.add(element);
+			sizes.add(size);
+			inMemoryBytes += size;
+			lastAddedAt = System.currentTimeMillis();
+
+			while ( list.size() > 1 && (list.size() > maxInMemoryElements || inMemoryBytes > maxInMemoryBytes) )
+				spillFirst();
+
+			startWriteIfIdle();
+		}
+
+		report();
+	}
+
+	/*
+	   for the memory manager: spill from the head until `bytes` have been
+	   freed or only the last element is left.  Returns what was freed.
+	 */
+	long spill(long bytes) throws IOException {
+		long freed = 0;
+		synchronized ( this ) {
+			checkFailure();
+			while ( freed < bytes && list.size() > 1 )
+				freed += spillFirst();
+
+			startWriteIfIdle();
+		}
+
+		report();
+		return freed;
+	}
+
+	/* moves the head of the list into the outgoing block, handing the block over once it's full */
+	private long spillFirst() throws IOException {
+		if ( elementsInFile + elementsInFlight + outgoing.size() == 0 )
+			LOGGER.debug("Overflowed in-memory buffer " + name + ", spilling over to disk");
+
+		long size = sizes.removeFirst();
+		outgoing.add(list.removeFirst());
+		outgoingBytes += size;
+		inMemoryBytes -= size;
+
+		if ( outgoing.size() >= BLOCK_ELEMENTS || outgoingBytes >= BLOCK_BYTES ) {
+			while ( blocksInFlight >= MAX_BLOCKS_IN_FLIGHT )
+				waitForSpill();
+			startWrite();
+		}
+
+		return size;
+	}
+
+	/* the writer's got nothing to do: no point holding on to a partial block */
+	private void startWriteIfIdle() {
+		if ( !outgoing.isEmpty() && blocksInFlight == 0 )
+			startWrite();
+	}
+
+	private void startWrite() {
+		final ArrayDeque<T> block = outgoing;
+		outgoing = new ArrayDeque<>();
+		outgoingBytes = 0;
+
+		blocksInFlight++;
+		elementsInFlight += block.size();
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if ( !isClosed() ) {
+						if ( store == null ) {
+							store = new SpillStore(pool);
+							os = new DataOutputStream(store.getOutputStream());
+							is = new DataInputStream(store.getInputStream());
+						}
 
-		while (this.list.size() > maxInMemoryElements) {
-			if ( file == null ) {
-				file = File.createTempFile("maxwell", "events");
-				file.deleteOnExit();
-				os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+						for ( T element : block )
+							codec.write(os, element);
+					}
+				} catch ( IOException e ) {
+					fail(e);
+				}
+
+				synchronized ( ListWithDiskBuffer.this ) {
+					blocksInFlight--;
+					elementsInFlight -= block.size();
+					elementsInFile += block.size();
+					startWriteIfIdle();
+					ListWithDiskBuffer.this.notifyAll();
+				}
+			}
+		});
+	}
+
+	/* starts reading the next elements back from the store, if there's room for them */
+	private void startReadAhead() {
+		if ( elementsReading > 0 || elementsInFile == 0 || readAhead.size() > READ_AHEAD / 2 )
+			return;
+
+		final int n = (int) Math.min(READ_AHEAD, elementsInFile);
+		elementsInFile -= n;
+		elementsReading = n;
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				ArrayList<T> elements = new ArrayList<>(n);
+				try {
+					if ( !isClosed() ) {
+						for ( int i = 0; i < n; i++ )
+							elements.add(codec.read(is));
+					}
+				} catch ( IOException e ) {
+					fail(e);
+				}
+
+				synchronized ( ListWithDiskBuffer.this ) {
+					readAhead.addAll(elements);
+					elementsReading = 0;
+
+					// caught up with the writes: the segments go back to the pool for the next spill
+					if ( elementsInFile == 0 && blocksInFlight == 0 )
+						closeStore();
+
+					ListWithDiskBuffer.this.notifyAll();
+				}
 			}
+		});
+	}
 
-			if ( elementsInFile == 0 )
-				LOGGER.debug("Overflowed in-memory buffer, spilling over into " + file);
+	private void waitForSpill() throws IOException {
+		long start = System.nanoTime();
+		try {
+			wait();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted waiting on spill I/O for " + name);
+		} finally {
+			executor.waited(System.nanoTime() - start);
+		}
+		checkFailure();
+	}
+
+	private synchronized void fail(IOException e) {
+		if ( failure == null )
+			failure = e;
+	}
 
-			os.writeObject(this.list.removeFirst());
+	private void checkFailure() throws IOException {
+		if ( failure != null )
+			throw new IOException("spilling " + name + " failed", failure);
+	}
 
-			elementsInFile++;
+	private synchronized boolean isClosed() {
+		return closed;
+	}
 
-			if ( elementsInFile % maxInMemoryElements == 0 )
-				os.reset(); // flush ObjectOutputStream caches
+	/* tells the manager how our in-memory size has moved; never called holding our lock */
+	private void report() throws IOException {
+		if ( manager == null )
+			return;
+
+		long delta;
+		synchronized ( this ) {
+			delta = inMemoryBytes - reportedBytes;
+			reportedBytes = inMemoryBytes;
 		}
+
+		if ( delta != 0 )
+			manager.changed(delta);
 	}
 
-	public void flushToDisk() throws IOException {
-		if ( os != null )
-			os.flush();
+	/* waits until every spilled element has been written out */
+	public synchronized void flushToDisk() throws IOException {
+		checkFailure();
+		while ( !outgoing.isEmpty() || blocksInFlight > 0 ) {
+			startWriteIfIdle();
+			waitForSpill();
+		}
 	}
 
 	public boolean isEmpty() {
 		return this.size() == 0;
 	}
 
-	public T getLast() {
+	public synchronized T getLast() {
 		return list.getLast();
 	}
 
-	public T removeFirst(Class<T> clazz) throws IOException, ClassNotFoundException {
-		if ( elementsInFile > 0 ) {
-			if ( is == null ) {
-				os.flush();
-				is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+	public T removeFirst() throws IOException {
+		T element;
+		synchronized ( this ) {
+			checkFailure();
+
+			while ( readAhead.isEmpty() && (elementsReading > 0 || elementsInFile > 0 || blocksInFlight > 0) ) {
+				startReadAhead();
+				waitForSpill();
 			}
 
-			Object object = is.readObject();
-			T element = clazz.cast(object);
-			elementsInFile--;
+			if ( !readAhead.isEmpty() ) {
+				element = readAhead.removeFirst();
+				startReadAhead();
+				return element;
+			}
+
+			// nothing's gone to disk: whatever was on its way can be had straight from memory
+			if ( !outgoing.isEmpty() ) {
+				element = outgoing.removeFirst();
+				return element;
+			}
 
-			return element;
-		} else {
-			return list.removeFirst();
+			element = list.removeFirst();
+			inMemoryBytes -= sizes.removeFirst();
 		}
+
+		report();
+		return element;
 	}
 
-	public Long size() {
-		return list.size() + elementsInFile;
+	public synchronized Long size() {
+		return list.size() + outgoing.size() + elementsInFlight + elementsInFile + elementsReading + readAhead.size();
 	}
 
-	public Long inMemorySize() {
+	public synchronized Long inMemorySize() {
 		return Long.valueOf(list.size());
 	}
 
+	/* the codec's estimate of the elements held in memory */
+	public synchronized long inMemoryBytes() {
+		return inMemoryBytes;
+	}
+
+	long getLastAddedAt() {
+		return lastAddedAt;
+	}
+
+	// on the executor's thread
+	private void closeStore() {
+		if ( store != null ) {
+			store.close();
+			store = null;
+			is = null;
+			os = null;
+		}
+	}
+
+	/*
+	   gives any spilled-but-unread segments back to the pool, and stops
+	   counting against the memory manager; the buffer can't be used after.
+	 */
+	public void close() {
+		long bytes;
+		synchronized ( this ) {
+			if ( closed )
+				return;
+
+			closed = true;
+			bytes = reportedBytes;
+			reportedBytes = 0;
+		}
+
+		// after anything already handed over
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				closeStore();
+			}
+		});
+
+		if ( manager != null )
+			manager.unregister(this, bytes);
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		try {
-			file.delete();
+			close();
 		} finally {
 			super.finalize();
 		}
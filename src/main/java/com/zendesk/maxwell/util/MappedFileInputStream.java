@@ -0,0 +1,64 @@
+package com.zendesk.maxwell.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+   an InputStream over a read-only memory mapping of a whole file.  Reads are
+   copies out of the page cache, with no read() syscall per buffer-full.
+
+   Mappings are limited to 2GB, which is well above MySQL's 1GB cap on
+   max_binlog_size.
+ */
+public class MappedFileInputStream extends InputStream {
+	private final MappedByteBuffer buffer;
+
+	public MappedFileInputStream(File file) throws IOException {
+		try ( RandomAccessFile raf = new RandomAccessFile(file, "r") ) {
+			FileChannel channel = raf.getChannel();
+
+			if ( channel.size() > Integer.MAX_VALUE )
+				throw new IOException("can't map " + file + ": file is larger than 2GB");
+
+			// the mapping stays valid after the channel is closed.
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	@Override
+	public int read() {
+		if ( !buffer.hasRemaining() )
+			return -1;
+
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if ( len == 0 )
+			return 0;
+
+		if ( !buffer.hasRemaining() )
+			return -1;
+
+		len = Math.min(len, buffer.remaining());
+		buffer.get(b, off, len);
+		return len;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
@@ -0,0 +1,20 @@
+package com.zendesk.maxwell.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/*
+   sizes up the elements a ListWithDiskBuffer holds, and writes and reads
+   back the ones it spills to disk.
+   A buffer has one codec, and reads its elements back in the order it wrote
+   them, so a codec may keep state across records (a table of strings it has
+   already written, say) as long as reading rebuilds it in the same order.
+ */
+public interface RecordCodec<T> {
+	/* roughly how many bytes of heap `element` takes up while it's held in memory */
+	long estimateSize(T element);
+
+	void write(DataOutputStream out, T element) throws IOException;
+	T read(DataInputStream in) throws IOException;
+}
@@ -0,0 +1,179 @@
+package com.zendesk.maxwell.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+   a bounded, lock-free queue for exactly one producer thread and one consumer
+   thread.  The producer only ever writes `tail`, the consumer only ever writes
+   `head`, so handing off an element is a plain array store plus an ordered
+   counter update -- no locks, and with the BLOCKING strategy a thread is only
+   parked/unparked when the buffer actually runs full or empty.
+
+   The consumer may push a single element back onto the head of the queue,
+   which the next poll() will return.
+ */
+public class RingBuffer<T> {
+	public enum WaitStrategy {
+		BLOCKING,  // park the waiting thread until the other side makes progress
+		YIELDING,  // spin, yielding the cpu between checks
+		BUSY_SPIN; // spin without yielding.  lowest latency, burns a core.
+
+		public static WaitStrategy parse(String s) {
+			return WaitStrategy.valueOf(s.toUpperCase());
+		}
+	}
+
+	private final Object[] entries;
+	private final int mask;
+	private final WaitStrategy waitStrategy;
+
+	private final AtomicLong head = new AtomicLong(0); // next slot to read
+	private final AtomicLong tail = new AtomicLong(0); // next slot to write
+
+	private volatile Thread waitingConsumer;
+	private volatile Thread waitingProducer;
+
+	private T pushedBack; // only touched by the consumer
+
+	public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+		if ( capacity < 1 )
+			throw new IllegalArgumentException("RingBuffer capacity must be positive");
+
+		int size = Integer.highestOneBit(capacity);
+		if ( size < capacity )
+			size <<= 1;
+
+		this.entries = new Object[size];
+		this.mask = size - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	public int capacity() {
+		return entries.length;
+	}
+
+	/* the number of elements waiting to be polled.  approximate if called from a third thread */
+	public int size() {
+		return (int) (tail.get() - head.get()) + (pushedBack == null ? 0 : 1);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/* producer side: returns false if no room opened up within the timeout. */
+	public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+		long t = tail.get();
+		long wrapPoint = t - entries.length;
+
+		if ( head.get() <= wrapPoint ) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+			while ( head.get() <= wrapPoint ) {
+				if ( !await(deadline, true) )
+					return false;
+			}
+		}
+
+		entries[(int) t & mask] = element;
+		tail.set(t + 1);
+
+		if ( waitStrategy == WaitStrategy.BLOCKING ) {
+			Thread consumer = waitingConsumer;
+			if ( consumer != null )
+				LockSupport.unpark(consumer);
+		}
+
+		return true;
+	}
+
+	/* consumer side: returns null if nothing arrived within the timeout. */
+	@SuppressWarnings("unchecked")
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		if ( pushedBack != null ) {
+			T element = pushedBack;
+			pushedBack = null;
+			return element;
+		}
+
+		long h = head.get();
+
+		if ( tail.get() <= h ) {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+			while ( tail.get() <= h ) {
+				if ( !await(deadline, false) )
+					return null;
+			}
+		}
+
+		int index = (int) h & mask;
+		T element = (T) entries[index];
+		entries[index] = null;
+		head.set(h + 1);
+
+		if ( waitStrategy == WaitStrategy.BLOCKING ) {
+			Thread producer = waitingProducer;
+			if ( producer != null )
+				LockSupport.unpark(producer);
+		}
+
+		return element;
+	}
+
+	/*
+	   consumer side: return an element to the head of the queue, so that it's
+	   the next thing poll() hands out.  Only one element may be pushed back at a time.
+	 */
+	public void pushBack(T element) {
+		if ( pushedBack != null )
+			throw new IllegalStateException("RingBuffer already has an element pushed back");
+
+		pushedBack = element;
+	}
+
+	private boolean await(long deadline, boolean isProducer) throws InterruptedException {
+		long remaining = deadline - System.nanoTime();
+		if ( remaining <= 0 )
+			return false;
+
+		if ( Thread.interrupted() )
+			throw new InterruptedException();
+
+		switch ( waitStrategy ) {
+			case BUSY_SPIN:
+				break;
+			case YIELDING:
+				Thread.yield();
+				break;
+			case BLOCKING:
+				Thread self = Thread.currentThread();
+
+				if ( isProducer )
+					waitingProducer = self;
+				else
+					waitingConsumer = self;
+
+				// the other side re-checks for a waiter only after publishing, so
+				// re-check our condition once more before going to sleep.
+				if ( !hasProgressed(isProducer) )
+					LockSupport.parkNanos(this, remaining);
+
+				if ( isProducer )
+					waitingProducer = null;
+				else
+					waitingConsumer = null;
+				break;
+		}
+		return true;
+	}
+
+	private boolean hasProgressed(boolean isProducer) {
+		if ( isProducer )
+			return tail.get() - head.get() < entries.length;
+		else
+			return tail.get() > head.get();
+	}
+}
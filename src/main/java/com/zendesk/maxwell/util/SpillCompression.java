@@ -0,0 +1,124 @@
+package com.zendesk.maxwell.util;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+   how a SpillStore compresses what it writes.  Compression is done a block
+   at a time (see SpillStore), so reading back never needs more than the
+   block it's in the middle of.
+ */
+public enum SpillCompression {
+	NONE {
+		@Override
+		public Compressor newCompressor() {
+			return null;
+		}
+	},
+
+	// roughly halves what's spilled, at about half the speed of not compressing.
+	LZ4 {
+		@Override
+		public Compressor newCompressor() {
+			final LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+			final LZ4FastDecompressor decompressor = LZ4_FACTORY.fastDecompressor();
+
+			return new Compressor() {
+				@Override
+				public int compress(byte[] src, int length, byte[] dst) {
+					try {
+						return compressor.compress(src, 0, length, dst, 0, dst.length);
+					} catch ( LZ4Exception e ) {
+						return 0;
+					}
+				}
+
+				@Override
+				public void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+					try {
+						decompressor.decompress(src, 0, dst, 0, rawLength);
+					} catch ( LZ4Exception e ) {
+						throw new IOException("corrupt lz4 spill block", e);
+					}
+				}
+
+				@Override
+				public void close() { }
+			};
+		}
+	},
+
+	// another 20-35% smaller than lz4, but several times slower; for when disk space is what's short.
+	DEFLATE {
+		@Override
+		public Compressor newCompressor() {
+			final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+			final Inflater inflater = new Inflater(true);
+
+			return new Compressor() {
+				@Override
+				public int compress(byte[] src, int length, byte[] dst) {
+					deflater.reset();
+					deflater.setInput(src, 0, length);
+					deflater.finish();
+
+					int n = deflater.deflate(dst, 0, dst.length);
+					return deflater.finished() ? n : 0;
+				}
+
+				@Override
+				public void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+					inflater.reset();
+					inflater.setInput(src, 0, length);
+					try {
+						int n = 0;
+						while ( n < rawLength && !inflater.finished() ) {
+							int read = inflater.inflate(dst, n, rawLength - n);
+							if ( read == 0 && (inflater.needsInput() || inflater.needsDictionary()) )
+								break;
+							n += read;
+						}
+
+						if ( n != rawLength )
+							throw new IOException("short deflate spill block: " + n + " of " + rawLength + " bytes");
+					} catch ( DataFormatException e ) {
+						throw new IOException("corrupt deflate spill block", e);
+					}
+				}
+
+				@Override
+				public void close() {
+					deflater.end();
+					inflater.end();
+				}
+			};
+		}
+	};
+
+	private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+	/*
+	   compresses and decompresses the blocks of one store; not thread-safe,
+	   and holds native memory (for deflate) until closed.
+	 */
+	public interface Compressor {
+		/* compresses `length` bytes of `src` into `dst`, returning 0 if they don't fit */
+		int compress(byte[] src, int length, byte[] dst);
+		void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException;
+		void close();
+	}
+
+	/* null for NONE: the store writes straight through */
+	public abstract Compressor newCompressor();
+
+	public static SpillCompression parse(String s) {
+		return SpillCompression.valueOf(s.toUpperCase());
+	}
+}
@@ -0,0 +1,72 @@
+package com.zendesk.maxwell.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+   the thread that ListWithDiskBuffers do their spill I/O on -- encoding and
+   writing out blocks of spilled elements, and reading the next block back
+   ahead of the consumer -- so the thread adding to a buffer doesn't wait on
+   it.  One thread for every buffer of a MaxwellContext (buffers made without
+   one share DEFAULT): each buffer's SpillStore is only ever touched from
+   here, in the order its work was handed over.
+
+   Buffers time whatever waiting they do on it (when they've handed over as
+   much as they may and the writes haven't caught up, or they need a block
+   that isn't read back yet) into getWaitTimer().
+ */
+public class SpillExecutor {
+	public static final SpillExecutor DEFAULT = new SpillExecutor();
+
+	private final ThreadPoolExecutor executor;
+	private final Timer waits = new Timer();
+
+	public SpillExecutor() {
+		this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "maxwell-spill");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	void execute(Runnable r) {
+		executor.execute(r);
+	}
+
+	void waited(long nanos) {
+		waits.update(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public Timer getWaitTimer() {
+		return waits;
+	}
+
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/* lets whatever's been handed over finish, then stops the thread */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public void registerMetrics(MetricRegistry metrics) {
+		metrics.register("spill.wait", waits);
+		metrics.register("spill.queue", new Gauge<Integer>() {
+			@Override
+			public Integer getValue() {
+				return getQueueSize();
+			}
+		});
+	}
+}
@@ -0,0 +1,206 @@
+package com.zendesk.maxwell.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/*
+   an append-only run of bytes in memory-mapped segments from a
+   SpillSegmentPool, which -- unlike a SpillStore -- can be read back from
+   any offset, in any order.
+
+   Whoever writes marks each record it appends with retain(start, end), and
+   each record it's done with with release(start, end); a segment goes back
+   to the pool once nothing retained touches it.  When nothing at all is
+   retained the log starts over from offset 0.
+
+   Not thread-safe.
+ */
+public class SpillLog {
+	private final SpillSegmentPool pool;
+	private final int segmentSize;
+
+	// by segment number; released segments are left as nulls
+	private final ArrayList<SpillSegmentPool.Segment> segments = new ArrayList<>();
+	private final ArrayList<Integer> retained = new ArrayList<>();
+	private long retainedRecords = 0;
+	// segments before this have been written past, and can go as soon as they're unused
+	private int sealed = 0;
+
+	private long end = 0;
+	private ByteBuffer writeBuffer;
+	private ByteBuffer readBuffer;
+	private long readPosition;
+
+	private final OutputStream out = new OutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			if ( !writeBuffer().hasRemaining() )
+				nextWriteSegment();
+			writeBuffer.put((byte) b);
+			end++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while ( len > 0 ) {
+				if ( !writeBuffer().hasRemaining() )
+					nextWriteSegment();
+
+				int n = Math.min(len, writeBuffer.remaining());
+				writeBuffer.put(b, off, n);
+				end += n;
+				off += n;
+				len -= n;
+			}
+		}
+	};
+
+	private final InputStream in = new InputStream() {
+		@Override
+		public int read() throws IOException {
+			if ( !readBuffer().hasRemaining() )
+				readBuffer = null;
+
+			int b = readBuffer().get() & 0xFF;
+			readPosition++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if ( len == 0 )
+				return 0;
+
+			if ( !readBuffer().hasRemaining() )
+				readBuffer = null;
+
+			int n = Math.min(len, readBuffer().remaining());
+			readBuffer.get(b, off, n);
+			readPosition += n;
+			return n;
+		}
+	};
+
+	public SpillLog(SpillSegmentPool pool) {
+		this.pool = pool;
+		this.segmentSize = pool.getSegmentSize();
+	}
+
+	/* appends at getEnd() */
+	public OutputStream getOutputStream() {
+		return out;
+	}
+
+	/* reads from wherever the last seek() put it */
+	public InputStream getInputStream() {
+		return in;
+	}
+
+	/* the offset the next byte written will land at */
+	public long getEnd() {
+		return end;
+	}
+
+	public void seek(long offset) {
+		readPosition = offset;
+		readBuffer = null;
+	}
+
+	/* how many segments the log holds right now */
+	public int getSegmentCount() {
+		int n = 0;
+		for ( SpillSegmentPool.Segment s : segments ) {
+			if ( s != null )
+				n++;
+		}
+		return n;
+	}
+
+	/* marks [start, end) as in use, keeping the segments under it */
+	public void retain(long start, long end) {
+		for ( int i = segmentOf(start); i <= segmentOf(end - 1); i++ )
+			retained.set(i, retained.get(i) + 1);
+		retainedRecords++;
+
+		// a segment whose records were all released while it was still being written to
+		for ( ; sealed < segmentOf(start); sealed++ ) {
+			if ( retained.get(sealed) == 0 )
+				releaseSegment(sealed);
+		}
+	}
+
+	/* [start, end) has been read for the last time; hands back any segment it leaves unused */
+	public void release(long start, long end) {
+		for ( int i = segmentOf(start); i <= segmentOf(end - 1); i++ ) {
+			int n = retained.get(i) - 1;
+			retained.set(i, n);
+
+			// the segment being written to stays, unless the whole log is going
+			if ( n == 0 && i < segments.size() - 1 )
+				releaseSegment(i);
+		}
+
+		if ( --retainedRecords == 0 )
+			reset();
+	}
+
+	/* returns every segment to the pool; the log can be written again from offset 0 */
+	public void reset() {
+		for ( int i = 0; i < segments.size(); i++ )
+			releaseSegment(i);
+
+		segments.clear();
+		retained.clear();
+		retainedRecords = 0;
+		sealed = 0;
+		end = 0;
+		writeBuffer = null;
+		readBuffer = null;
+	}
+
+	private int segmentOf(long offset) {
+		return (int) (offset / segmentSize);
+	}
+
+	private void releaseSegment(int i) {
+		SpillSegmentPool.Segment s = segments.get(i);
+		if ( s != null ) {
+			pool.release(s);
+			segments.set(i, null);
+		}
+	}
+
+	private ByteBuffer writeBuffer() throws IOException {
+		if ( writeBuffer == null )
+			nextWriteSegment();
+		return writeBuffer;
+	}
+
+	private void nextWriteSegment() throws IOException {
+		SpillSegmentPool.Segment s = pool.acquire();
+		segments.add(s);
+		retained.add(0);
+
+		writeBuffer = s.buffer.duplicate();
+		writeBuffer.clear();
+	}
+
+	private ByteBuffer readBuffer() throws IOException {
+		if ( readBuffer == null ) {
+			if ( readPosition >= end )
+				throw new IOException("read past the end of the spill log");
+
+			SpillSegmentPool.Segment s = segments.get(segmentOf(readPosition));
+			if ( s == null )
+				throw new IOException("read from a released segment of the spill log");
+
+			readBuffer = s.buffer.duplicate();
+			readBuffer.clear();
+			readBuffer.position((int) (readPosition % segmentSize));
+		}
+		return readBuffer;
+	}
+}
@@ -0,0 +1,110 @@
+package com.zendesk.maxwell.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+/*
+   fixed-size, memory-mapped temp files for SpillStores to write into.  A
+   segment a store is done with comes back here and is handed to the next
+   store that needs one, mapping and all, so a busy server isn't creating,
+   mapping and deleting a temp file for every transaction that spills.  Up to
+   `maxIdleSegments` are kept around; past that, returned segments are
+   deleted.
+
+   Each MaxwellContext has its own, compressing as its `spill_compression`
+   says; DEFAULT (uncompressed) serves buffers made without one.  Thread-safe.
+ */
+public class SpillSegmentPool {
+	static final Logger LOGGER = LoggerFactory.getLogger(SpillSegmentPool.class);
+
+	public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+	public static final int DEFAULT_MAX_IDLE_SEGMENTS = 8;
+
+	public static final SpillSegmentPool DEFAULT = new SpillSegmentPool(DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_IDLE_SEGMENTS);
+
+	static class Segment {
+		final File file;
+		final MappedByteBuffer buffer;
+
+		Segment(File file, MappedByteBuffer buffer) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+	}
+
+	private final int segmentSize;
+	private final int maxIdleSegments;
+	private final ArrayDeque<Segment> idle = new ArrayDeque<>();
+
+	private final SpillCompression compression;
+
+	private long segmentsCreated = 0;
+
+	public SpillSegmentPool(int segmentSize, int maxIdleSegments, SpillCompression compression) {
+		this.segmentSize = segmentSize;
+		this.maxIdleSegments = maxIdleSegments;
+		this.compression = compression;
+	}
+
+	public SpillSegmentPool(int segmentSize, int maxIdleSegments) {
+		this(segmentSize, maxIdleSegments, SpillCompression.NONE);
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/* how stores writing into this pool's segments compress */
+	public SpillCompression getCompression() {
+		return compression;
+	}
+
+	public synchronized int getIdleSegments() {
+		return idle.size();
+	}
+
+	public synchronized long getSegmentsCreated() {
+		return segmentsCreated;
+	}
+
+	Segment acquire() throws IOException {
+		synchronized ( this ) {
+			Segment s = idle.pollFirst();
+			if ( s != null )
+				return s;
+
+			segmentsCreated++;
+		}
+
+		File file = File.createTempFile("maxwell", ".spill");
+		file.deleteOnExit();
+
+		try ( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+			raf.setLength(segmentSize);
+			// the mapping stays valid after the channel is closed.
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+			LOGGER.debug("mapped new spill segment " + file);
+			return new Segment(file, buffer);
+		}
+	}
+
+	void release(Segment s) {
+		synchronized ( this ) {
+			if ( idle.size() < maxIdleSegments ) {
+				idle.addFirst(s);
+				return;
+			}
+		}
+
+		// the mapping itself goes when the buffer is collected
+		if ( !s.file.delete() )
+			LOGGER.debug("couldn't delete spill segment " + s.file);
+	}
+}
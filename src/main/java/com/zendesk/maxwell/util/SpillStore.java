@@ -0,0 +1,289 @@
+package com.zendesk.maxwell.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/*
+   a first-in, first-out run of bytes kept in memory-mapped segments from a
+   SpillSegmentPool.  Bytes written to getOutputStream() come back out of
+   getInputStream() in the same order; writes fill a segment and carry on
+   into a fresh one, so a record may span segments, and each segment goes
+   back to the pool as soon as everything in it has been read.
+
+   With a SpillCompression other than NONE (the pool's), bytes are gathered
+   into BLOCK_SIZE blocks and each is compressed on its way into the
+   segments, behind an 8 byte header:
+
+     [raw length][compressed length, or 0 if it's stored as is][bytes]
+
+   A read that catches up with the writes compresses and writes out the
+   partly filled block first, so reads can still follow right behind writes.
+
+   Whoever reads must not read past what's been written (ListWithDiskBuffer
+   counts its records), and a store is used by one thread at a time.
+ */
+public class SpillStore {
+	private final SpillSegmentPool pool;
+	// oldest (being read) first, newest (being written) last
+	private final ArrayDeque<SpillSegmentPool.Segment> segments = new ArrayDeque<>();
+
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	private ByteBuffer writeBuffer;
+	private ByteBuffer readBuffer;
+	private long bytesWritten = 0;
+
+	private final SpillCompression.Compressor compressor;
+	private final OutputStream out;
+	private final InputStream in;
+
+	// the block being filled, and the one being read; compressed blocks pass through `compressed`
+	private byte[] writeBlock;
+	private int writeBlockLength;
+	private byte[] readBlock;
+	private int readBlockPosition;
+	private int readBlockLength;
+	private byte[] compressed;
+	private final byte[] header = new byte[8];
+	private long blocksWritten = 0;
+	private long blocksRead = 0;
+
+	private final OutputStream segmentOut = new OutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			if ( !writeBuffer().hasRemaining() )
+				nextWriteSegment();
+			writeBuffer.put((byte) b);
+			bytesWritten++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while ( len > 0 ) {
+				if ( !writeBuffer().hasRemaining() )
+					nextWriteSegment();
+
+				int n = Math.min(len, writeBuffer.remaining());
+				writeBuffer.put(b, off, n);
+				bytesWritten += n;
+				off += n;
+				len -= n;
+			}
+		}
+	};
+
+	private final InputStream segmentIn = new InputStream() {
+		@Override
+		public int read() throws IOException {
+			if ( !readBuffer().hasRemaining() )
+				nextReadSegment();
+			return readBuffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if ( len == 0 )
+				return 0;
+
+			if ( !readBuffer().hasRemaining() )
+				nextReadSegment();
+
+			int n = Math.min(len, readBuffer.remaining());
+			readBuffer.get(b, off, n);
+			return n;
+		}
+	};
+
+	private final OutputStream blockOut = new OutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			if ( writeBlockLength == BLOCK_SIZE )
+				writeBlock();
+			writeBlock[writeBlockLength++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while ( len > 0 ) {
+				if ( writeBlockLength == BLOCK_SIZE )
+					writeBlock();
+
+				int n = Math.min(len, BLOCK_SIZE - writeBlockLength);
+				System.arraycopy(b, off, writeBlock, writeBlockLength, n);
+				writeBlockLength += n;
+				off += n;
+				len -= n;
+			}
+		}
+	};
+
+	private final InputStream blockIn = new InputStream() {
+		@Override
+		public int read() throws IOException {
+			if ( readBlockPosition == readBlockLength )
+				readBlock();
+			return readBlock[readBlockPosition++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if ( len == 0 )
+				return 0;
+
+			if ( readBlockPosition == readBlockLength )
+				readBlock();
+
+			int n = Math.min(len, readBlockLength - readBlockPosition);
+			System.arraycopy(readBlock, readBlockPosition, b, off, n);
+			readBlockPosition += n;
+			return n;
+		}
+	};
+
+	public SpillStore(SpillSegmentPool pool) {
+		this(pool, pool.getCompression());
+	}
+
+	public SpillStore(SpillSegmentPool pool, SpillCompression compression) {
+		this.pool = pool;
+		this.compressor = compression.newCompressor();
+
+		if ( compressor == null ) {
+			this.out = segmentOut;
+			this.in = segmentIn;
+		} else {
+			this.out = blockOut;
+			this.in = blockIn;
+			this.writeBlock = new byte[BLOCK_SIZE];
+			this.readBlock = new byte[BLOCK_SIZE];
+			this.compressed = new byte[BLOCK_SIZE];
+		}
+	}
+
+	public OutputStream getOutputStream() {
+		return out;
+	}
+
+	public InputStream getInputStream() {
+		return in;
+	}
+
+	/* bytes that have gone into the segments, after compression */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	/* how many segments the store holds right now */
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	private ByteBuffer writeBuffer() throws IOException {
+		if ( writeBuffer == null )
+			nextWriteSegment();
+		return writeBuffer;
+	}
+
+	private void nextWriteSegment() throws IOException {
+		SpillSegmentPool.Segment s = pool.acquire();
+		segments.addLast(s);
+
+		writeBuffer = s.buffer.duplicate();
+		writeBuffer.clear();
+
+		if ( readBuffer == null ) {
+			readBuffer = s.buffer.duplicate();
+			readBuffer.clear();
+		}
+	}
+
+	private ByteBuffer readBuffer() throws IOException {
+		if ( readBuffer == null )
+			throw new IOException("read past the end of the spill store");
+		return readBuffer;
+	}
+
+	/* the read segment is used up: hand it back, and read on from the next one */
+	private void nextReadSegment() throws IOException {
+		if ( segments.size() < 2 )
+			throw new IOException("read past the end of the spill store");
+
+		pool.release(segments.removeFirst());
+
+		readBuffer = segments.peekFirst().buffer.duplicate();
+		readBuffer.clear();
+	}
+
+	private void writeBlock() throws IOException {
+		if ( writeBlockLength == 0 )
+			return;
+
+		int n = compressor.compress(writeBlock, writeBlockLength, compressed);
+
+		putInt(header, 0, writeBlockLength);
+		putInt(header, 4, n);
+		segmentOut.write(header, 0, 8);
+		if ( n > 0 )
+			segmentOut.write(compressed, 0, n);
+		else
+			segmentOut.write(writeBlock, 0, writeBlockLength);
+
+		writeBlockLength = 0;
+		blocksWritten++;
+	}
+
+	private void readBlock() throws IOException {
+		if ( blocksRead == blocksWritten )
+			writeBlock();
+		if ( blocksRead == blocksWritten )
+			throw new IOException("read past the end of the spill store");
+
+		readFully(header, 8);
+		int rawLength = getInt(header, 0);
+		int compressedLength = getInt(header, 4);
+
+		if ( compressedLength == 0 ) {
+			readFully(readBlock, rawLength);
+		} else {
+			readFully(compressed, compressedLength);
+			compressor.decompress(compressed, compressedLength, readBlock, rawLength);
+		}
+
+		readBlockPosition = 0;
+		readBlockLength = rawLength;
+		blocksRead++;
+	}
+
+	private void readFully(byte[] b, int len) throws IOException {
+		int off = 0;
+		while ( off < len )
+			off += segmentIn.read(b, off, len - off);
+	}
+
+	private static void putInt(byte[] b, int off, int v) {
+		b[off] = (byte) (v >>> 24);
+		b[off + 1] = (byte) (v >>> 16);
+		b[off + 2] = (byte) (v >>> 8);
+		b[off + 3] = (byte) v;
+	}
+
+	private static int getInt(byte[] b, int off) {
+		return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+	}
+
+	/* returns every segment to the pool; the store can't be used after this */
+	public void close() {
+		SpillSegmentPool.Segment s;
+		while ( (s = segments.pollFirst()) != null )
+			pool.release(s);
+
+		writeBuffer = null;
+		readBuffer = null;
+
+		if ( compressor != null )
+			compressor.close();
+	}
+}
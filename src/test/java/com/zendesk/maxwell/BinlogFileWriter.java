@@ -0,0 +1,132 @@
+package com.zendesk.maxwell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/*
+   writes a minimal MySQL 5.5-format binlog file (no checksums): enough event
+   types to replay simple transactions of INT columns and DDL, for testing the
+   offline reader without a server.
+ */
+public class BinlogFileWriter {
+	private static final byte[] MAGIC = { (byte) 0xfe, 0x62, 0x69, 0x6e };
+	private static final int HEADER_LENGTH = 19;
+
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+	private final File file;
+
+	public BinlogFileWriter(File file) throws IOException {
+		this.file = file;
+		out.write(MAGIC);
+
+		Body fde = new Body();
+		fde.int2(4);
+		byte[] version = new byte[50];
+		byte[] v = "5.5.40-log".getBytes("UTF-8");
+		System.arraycopy(v, 0, version, 0, v.length);
+		fde.bytes(version);
+		fde.int4(0);
+		fde.int1(HEADER_LENGTH);
+		fde.bytes(new byte[] { 56, 13, 0, 8, 0, 18, 0, 4, 4, 4, 4, 18, 0, 0, 0, 0, 0, 0, 0, 8, 8, 8, 8, 8, 8, 8, 8 });
+		event(15, fde);
+	}
+
+	private static class Body extends ByteArrayOutputStream {
+		void int1(int v) { write(v & 0xff); }
+		void int2(int v) { int1(v); int1(v >> 8); }
+		void int4(long v) { int2((int) v); int2((int) (v >> 16)); }
+		void int6(long v) { int4(v); int2((int) (v >> 32)); }
+		void int8(long v) { int4(v); int4(v >> 32); }
+		void bytes(byte[] b) { write(b, 0, b.length); }
+	}
+
+	/* the offset the next event will be written at */
+	public long position() {
+		return out.size();
+	}
+
+	private void event(int type, Body body) {
+		long length = HEADER_LENGTH + body.size();
+
+		Body header = new Body();
+		header.int4(1400000000L);
+		header.int1(type);
+		header.int4(1);
+		header.int4(length);
+		header.int4(out.size() + length);
+		header.int2(0);
+
+		out.write(header.toByteArray(), 0, header.size());
+		out.write(body.toByteArray(), 0, body.size());
+	}
+
+	public void query(String db, String sql) throws IOException {
+		Body b = new Body();
+		b.int4(1);
+		b.int4(0);
+		b.int1(db.length());
+		b.int2(0);
+		b.int2(0);
+		b.bytes(db.getBytes("UTF-8"));
+		b.int1(0);
+		b.bytes(sql.getBytes("UTF-8"));
+		event(2, b);
+	}
+
+	public void tableMap(long tableId, String db, String table, int columns) throws IOException {
+		Body b = new Body();
+		b.int6(tableId);
+		b.int2(1);
+		b.int1(db.length());
+		b.bytes(db.getBytes("UTF-8"));
+		b.int1(0);
+		b.int1(table.length());
+		b.bytes(table.getBytes("UTF-8"));
+		b.int1(0);
+		b.int1(columns);
+		for ( int i = 0; i < columns; i++ )
+			b.int1(3); // MYSQL_TYPE_LONG
+		b.int1(0); // no column metadata
+		b.bytes(new byte[(columns + 7) / 8]); // nothing nullable
+		event(19, b);
+	}
+
+	/* a WRITE_ROWS_EVENT (v1) with one row per array of INT values */
+	public void writeRows(long tableId, int[]... rows) {
+		int columns = rows[0].length;
+
+		Body b = new Body();
+		b.int6(tableId);
+		b.int2(1);
+		b.int1(columns);
+		b.int1((1 << columns) - 1); // all columns present
+
+		for ( int[] row : rows ) {
+			b.int1(0); // no nulls
+			for ( int value : row )
+				b.int4(value);
+		}
+		event(23, b);
+	}
+
+	public void xid(long xid) {
+		Body b = new Body();
+		b.int8(xid);
+		event(16, b);
+	}
+
+	public void transaction(String db, long tableId, String table, long xid, int[]... rows) throws IOException {
+		query(db, "BEGIN");
+		tableMap(tableId, db, table, rows[0].length);
+		writeRows(tableId, rows);
+		xid(xid);
+	}
+
+	public void close() throws IOException {
+		try ( FileOutputStream f = new FileOutputStream(file) ) {
+			out.writeTo(f);
+		}
+	}
+}
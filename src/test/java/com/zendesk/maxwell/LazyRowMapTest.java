@@ -0,0 +1,61 @@
+package com.zendesk.maxwell;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LazyRowMapTest {
+	private Table table = new Table("foo", "bar", "utf8",
+			Arrays.asList(
+				ColumnDef.build("id", "", "int", 0, true, null),
+				ColumnDef.build("n", "", "int", 1, true, null)),
+			Arrays.asList("id"));
+
+	private BitColumn allColumns = BitColumn.valueOf(2, new byte[] { 3 });
+
+	private Row row(int id, int n) {
+		return new Row(Arrays.<Column>asList(LongColumn.valueOf(id), LongColumn.valueOf(n)));
+	}
+
+	private LazyRowMap update(Row after, Row before) {
+		return new LazyRowMap("update", "foo", "bar", 1L, table.getPKList(), new BinlogPosition(3, "mysql.1"),
+				table, after, allColumns, before, allColumns);
+	}
+
+	@Test
+	public void TestConvertsOnAccess() throws Exception {
+		LazyRowMap r = update(row(1, 5), row(1, 4));
+
+		assertThat(r.getData("id"), is((Object) 1L));
+		assertThat(r.getData("n"), is((Object) 5L));
+		assertThat(r.getOldData("n"), is((Object) 4L));
+		assertThat(r.getOldData("id"), is(nullValue()));
+		assertThat(r.pkToJson(), is("{\"database\":\"foo\",\"table\":\"bar\",\"pk.id\":1}"));
+	}
+
+	@Test
+	public void TestSurvivesDiskBuffer() throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(1);
+
+		buffer.add(update(row(1, 5), row(1, 4)));
+		buffer.add(update(row(2, 7), row(2, 6)));
+
+		assertThat(buffer.inMemorySize(), is(1L));
+
+		assertThat(buffer.removeFirst().getData("n"), is((Object) 5L));
+
+		RowMap r = buffer.removeFirst();
+		assertThat(r.getData("id"), is((Object) 2L));
+		assertThat(r.getOldData("n"), is((Object) 6L));
+	}
+}
@@ -0,0 +1,303 @@
+package com.zendesk.maxwell;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.zendesk.maxwell.bootstrap.NoOpBootstrapper;
+import com.zendesk.maxwell.producer.AbstractProducer;
+import com.zendesk.maxwell.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zendesk.maxwell.MaxwellTestSupport.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MaxwellPipelineTest {
+	private Table table;
+	private MaxwellContext context;
+	private final List<RowMap> produced = new ArrayList<>();
+	private final List<String> threads = new ArrayList<>();
+	private final List<Long> positions = new ArrayList<>();
+	private MaxwellPipeline pipeline;
+
+	/* converts slowly, so later events finish converting first */
+	private static class SlowEvent extends MaxwellWriteRowsEvent {
+		private final long sleepMillis;
+
+		SlowEvent(Table table, long nextPosition, long sleepMillis, long... ids) {
+			super(writeRows(nextPosition, ids), table, null);
+			this.sleepMillis = sleepMillis;
+		}
+
+		@Override
+		public List<RowMap> jsonMaps() {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			return super.jsonMaps();
+		}
+	}
+
+	/* records the thread each of its rows' columns get converted on */
+	private static class ConversionThreadEvent extends MaxwellWriteRowsEvent {
+		final List<String> conversionThreads = new ArrayList<>();
+
+		ConversionThreadEvent(Table table, long nextPosition, long... ids) {
+			super(writeRows(nextPosition, ids), table, null);
+		}
+
+		@Override
+		protected RowMap buildRowMap(Row row, BitColumn usedColumns, Row before, BitColumn usedColumnsBefore) {
+			return new LazyRowMap(getType(), "shard_1", "users", 1L, Arrays.asList("id"), getNextBinlogPosition(),
+					getTable(), row, usedColumns, before, usedColumnsBefore) {
+				private boolean converted;
+
+				@Override
+				public void materialize() {
+					if ( !converted ) {
+						converted = true;
+						synchronized ( conversionThreads ) {
+							conversionThreads.add(Thread.currentThread().getName());
+						}
+					}
+					super.materialize();
+				}
+			};
+		}
+	}
+
+	private class RecordingProducer extends AbstractProducer {
+		RecordingProducer(MaxwellContext context) {
+			super(context);
+		}
+
+		@Override
+		public void push(RowMap r) throws Exception {
+			synchronized ( produced ) {
+				produced.add(r);
+				threads.add(Thread.currentThread().getName());
+				if ( r.isTXCommit() )
+					positions.add(r.getPosition().getOffset());
+			}
+		}
+	}
+
+	/* takes every row whose id is a multiple of 5 */
+	private class RecordingBootstrapper extends NoOpBootstrapper {
+		final List<Long> worked = new ArrayList<>();
+
+		RecordingBootstrapper(MaxwellContext context) {
+			super(context);
+		}
+
+		@Override
+		public boolean shouldSkip(RowMap row) {
+			return (Long) row.getData("id") % 5 == 0;
+		}
+
+		@Override
+		public void work(RowMap row, AbstractProducer producer, MaxwellReplicator replicator) throws Exception {
+			synchronized ( produced ) {
+				worked.add((Long) row.getData("id"));
+				produced.add(row);
+				threads.add(Thread.currentThread().getName());
+			}
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		table = buildTable("shard_1", "users");
+		MaxwellConfig config = new MaxwellConfig();
+		config.databaseName = "maxwell";
+		config.replicationMysql.port = 3306;
+		context = new MaxwellContext(config);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if ( pipeline != null )
+			pipeline.stop();
+	}
+
+	private MaxwellPipeline start(AbstractProducer producer, NoOpBootstrapper bootstrapper, boolean streaming) throws Exception {
+		MaxwellReplicator replicator = new MaxwellReplicator(buildSchema(table), producer, bootstrapper, context,
+				new BinlogPosition(4, "mysql-bin.000001"));
+
+		pipeline = new MaxwellPipeline(replicator, new MetricRegistry(), 4, Long.MAX_VALUE, context.getSpillSegmentPool(),
+				context.getSpillExecutor(), null, streaming);
+		pipeline.start();
+		return pipeline;
+	}
+
+	/* 20 transactions of 3 events of 3 rows; early events in each transaction convert slowest */
+	private void sendTransactions(MaxwellPipeline pipeline) throws Exception {
+		long id = 1, position = 100;
+		for ( long tx = 0; tx < 20; tx++ ) {
+			pipeline.begin();
+			for ( int event = 0; event < 3; event++ ) {
+				pipeline.rowsEvent(new SlowEvent(table, position++, (2 - event) * 5, id, id + 1, id + 2));
+				id += 3;
+			}
+			pipeline.commit(1000 + tx);
+		}
+	}
+
+	@Test
+	public void TestKeepsBinlogOrderAcrossWorkers() throws Exception {
+		MaxwellPipeline pipeline = start(new RecordingProducer(context), new NoOpBootstrapper(context), false);
+		sendTransactions(pipeline);
+		pipeline.drain();
+
+		assertThat(produced.size(), is(180));
+		for ( int i = 0; i < produced.size(); i++ ) {
+			RowMap r = produced.get(i);
+			assertThat(r.getData("id"), is((Object) (long) (i + 1)));
+			assertThat(r.getXid(), is(1000L + i / 9));
+			assertThat(r.isTXCommit(), is(i % 9 == 8));
+		}
+	}
+
+	@Test
+	public void TestDrainWaitsForEverythingSubmitted() throws Exception {
+		MaxwellPipeline pipeline = start(new RecordingProducer(context), new NoOpBootstrapper(context), false);
+
+		pipeline.begin();
+		pipeline.rowsEvent(new SlowEvent(table, 100, 200, 1, 2));
+		pipeline.rowsEvent(new SlowEvent(table, 101, 0, 3));
+		pipeline.commit(7L);
+
+		/* still converting */
+		synchronized ( produced ) {
+			assertThat(produced.size(), is(0));
+		}
+
+		pipeline.drain();
+		synchronized ( produced ) {
+			assertThat(produced.size(), is(3));
+			assertThat(produced.get(2).isTXCommit(), is(true));
+		}
+	}
+
+	@Test
+	public void TestConverterFailureReachesReplicatorThread() throws Exception {
+		MaxwellPipeline pipeline = start(new RecordingProducer(context), new NoOpBootstrapper(context), false);
+
+		pipeline.begin();
+		pipeline.rowsEvent(new MaxwellWriteRowsEvent(writeRows(100, 1), table, null) {
+			@Override
+			public List<RowMap> jsonMaps() {
+				throw new IllegalStateException("couldn't convert");
+			}
+		});
+		pipeline.commit(7L);
+
+		Exception caught = null;
+		try {
+			pipeline.drain();
+		} catch ( Exception e ) {
+			caught = e;
+		}
+		assertThat(caught, is(instanceOf(IllegalStateException.class)));
+		assertThat(caught.getMessage(), is("couldn't convert"));
+
+		/* and it keeps being thrown at the replicator until it stops */
+		caught = null;
+		try {
+			pipeline.begin();
+		} catch ( Exception e ) {
+			caught = e;
+		}
+		assertThat(caught, is(instanceOf(IllegalStateException.class)));
+		assertThat(produced.size(), is(0));
+	}
+
+	@Test
+	public void TestBootstrapperWorksOnProducerThreadInOrder() throws Exception {
+		RecordingBootstrapper bootstrapper = new RecordingBootstrapper(context);
+		MaxwellPipeline pipeline = start(new RecordingProducer(context), bootstrapper, false);
+		sendTransactions(pipeline);
+		pipeline.drain();
+
+		assertThat(bootstrapper.worked.size(), is(36));
+		assertThat(produced.size(), is(180));
+		for ( int i = 0; i < produced.size(); i++ ) {
+			assertThat(produced.get(i).getData("id"), is((Object) (long) (i + 1)));
+			assertThat(threads.get(i), is("maxwell-produce"));
+		}
+	}
+
+	@Test
+	public void TestConvertsColumnsOnConverterThreads() throws Exception {
+		MaxwellPipeline pipeline = start(new RecordingProducer(context), new NoOpBootstrapper(context), false);
+
+		ConversionThreadEvent event = new ConversionThreadEvent(table, 100, 1, 2, 3);
+		pipeline.begin();
+		pipeline.rowsEvent(event);
+		pipeline.commit(7L);
+		pipeline.drain();
+
+		assertThat(produced.size(), is(3));
+		assertThat(event.conversionThreads.size(), is(3));
+		for ( String thread : event.conversionThreads )
+			assertThat(thread, startsWith("maxwell-convert-"));
+	}
+
+	private void waitForRows(int count) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while ( System.currentTimeMillis() < deadline ) {
+			synchronized ( produced ) {
+				if ( produced.size() >= count )
+					return;
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void TestStreamsRowsAheadOfCommit() throws Exception {
+		MaxwellPipeline pipeline = start(new RecordingProducer(context), new NoOpBootstrapper(context), true);
+
+		pipeline.begin();
+		pipeline.rowsEvent(writeRowsEvent(table, 100, 1, 2));
+		pipeline.rowsEvent(writeRowsEvent(table, 101, 3));
+		pipeline.rowsEvent(writeRowsEvent(table, 102, 4, 5));
+
+		/* no commit yet: everything but the latest row is already out */
+		waitForRows(4);
+		Thread.sleep(50);
+		synchronized ( produced ) {
+			assertThat(produced.size(), is(4));
+			for ( RowMap r : produced ) {
+				assertThat(r.isTXCommit(), is(false));
+				assertThat(r.getXid(), is(nullValue()));
+			}
+			assertThat(positions.size(), is(0));
+		}
+
+		pipeline.commit(77L);
+		pipeline.drain();
+
+		assertThat(produced.size(), is(5));
+		RowMap last = produced.get(4);
+		assertThat(last.getData("id"), is((Object) 5L));
+		assertThat(last.isTXCommit(), is(true));
+		assertThat(last.getXid(), is(77L));
+		assertThat(last.getPosition().getOffset(), is(102L));
+		for ( int i = 0; i < 4; i++ ) {
+			assertThat(produced.get(i).getData("id"), is((Object) (long) (i + 1)));
+			assertThat(produced.get(i).isTXCommit(), is(false));
+		}
+
+		/* the stored position only ever lands on the commit row */
+		assertThat(positions, is(Arrays.asList(102L)));
+	}
+}
@@ -0,0 +1,115 @@
+package com.zendesk.maxwell;
+
+import com.google.code.or.binlog.impl.event.TableMapEvent;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.schema.Database;
+import com.zendesk.maxwell.schema.Schema;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import com.zendesk.maxwell.schema.ddl.ResolvedSchemaChange;
+import com.zendesk.maxwell.schema.ddl.ResolvedTableDrop;
+import com.zendesk.maxwell.schema.ddl.ResolvedDatabaseAlter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MaxwellTableCacheTest {
+	private Schema schema;
+	private MaxwellFilter filter;
+
+	private Table table(String db, String name) {
+		return new Table(db, name, "utf8",
+				Arrays.asList(ColumnDef.build("id", "", "int", 0, true, null)),
+				Arrays.asList("id"));
+	}
+
+	private TableMapEvent tableMap(long id, String db, String table) {
+		TableMapEvent e = new TableMapEvent();
+		e.setTableId(id);
+		e.setDatabaseName(StringColumn.valueOf(db.getBytes()));
+		e.setTableName(StringColumn.valueOf(table.getBytes()));
+		return e;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		List<Database> dbs = new ArrayList<>();
+		dbs.add(new Database("shard_1", new ArrayList<>(Arrays.asList(table("shard_1", "users"), table("shard_1", "orders"))), "utf8"));
+		dbs.add(new Database("shard_2", new ArrayList<>(Arrays.asList(table("shard_2", "users"))), "utf8"));
+		schema = new Schema(dbs, "utf8", null);
+
+		filter = new MaxwellFilter();
+		filter.excludeTable("orders");
+		filter.blacklistDatabases("shard_2");
+	}
+
+	@Test
+	public void TestVerdicts() throws Exception {
+		MaxwellTableCache cache = new MaxwellTableCache();
+
+		cache.processEvent(schema, filter, tableMap(1, "shard_1", "users"));
+		cache.processEvent(schema, filter, tableMap(2, "shard_1", "orders"));
+		cache.processEvent(schema, filter, tableMap(3, "shard_2", "users"));
+
+		assertThat(cache.getVerdict(1L), is(MaxwellTableCache.Verdict.INCLUDED));
+		assertThat(cache.getTable(1L).getName(), is("users"));
+		assertThat(cache.getVerdict(2L), is(MaxwellTableCache.Verdict.EXCLUDED));
+		assertThat(cache.getVerdict(3L), is(MaxwellTableCache.Verdict.BLACKLISTED));
+		assertThat(cache.getTableName(3L), is("shard_2.users"));
+		assertThat(cache.getVerdict(4L), is(nullValue()));
+	}
+
+	@Test
+	public void TestEvictsLeastRecentlyUsed() throws Exception {
+		MaxwellTableCache cache = new MaxwellTableCache(2);
+
+		cache.processEvent(schema, filter, tableMap(1, "shard_1", "users"));
+		cache.processEvent(schema, filter, tableMap(2, "shard_1", "orders"));
+		cache.getVerdict(1L);
+		cache.processEvent(schema, filter, tableMap(3, "shard_2", "users"));
+
+		assertThat(cache.size(), is(2));
+		assertThat(cache.getVerdict(1L), is(MaxwellTableCache.Verdict.INCLUDED));
+		assertThat(cache.getVerdict(2L), is(nullValue()));
+	}
+
+	@Test
+	public void TestInvalidatesOnlyAffectedTables() throws Exception {
+		MaxwellTableCache cache = new MaxwellTableCache();
+
+		cache.processEvent(schema, filter, tableMap(1, "shard_1", "users"));
+		cache.processEvent(schema, filter, tableMap(2, "shard_1", "orders"));
+		cache.processEvent(schema, filter, tableMap(3, "shard_2", "users"));
+
+		cache.invalidate(schema, Arrays.<ResolvedSchemaChange>asList(new ResolvedTableDrop("shard_1", "ORDERS")));
+		assertThat(cache.size(), is(2));
+		assertThat(cache.getVerdict(2L), is(nullValue()));
+
+		cache.invalidate(schema, Arrays.<ResolvedSchemaChange>asList(new ResolvedDatabaseAlter("shard_2", "latin1")));
+		assertThat(cache.size(), is(1));
+		assertThat(cache.getVerdict(1L), is(MaxwellTableCache.Verdict.INCLUDED));
+	}
+
+	@Test
+	public void TestMovesSurvivorsToTheNewSchema() throws Exception {
+		MaxwellTableCache cache = new MaxwellTableCache();
+
+		cache.processEvent(schema, null, tableMap(1, "shard_1", "users"));
+		cache.processEvent(schema, null, tableMap(2, "shard_1", "orders"));
+		Table oldUsers = cache.getTable(1L);
+
+		Schema updated = schema.copy();
+		updated.findDatabase("shard_1").removeTable("orders");
+		cache.invalidate(updated, Arrays.<ResolvedSchemaChange>asList(new ResolvedTableDrop("shard_1", "orders")));
+
+		assertThat(cache.getVerdict(2L), is(nullValue()));
+		assertThat(cache.getTable(1L), is(sameInstance(updated.findDatabase("shard_1").findTable("users"))));
+		assertThat(cache.getTable(1L), is(not(sameInstance(oldUsers))));
+	}
+}
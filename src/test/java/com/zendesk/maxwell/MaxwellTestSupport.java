@@ -7,9 +7,18 @@ import java.nio.file.*;
 import java.nio.charset.Charset;
 import org.apache.commons.lang.StringUtils;
 
+import com.google.code.or.binlog.impl.event.BinlogEventV4HeaderImpl;
+import com.google.code.or.binlog.impl.event.WriteRowsEvent;
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.UnsignedLong;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
 import com.zendesk.maxwell.bootstrap.*;
 import com.zendesk.maxwell.producer.AbstractProducer;
 import com.zendesk.maxwell.schema.*;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
 import com.zendesk.maxwell.schema.ddl.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -175,4 +184,87 @@ public class MaxwellTestSupport {
 	public static  List<RowMap>getRowsForSQL(MysqlIsolatedServer server, MaxwellFilter filter, String queries[]) throws Exception {
 		return getRowsForSQL(server, filter, queries, null);
 	}
+
+	/* `db`.`name` (id int, name varchar), keyed on id */
+	public static Table buildTable(String db, String name) {
+		return new Table(db, name, "utf8",
+				new ArrayList<>(Arrays.asList(
+					ColumnDef.build("id", "", "int", 0, true, null),
+					ColumnDef.build("name", "utf8", "varchar", 1, true, null))),
+				Arrays.asList("id"));
+	}
+
+	public static Schema buildSchema(Table... tables) {
+		LinkedHashMap<String, Database> dbs = new LinkedHashMap<>();
+		for ( Table t : tables ) {
+			if ( !dbs.containsKey(t.getDatabase()) )
+				dbs.put(t.getDatabase(), new Database(t.getDatabase(), new ArrayList<Table>(), "utf8"));
+			dbs.get(t.getDatabase()).addTable(t);
+		}
+		return new Schema(new ArrayList<>(dbs.values()), "utf8", CaseSensitivity.CASE_SENSITIVE);
+	}
+
+	/*
+	   an insert into a buildTable() table of one row per id, named "row <id>",
+	   ending at `nextPosition` in mysql-bin.000001
+	 */
+	public static MaxwellWriteRowsEvent writeRowsEvent(Table table, long nextPosition, long... ids) {
+		return new MaxwellWriteRowsEvent(writeRows(nextPosition, ids), table, null);
+	}
+
+	public static WriteRowsEvent writeRows(long nextPosition, long... ids) {
+		BinlogEventV4HeaderImpl header = new BinlogEventV4HeaderImpl();
+		header.setTimestamp(1000L);
+		header.setNextPosition(nextPosition);
+
+		List<Row> rows = new ArrayList<>();
+		for ( long id : ids ) {
+			rows.add(new Row(Arrays.<Column>asList(
+					LongColumn.valueOf((int) id),
+					StringColumn.valueOf(("row " + id).getBytes(Charset.forName("UTF-8"))))));
+		}
+
+		WriteRowsEvent e = new WriteRowsEvent(header);
+		e.setBinlogFilename("mysql-bin.000001");
+		e.setColumnCount(UnsignedLong.valueOf(2));
+		e.setUsedColumns(BitColumn.valueOf(2, new byte[] { 3 }));
+		e.setRows(rows);
+		return e;
+	}
+
+	/* a context that records each position it's asked to store, instead of writing it to mysql */
+	public static class PositionContext extends MaxwellContext {
+		private final List<Long> positions = new ArrayList<>();
+
+		public PositionContext(MaxwellConfig config) {
+			super(config);
+		}
+
+		@Override
+		public void setPosition(BinlogPosition position) {
+			synchronized ( positions ) {
+				positions.add(position.getOffset());
+			}
+		}
+
+		public List<Long> getPositions() {
+			synchronized ( positions ) {
+				return new ArrayList<>(positions);
+			}
+		}
+	}
+
+	/* an insert into shard_1.<table> at `offset` in mysql-bin.000001, timestamped now */
+	public static RowMap row(String table, long offset, boolean commit) {
+		long ts = System.currentTimeMillis() / 1000;
+		RowMap r = new RowMap("insert", "shard_1", table, ts, Arrays.asList("id"), new BinlogPosition(offset, "mysql-bin.000001"));
+		r.putData("id", offset);
+		if ( commit )
+			r.setTXCommit();
+		return r;
+	}
+
+	public static RowMap row(long offset, boolean commit) {
+		return row("users", offset, commit);
+	}
 }
@@ -0,0 +1,215 @@
+package com.zendesk.maxwell;
+
+import com.zendesk.maxwell.bootstrap.NoOpBootstrapper;
+import com.zendesk.maxwell.producer.AbstractProducer;
+import com.zendesk.maxwell.schema.Database;
+import com.zendesk.maxwell.schema.Schema;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class OfflineMaxwellReplicatorTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static class CollectingProducer extends AbstractProducer {
+		final List<RowMap> rows = new ArrayList<>();
+		final List<Integer> batchSizes = new ArrayList<>();
+
+		CollectingProducer(MaxwellContext context) {
+			super(context);
+		}
+
+		@Override
+		public void push(RowMap r) throws Exception {
+			rows.add(r);
+		}
+
+		@Override
+		public void pushBatch(List<RowMap> batch) throws Exception {
+			batchSizes.add(batch.size());
+			super.pushBatch(batch);
+		}
+	}
+
+	private Schema buildSchema() {
+		Table users = new Table("shard_1", "users", "utf8",
+				new ArrayList<>(Arrays.asList(ColumnDef.build("id", "", "int", 0, true, null))),
+				Arrays.asList("id"));
+
+		ArrayList<Database> dbs = new ArrayList<>();
+		dbs.add(new Database("shard_1", new ArrayList<>(Arrays.asList(users)), "utf8"));
+		return new Schema(dbs, "utf8", CaseSensitivity.CASE_SENSITIVE);
+	}
+
+	/*
+	   mysql-bin.000001 and .000002 hold a transaction apiece; .000003 adds a
+	   column and then writes a row with it.  Returns the position of the first
+	   event after the format description in .000001.
+	 */
+	private BinlogPosition writeBinlogs(File dir) throws Exception {
+		BinlogFileWriter w = new BinlogFileWriter(new File(dir, "mysql-bin.000001"));
+		BinlogPosition start = new BinlogPosition(w.position(), "mysql-bin.000001");
+		w.transaction("shard_1", 10, "users", 100, new int[] { 1 }, new int[] { 2 });
+		w.close();
+
+		w = new BinlogFileWriter(new File(dir, "mysql-bin.000002"));
+		w.transaction("shard_1", 10, "users", 101, new int[] { 3 });
+		w.close();
+
+		w = new BinlogFileWriter(new File(dir, "mysql-bin.000003"));
+		w.query("shard_1", "ALTER TABLE users ADD COLUMN n INT");
+		w.transaction("shard_1", 11, "users", 102, new int[] { 4, 40 });
+		w.close();
+
+		// not part of this log
+		new BinlogFileWriter(new File(dir, "other-bin.000001")).close();
+		return start;
+	}
+
+	private CollectingProducer replay(int pipelineWorkers, int readers) throws Exception {
+		File dir = folder.newFolder();
+		BinlogPosition start = writeBinlogs(dir);
+
+		MaxwellConfig config = new MaxwellConfig();
+		config.databaseName = "maxwell";
+		config.replicationMysql.port = 3306;
+		config.replayMode = true;
+		config.binlogReaders = readers;
+		config.binlogEventBufferSize = 4;
+		config.pipelineWorkers = pipelineWorkers;
+
+		MaxwellContext context = new MaxwellContext(config);
+		CollectingProducer producer = new CollectingProducer(context);
+
+		OfflineMaxwellReplicator replicator = new OfflineMaxwellReplicator(buildSchema(), producer,
+				new NoOpBootstrapper(context), context, start, BinlogFileReader.listBinlogFiles(dir, start));
+		replicator.setFilter(new MaxwellFilter());
+		replicator.runLoop();
+
+		return producer;
+	}
+
+	private void assertReplayed(CollectingProducer producer) throws Exception {
+		List<RowMap> rows = producer.rows;
+		assertThat(rows.size(), is(4));
+
+		// each transaction reaches the producer as a single batch
+		assertThat(producer.batchSizes, is(Arrays.asList(2, 1, 1)));
+
+		for ( int i = 0; i < 4; i++ )
+			assertThat(rows.get(i).getData("id"), is((Object) (long) (i + 1)));
+
+		assertThat(rows.get(0).isTXCommit(), is(false));
+		assertThat(rows.get(1).isTXCommit(), is(true));
+		assertThat(rows.get(1).getXid(), is(100L));
+		assertThat(rows.get(2).getPosition().getFile(), is("mysql-bin.000002"));
+		assertThat(rows.get(3).getData("n"), is((Object) 40L));
+	}
+
+	@Test(timeout = 30000)
+	public void TestReplaysFilesInOrder() throws Exception {
+		assertReplayed(replay(0, 2));
+	}
+
+	@Test(timeout = 30000)
+	public void TestReplaysWithOneReaderThroughPipeline() throws Exception {
+		assertReplayed(replay(2, 1));
+	}
+
+	/*
+	   rows pushed ahead of the XID_EVENT never get its xid stamped on them, so
+	   a null xid at push time shows the row went out before the commit was read.
+	 */
+	@Test(timeout = 30000)
+	public void TestStreamsTransactionAheadOfCommit() throws Exception {
+		File dir = folder.newFolder();
+		BinlogFileWriter w = new BinlogFileWriter(new File(dir, "mysql-bin.000001"));
+		BinlogPosition start = new BinlogPosition(w.position(), "mysql-bin.000001");
+		w.query("shard_1", "BEGIN");
+		w.tableMap(10, "shard_1", "users", 1);
+		w.writeRows(10, new int[] { 1 }, new int[] { 2 });
+		w.writeRows(10, new int[] { 3 });
+		w.writeRows(10, new int[] { 4 });
+		w.xid(200);
+		w.close();
+
+		MaxwellConfig config = new MaxwellConfig();
+		config.databaseName = "maxwell";
+		config.replicationMysql.port = 3306;
+		config.replayMode = true;
+		config.binlogReaders = 1;
+		config.binlogEventBufferSize = 4;
+		config.pipelineWorkers = 0;
+		config.streamTransactions = true;
+
+		MaxwellContext context = new MaxwellContext(config);
+		final List<Long> xidsAtPush = new ArrayList<>();
+		final List<Long> positions = new ArrayList<>();
+		CollectingProducer producer = new CollectingProducer(context) {
+			@Override
+			public void push(RowMap r) throws Exception {
+				super.push(r);
+				xidsAtPush.add(r.getXid());
+				if ( r.isTXCommit() )
+					positions.add(r.getPosition().getOffset());
+			}
+		};
+
+		OfflineMaxwellReplicator replicator = new OfflineMaxwellReplicator(buildSchema(), producer,
+				new NoOpBootstrapper(context), context, start, BinlogFileReader.listBinlogFiles(dir, start));
+		replicator.setFilter(new MaxwellFilter());
+		replicator.runLoop();
+
+		List<RowMap> rows = producer.rows;
+		assertThat(rows.size(), is(4));
+		assertThat(xidsAtPush, is(Arrays.asList(null, null, null, 200L)));
+
+		for ( int i = 0; i < 3; i++ )
+			assertThat(rows.get(i).isTXCommit(), is(false));
+
+		assertThat(rows.get(3).isTXCommit(), is(true));
+		assertThat(rows.get(3).getXid(), is(200L));
+		assertThat(positions, is(Arrays.asList(rows.get(3).getPosition().getOffset())));
+	}
+
+	@Test
+	public void TestListsBinlogFilesFromStart() throws Exception {
+		File dir = folder.newFolder();
+		for ( String name : Arrays.asList("mysql-bin.000009", "mysql-bin.000010", "mysql-bin.1000000", "mysql-bin.000008", "mysql-bin.index") )
+			new File(dir, name).createNewFile();
+
+		List<File> files = BinlogFileReader.listBinlogFiles(dir, new BinlogPosition(4, "mysql-bin.000009"));
+
+		assertThat(files.size(), is(3));
+		assertThat(files.get(0).getName(), is("mysql-bin.000009"));
+		assertThat(files.get(1).getName(), is("mysql-bin.000010"));
+		assertThat(files.get(2).getName(), is("mysql-bin.1000000"));
+	}
+
+	@Test
+	public void TestContextNeedsNoMasterOffline() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.binlogDir = folder.getRoot().getPath();
+		config.binlogServerID = 42L;
+		config.lowerCaseTableNames = 1;
+
+		// nothing is listening on the replication host: any query there would fail
+		config.replicationMysql.host = "127.0.0.1";
+		config.replicationMysql.port = 1;
+
+		MaxwellContext context = new MaxwellContext(config);
+		assertThat(context.getServerID(), is(42L));
+		assertThat(context.getCaseSensitivity(), is(CaseSensitivity.CONVERT_TO_LOWER));
+	}
+}
@@ -0,0 +1,57 @@
+package com.zendesk.maxwell;
+
+import com.zendesk.maxwell.schema.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.zendesk.maxwell.MaxwellTestSupport.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ParallelRowConverterTest {
+	private ParallelRowConverter converter;
+
+	@Before
+	public void setUp() {
+		converter = new ParallelRowConverter(4, 1000);
+	}
+
+	@After
+	public void tearDown() {
+		converter.shutdown();
+	}
+
+	private long[] ids(int count) {
+		long[] ids = new long[count];
+		for ( int i = 0; i < count; i++ )
+			ids[i] = i + 1;
+		return ids;
+	}
+
+	@Test
+	public void TestMatchesSerialConversion() throws Exception {
+		Table table = buildTable("shard_1", "users");
+		long[] ids = ids(20000);
+
+		List<RowMap> serial = writeRowsEvent(table, 500, ids).jsonMaps();
+
+		MaxwellAbstractRowsEvent event = writeRowsEvent(table, 500, ids);
+		event.setRowConverter(converter);
+		List<RowMap> parallel = event.jsonMaps();
+
+		assertThat(parallel.size(), is(20000));
+		for ( int i = 0; i < serial.size(); i++ ) {
+			assertThat(parallel.get(i).getData("id"), is((Object) (long) (i + 1)));
+			assertThat(parallel.get(i).toJSON(), is(serial.get(i).toJSON()));
+		}
+	}
+
+	@Test
+	public void TestLeavesSmallEventsInline() throws Exception {
+		assertThat(converter.shouldParallelize(999), is(false));
+		assertThat(converter.shouldParallelize(1000), is(true));
+	}
+}
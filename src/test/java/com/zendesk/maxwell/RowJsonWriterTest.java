@@ -0,0 +1,90 @@
+package com.zendesk.maxwell;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.NullColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RowJsonWriterTest {
+	private Table table = new Table("foo", "bar", "utf8",
+			new ArrayList<>(Arrays.asList(
+				ColumnDef.build("zeta", "utf8", "varchar", 0, true, null),
+				ColumnDef.build("id", "", "int", 1, true, null),
+				ColumnDef.build("alpha", "utf8", "varchar", 2, true, null))),
+			Arrays.asList("id"));
+
+	private BitColumn allColumns = BitColumn.valueOf(3, new byte[] { 7 });
+
+	private Row row(String zeta, int id, String alpha) throws Exception {
+		Column a = alpha == null ? NullColumn.valueOf(0) : StringColumn.valueOf(alpha.getBytes("UTF-8"));
+		return new Row(Arrays.<Column>asList(StringColumn.valueOf(zeta.getBytes("UTF-8")), LongColumn.valueOf(id), a));
+	}
+
+	private LazyRowMap update(Row after, Row before) {
+		return new LazyRowMap("update", "foo", "bar", 1L, table.getPKList(), new BinlogPosition(3, "mysql.1"),
+				table, after, allColumns, before, allColumns);
+	}
+
+	@Test
+	public void TestWritesColumnsInTableOrder() throws Exception {
+		LazyRowMap r = update(row("z", 1, null), row("z", 1, "a"));
+		r.setXid(12L);
+		r.setTXCommit();
+
+		assertThat(r.toJSON(), is("{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"update\",\"ts\":1,\"xid\":12,\"commit\":true,"
+				+ "\"data\":{\"zeta\":\"z\",\"id\":1},\"old\":{\"alpha\":\"a\"}}"));
+		assertThat(r.pkToJson(), is("{\"database\":\"foo\",\"table\":\"bar\",\"pk.id\":1}"));
+	}
+
+	@Test
+	public void TestWritesNullOldValues() throws Exception {
+		LazyRowMap r = update(row("z", 1, "a"), row("z", 1, null));
+
+		assertThat(r.toJSON(), is("{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"update\",\"ts\":1,"
+				+ "\"data\":{\"zeta\":\"z\",\"id\":1,\"alpha\":\"a\"},\"old\":{\"alpha\":null}}"));
+	}
+
+	@Test
+	public void TestWritesUTF8Bytes() throws Exception {
+		LazyRowMap r = update(row("\u00e9t\u00e9", 1, "\u65e5"), row("\u00e9t\u00e9", 1, "\u65e5"));
+		String expected = "{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"update\",\"ts\":1,"
+				+ "\"data\":{\"zeta\":\"\u00e9t\u00e9\",\"id\":1,\"alpha\":\"\u65e5\"}}";
+
+		assertThat(r.toJSONBytes(), is(expected.getBytes("UTF-8")));
+		assertThat(r.toJSON(), is(expected));
+		assertThat(r.pkToJsonBytes(), is("{\"database\":\"foo\",\"table\":\"bar\",\"pk.id\":1}".getBytes("UTF-8")));
+	}
+
+	@Test
+	public void TestFallsBackOnceDataIsChanged() throws Exception {
+		LazyRowMap r = update(row("z", 1, "a"), row("z", 1, "a"));
+		r.putData("extra", 5);
+
+		assertThat(r.toJSON(), is("{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"update\",\"ts\":1,"
+				+ "\"data\":{\"zeta\":\"z\",\"id\":1,\"alpha\":\"a\",\"extra\":5}}"));
+	}
+
+	@Test
+	public void TestRecompilesWhenTableChanges() throws Exception {
+		RowJsonWriter w = table.getJsonWriter();
+		assertThat(table.getJsonWriter(), is(sameInstance(w)));
+
+		table.addColumn(ColumnDef.build("n", "", "int", 3, true, null));
+		assertThat(table.getJsonWriter(), is(not(sameInstance(w))));
+
+		w = table.getJsonWriter();
+		table.rename("baz");
+		assertThat(table.getJsonWriter(), is(not(sameInstance(w))));
+	}
+}
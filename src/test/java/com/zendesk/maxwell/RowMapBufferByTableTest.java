@@ -0,0 +1,75 @@
+package com.zendesk.maxwell;
+
+import com.zendesk.maxwell.util.SpillSegmentPool;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RowMapBufferByTableTest {
+	private RowMap row(String table, long id) {
+		RowMap r = new RowMap("insert", "shard_1", table, id, Arrays.asList("id"), new BinlogPosition(id, "mysql-bin.000001"));
+		r.putData("id", id);
+		r.putData("name", "row " + id + " of " + table);
+		return r;
+	}
+
+	@Test
+	public void TestReplaysEachTableInOrder() throws Exception {
+		RowMapBufferByTable buffer = new RowMapBufferByTable(new SpillSegmentPool(256, 4));
+
+		for ( long i = 0; i < 300; i++ )
+			buffer.add(row(i % 3 == 0 ? "a" : "b", i));
+
+		assertThat(buffer.size("shard_1", "a"), is(100L));
+		assertThat(buffer.size("shard_1", "b"), is(200L));
+		assertThat(buffer.size("shard_1", "c"), is(0L));
+
+		for ( long i = 0; i < 300; i += 3 ) {
+			RowMap r = buffer.removeFirst("shard_1", "a");
+			assertThat(r.getTimestamp(), is(i));
+			assertThat((String) r.getData("name"), is("row " + i + " of a"));
+		}
+		assertThat(buffer.size("shard_1", "a"), is(0L));
+
+		for ( long i = 0; i < 300; i++ ) {
+			if ( i % 3 != 0 )
+				assertThat(buffer.removeFirst("shard_1", "b").getTimestamp(), is(i));
+		}
+		assertThat(buffer.size("shard_1", "b"), is(0L));
+		assertThat(buffer.getSegmentCount(), is(0));
+	}
+
+	@Test
+	public void TestReclaimsReplayedSegments() throws Exception {
+		RowMapBufferByTable buffer = new RowMapBufferByTable(new SpillSegmentPool(256, 4));
+
+		// "a" fills the start of the log, then "b" and "a" share the rest
+		for ( long i = 0; i < 200; i++ )
+			buffer.add(row("a", i));
+		for ( long i = 200; i < 300; i++ )
+			buffer.add(row(i % 2 == 0 ? "a" : "b", i));
+
+		int segments = buffer.getSegmentCount();
+		while ( buffer.size("shard_1", "b") > 0 )
+			buffer.removeFirst("shard_1", "b");
+
+		// only segments "b" had all to itself could go, and it had none
+		assertThat(buffer.getSegmentCount(), is(segments));
+
+		for ( long i = 0; i < 200; i++ )
+			buffer.removeFirst("shard_1", "a");
+		int left = buffer.getSegmentCount();
+		assertThat(left < segments / 2, is(true));
+
+		// new rows keep going while old ones are still held
+		buffer.add(row("b", 300));
+		assertThat(buffer.removeFirst("shard_1", "b").getTimestamp(), is(300L));
+
+		while ( buffer.size("shard_1", "a") > 0 )
+			buffer.removeFirst("shard_1", "a");
+		assertThat(buffer.getSegmentCount(), is(0));
+	}
+}
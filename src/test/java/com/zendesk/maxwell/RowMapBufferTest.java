@@ -2,7 +2,10 @@ package com.zendesk.maxwell;
 
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -24,4 +27,64 @@ public class RowMapBufferTest {
 		assertThat(buffer.removeFirst().getTimestamp(), is(2L));
 		assertThat(buffer.removeFirst().getTimestamp(), is(3L));
 	}
+
+	@Test
+	public void TestSpillsEveryKindOfValue() throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(1);
+		buffer.setXid(9L);
+
+		RowMap r = new RowMap("update", "foo", "bar", 1L, Arrays.asList("id"), new BinlogPosition(3, "mysql.1"));
+		r.putData("id", 1L);
+		r.putData("year", 2016);
+		r.putData("text", "caf\u00e9 \ud83d\ude00");
+		r.putData("decimal", new BigDecimal("-8.6210000"));
+		r.putData("unsigned", new BigInteger("18446744073709551615"));
+		r.putData("set", Arrays.asList("a", "b"));
+		r.putData("double", 1.5d);
+		r.putData("float", 1.25f);
+		r.putData("bootstrapped", (short) 7);
+		r.putData("null", null);
+		r.putOldData("text", "old");
+		r.putOldData("null", null);
+		r.setTXCommit();
+
+		String json = r.toJSON();
+		buffer.add(r);
+		buffer.add(new RowMap("insert", "foo", "bar", 2L, Arrays.asList("id"), new BinlogPosition(4, "mysql.1")));
+		assertThat(buffer.inMemorySize(), is(1L));
+
+		RowMap back = buffer.removeFirst();
+		assertThat(back.toJSON(), is(json.replace("\"commit\"", "\"xid\":9,\"commit\"")));
+		assertThat(back.getData("bootstrapped"), is((Object) (short) 7));
+		assertThat(back.pkToJson(), is(r.pkToJson()));
+		assertThat(back.getPosition().getFile(), is("mysql.1"));
+		assertThat(back.getPosition().getOffset(), is(3L));
+	}
+
+	@Test
+	public void TestSharesStringsAcrossSpilledRows() throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(0);
+		/* the last row always stays in memory, so add one past the three that spill */
+		for ( long i = 0; i < 4; i++ ) {
+			/* separate instances going in, so any sharing coming out is the codec's */
+			RowMap r = new RowMap("insert", new String("foo"), new String("bar"), i, Arrays.asList("id"),
+					new BinlogPosition(i, new String("mysql.1")));
+			r.putData("id", i);
+			buffer.add(r);
+		}
+
+		RowMap first = buffer.removeFirst();
+		assertThat(first.getDatabase(), is("foo"));
+		assertThat(first.getTable(), is("bar"));
+		assertThat(first.getPosition().getFile(), is("mysql.1"));
+		assertThat(first.getData("id"), is((Object) 0L));
+
+		for ( long i = 1; i < 3; i++ ) {
+			RowMap r = buffer.removeFirst();
+			assertThat(r.getDatabase(), sameInstance(first.getDatabase()));
+			assertThat(r.getTable(), sameInstance(first.getTable()));
+			assertThat(r.getPosition().getFile(), sameInstance(first.getPosition().getFile()));
+			assertThat(r.getData("id"), is((Object) i));
+		}
+	}
 }
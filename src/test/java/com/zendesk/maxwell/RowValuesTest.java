@@ -0,0 +1,64 @@
+package com.zendesk.maxwell;
+
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RowValuesTest {
+	private Table table = new Table("foo", "bar", "utf8",
+			new ArrayList<>(Arrays.asList(
+				ColumnDef.build("zeta", "utf8", "varchar", 0, true, null),
+				ColumnDef.build("id", "", "int", 1, true, null))),
+			Arrays.asList("id"));
+
+	private RowMap row() {
+		return new RowMap("insert", "foo", "bar", 1L, table.getPKList(), new BinlogPosition(3, "mysql.1"), table.getColumnIndex());
+	}
+
+	@Test
+	public void TestLooksUpNamesThroughTheIndex() throws Exception {
+		RowMap r = row();
+		r.putData("id", 1L);
+		r.putData("zeta", null);
+
+		assertThat(r.hasData("zeta"), is(true));
+		assertThat(r.getData("zeta"), is(nullValue()));
+		assertThat(r.getData("id"), is((Object) 1L));
+		assertThat(r.hasData("alpha"), is(false));
+
+		// columns come out in table order, whatever order they went in
+		assertThat(r.toJSON(), is("{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"insert\",\"ts\":1,\"data\":{\"id\":1}}"));
+	}
+
+	@Test
+	public void TestKeepsNamesOutsideTheIndex() throws Exception {
+		RowMap r = row();
+		r.putData("extra", "x");
+		r.putData("id", 1L);
+		r.putOldData("zeta", null);
+
+		assertThat(r.getData("extra"), is((Object) "x"));
+		assertThat(r.toJSON(), is("{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"insert\",\"ts\":1,"
+				+ "\"data\":{\"id\":1,\"extra\":\"x\"},\"old\":{\"zeta\":null}}"));
+		assertThat(r.pkToJson(), is("{\"database\":\"foo\",\"table\":\"bar\",\"pk.id\":1}"));
+	}
+
+	@Test
+	public void TestSharesOneIndexPerTableVersion() throws Exception {
+		ColumnIndex idx = table.getColumnIndex();
+		assertThat(table.getColumnIndex(), is(sameInstance(idx)));
+		assertThat(idx.nameAt(1), is("id"));
+		assertThat(idx.indexOf("id"), is(1));
+		assertThat(idx.indexOf("alpha"), is(-1));
+
+		table.addColumn(ColumnDef.build("alpha", "utf8", "varchar", 2, true, null));
+		assertThat(table.getColumnIndex(), is(not(sameInstance(idx))));
+		assertThat(table.getColumnIndex().indexOf("alpha"), is(2));
+	}
+}
@@ -0,0 +1,117 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.*;
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.LazyRowMap;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.producer.encoders.BinaryRowEncoder;
+import com.zendesk.maxwell.producer.encoders.JsonRowEncoder;
+import com.zendesk.maxwell.producer.encoders.PositionalRowEncoder;
+import com.zendesk.maxwell.producer.encoders.RowEncoder;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/*
+   encode throughput and payload size of each --output_format, for the rows
+   sql/rows/rows.sql produces against the `sharded` table (sql/schema/sharded.sql):
+   the two inserts, the update (with its old values) and the delete, built
+   offline so no server is needed.  The positional format's one-off layout
+   messages aren't counted.
+
+   run with:
+     java -cp target/classes:target/test-classes:$CLASSPATH com.zendesk.maxwell.benchmark.EncoderBenchmark [rows]
+ */
+public class EncoderBenchmark {
+	private static final int ROUNDS = 5;
+
+	private static Table shardedTable() {
+		return new Table("shard_1", "sharded", "utf8", new ArrayList<>(Arrays.asList(
+				ColumnDef.build("id", "", "bigint", 0, true, null),
+				ColumnDef.build("account_id", "", "int", 1, true, null),
+				ColumnDef.build("nice_id", "", "int", 2, true, null),
+				ColumnDef.build("status_id", "", "tinyint", 3, true, null),
+				ColumnDef.build("date_field", "", "datetime", 4, true, null),
+				ColumnDef.build("text_field", "utf8", "text", 5, true, null),
+				ColumnDef.build("latin1_field", "latin1", "varchar", 6, true, null),
+				ColumnDef.build("utf8_field", "utf8", "varchar", 7, true, null),
+				ColumnDef.build("float_field", "", "float", 8, true, null),
+				ColumnDef.build("timestamp_field", "", "timestamp", 9, true, null),
+				ColumnDef.build("decimal_field", "", "decimal", 10, true, null))),
+				Arrays.asList("id", "account_id"));
+	}
+
+	private static Row row(long id, int niceId, int statusId, String text) throws Exception {
+		return new Row(Arrays.<Column>asList(
+				LongLongColumn.valueOf(id),
+				LongColumn.valueOf(1),
+				LongColumn.valueOf(niceId),
+				TinyColumn.valueOf(statusId),
+				DatetimeColumn.valueOf(new Date(308361600000L)),
+				StringColumn.valueOf(text.getBytes("UTF-8")),
+				StringColumn.valueOf("FooBarä".getBytes("ISO-8859-1")),
+				StringColumn.valueOf("FooBarä".getBytes("UTF-8")),
+				FloatColumn.valueOf(1.33f),
+				TimestampColumn.valueOf(new Timestamp(315532800000L)),
+				DecimalColumn.valueOf(new BigDecimal("8.6210000"), 12, 7)));
+	}
+
+	/* the rows.sql rows, repeated out to n */
+	private static List<RowMap> buildRows(Table table, int n) throws Exception {
+		BitColumn used = BitColumn.valueOf(11, new byte[] { (byte) 0xff, 0x07 });
+		BinlogPosition position = new BinlogPosition(4, "mysql-bin.000001");
+
+		ArrayList<RowMap> rows = new ArrayList<>(n);
+		for ( int i = 0; rows.size() < n; i++ ) {
+			long id = i * 2 + 1;
+			rows.add(new LazyRowMap("insert", "shard_1", "sharded", 1400000000L, table.getPKList(), position,
+					table, row(id, 1, 2, "Some Text"), used, null, null));
+			rows.add(new LazyRowMap("insert", "shard_1", "sharded", 1400000000L, table.getPKList(), position,
+					table, row(id + 1, 2, 2, "Delete Me"), used, null, null));
+			rows.add(new LazyRowMap("update", "shard_1", "sharded", 1400000000L, table.getPKList(), position,
+					table, row(id, 1, 1, "Updated Text"), used, row(id, 1, 2, "Some Text"), used));
+			rows.add(new LazyRowMap("delete", "shard_1", "sharded", 1400000000L, table.getPKList(), position,
+					table, row(id + 1, 2, 2, "Delete Me"), used, null, null));
+		}
+
+		for ( RowMap r : rows )
+			r.materialize();
+
+		return rows;
+	}
+
+	private static void run(String name, RowEncoder encoder, List<RowMap> rows, boolean print) throws Exception {
+		long bytes = 0;
+		long start = System.nanoTime();
+		for ( RowMap r : rows )
+			bytes += encoder.encode(r).length;
+		long elapsed = System.nanoTime() - start;
+
+		if ( print )
+			System.out.println(String.format("%-10s %14d %16.1f", name, rows.size() * 1000000000L / elapsed, (double) bytes / rows.size()));
+	}
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.valueOf(args[0]) : 200000;
+		List<RowMap> rows = buildRows(shardedTable(), n);
+
+		String[] names = { "json", "smile", "cbor", "msgpack", "positional" };
+		RowEncoder[] encoders = { new JsonRowEncoder(), BinaryRowEncoder.smile(), BinaryRowEncoder.cbor(), BinaryRowEncoder.msgpack(),
+				new PositionalRowEncoder() };
+
+		System.out.println(String.format("%-10s %14s %16s", "format", "rows/sec", "bytes/row"));
+		for ( int round = 0; round < ROUNDS; round++ ) {
+			// only the last round is reported; the ones before it warm up
+			for ( int i = 0; i < encoders.length; i++ )
+				run(names[i], encoders[i], rows, round == ROUNDS - 1);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.zendesk.maxwell.util.RingBuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/*
+   compares the binlog event hand-off between open-replicator's thread and the
+   maxwell run loop: the old LinkedBlockingDeque(20) against RingBuffer with each
+   wait strategy, at a range of offered event rates.
+
+   run with:
+     java -cp target/classes:target/test-classes:$CLASSPATH com.zendesk.maxwell.benchmark.EventQueueBenchmark [events]
+ */
+public class EventQueueBenchmark {
+	private static final long[] RATES = { 10000, 100000, 1000000, 0 }; // events/sec, 0 = unthrottled
+
+	private interface EventQueue {
+		boolean offer(long[] event) throws InterruptedException;
+		long[] poll() throws InterruptedException;
+	}
+
+	private static EventQueue deque() {
+		final LinkedBlockingDeque<long[]> q = new LinkedBlockingDeque<>(20);
+		return new EventQueue() {
+			public boolean offer(long[] event) throws InterruptedException {
+				return q.offer(event, 100, TimeUnit.MILLISECONDS);
+			}
+
+			public long[] poll() throws InterruptedException {
+				return q.poll(100, TimeUnit.MILLISECONDS);
+			}
+		};
+	}
+
+	private static EventQueue ring(int size, RingBuffer.WaitStrategy strategy) {
+		final RingBuffer<long[]> q = new RingBuffer<>(size, strategy);
+		return new EventQueue() {
+			public boolean offer(long[] event) throws InterruptedException {
+				return q.offer(event, 100, TimeUnit.MILLISECONDS);
+			}
+
+			public long[] poll() throws InterruptedException {
+				return q.poll(100, TimeUnit.MILLISECONDS);
+			}
+		};
+	}
+
+	private static void run(String name, final EventQueue queue, final long events, final long rate) throws Exception {
+		final long intervalNanos = rate == 0 ? 0 : 1000000000L / rate;
+
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					long start = System.nanoTime();
+					for ( long i = 0; i < events; i++ ) {
+						if ( intervalNanos > 0 ) {
+							long due = start + i * intervalNanos;
+							while ( System.nanoTime() < due ) { }
+						}
+
+						long[] event = new long[] { System.nanoTime() };
+						while ( !queue.offer(event) ) { }
+					}
+				} catch ( InterruptedException e ) { }
+			}
+		});
+
+		long[] latencies = new long[(int) events];
+		long start = System.nanoTime();
+		producer.start();
+
+		for ( int i = 0; i < events; i++ ) {
+			long[] event = null;
+			while ( event == null )
+				event = queue.poll();
+
+			latencies[i] = System.nanoTime() - event[0];
+		}
+
+		long elapsed = System.nanoTime() - start;
+		producer.join();
+
+		Arrays.sort(latencies);
+		System.out.println(String.format("%-22s %10s %14d %10d %10d %10d",
+				name,
+				rate == 0 ? "max" : String.valueOf(rate),
+				events * 1000000000L / elapsed,
+				latencies[latencies.length / 2] / 1000,
+				latencies[(int) (latencies.length * 0.99)] / 1000,
+				latencies[latencies.length - 1] / 1000));
+	}
+
+	public static void main(String[] args) throws Exception {
+		long events = args.length > 0 ? Long.valueOf(args[0]) : 2000000;
+
+		System.out.println(String.format("%-22s %10s %14s %10s %10s %10s",
+				"queue", "rate", "events/sec", "p50(us)", "p99(us)", "max(us)"));
+
+		for ( long rate : RATES ) {
+			// cap the throttled runs at ~2 seconds apiece.
+			long n = rate == 0 ? events : Math.min(events, rate * 2);
+
+			run("deque(20)", deque(), n, rate);
+			for ( RingBuffer.WaitStrategy strategy : RingBuffer.WaitStrategy.values() )
+				run("ring(256)/" + strategy.toString().toLowerCase(), ring(256, strategy), n, rate);
+		}
+	}
+}
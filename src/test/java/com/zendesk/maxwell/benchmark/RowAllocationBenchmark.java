@@ -0,0 +1,113 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.LazyRowMap;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+   bytes allocated, and bytes still held, per RowMap of a 20 column table of
+   ints and strings, from building the row to its data being converted
+   (materialize()).  The raw open-replicator rows are made up front and not
+   counted; neither are the converted values themselves, which are the same
+   whatever holds them.
+
+   run with:
+     java -cp target/classes:target/test-classes:$CLASSPATH com.zendesk.maxwell.benchmark.RowAllocationBenchmark [rows]
+ */
+public class RowAllocationBenchmark {
+	private static final int COLUMNS = 20;
+	private static final int ROUNDS = 5;
+
+	private static Table buildTable() {
+		ArrayList<ColumnDef> columns = new ArrayList<>();
+		for ( int i = 0; i < COLUMNS; i++ ) {
+			if ( i % 2 == 0 )
+				columns.add(ColumnDef.build("int_column_" + i, "", "int", i, true, null));
+			else
+				columns.add(ColumnDef.build("string_column_" + i, "utf8", "varchar", i, true, null));
+		}
+		return new Table("benchmark", "wide_table", "utf8", columns, Arrays.asList("int_column_0"));
+	}
+
+	private static Row[] buildRaw(int n) {
+		Row[] raw = new Row[n];
+		for ( int r = 0; r < n; r++ ) {
+			ArrayList<Column> values = new ArrayList<>();
+			for ( int i = 0; i < COLUMNS; i++ ) {
+				if ( i % 2 == 0 )
+					values.add(LongColumn.valueOf(r * i));
+				else
+					values.add(StringColumn.valueOf(("value " + r + " of column " + i).getBytes()));
+			}
+			raw[r] = new Row(values);
+		}
+		return raw;
+	}
+
+	private static long allocatedBytes() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static long usedBytes() {
+		Runtime rt = Runtime.getRuntime();
+		for ( int i = 0; i < 3; i++ )
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static long conversionBytes(Table table, Row[] raw) {
+		// what ColumnDef.asJSON allocates for the values, to take back out of the totals
+		long before = allocatedBytes();
+		for ( Row row : raw ) {
+			int i = 0;
+			for ( ColumnDef c : table.getColumnList() )
+				c.asJSON(row.getColumns().get(i++).getValue());
+		}
+		return allocatedBytes() - before;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.valueOf(args[0]) : 100000;
+		Table table = buildTable();
+		Row[] raw = buildRaw(n);
+
+		byte[] used = new byte[(COLUMNS + 7) / 8];
+		Arrays.fill(used, (byte) 0xff);
+		BitColumn usedColumns = BitColumn.valueOf(COLUMNS, used);
+		BinlogPosition position = new BinlogPosition(4, "mysql-bin.000001");
+
+		System.out.println(String.format("%-10s %16s %16s", "round", "allocated/row", "retained/row"));
+		for ( int round = 0; round < ROUNDS; round++ ) {
+			long values = conversionBytes(table, raw);
+			long heapBefore = usedBytes();
+
+			RowMap[] rows = new RowMap[n];
+			long before = allocatedBytes();
+			for ( int r = 0; r < n; r++ ) {
+				rows[r] = new LazyRowMap("insert", "benchmark", "wide_table", 1400000000L, table.getPKList(), position,
+						table, raw[r], usedColumns, null, null);
+				rows[r].materialize();
+			}
+			long allocated = allocatedBytes() - before - values;
+			long retained = usedBytes() - heapBefore - values;
+
+			String label = round == 0 ? " (warmup)" : "";
+			System.out.println(String.format("%-10d %16d %16d%s", round, allocated / n, retained / n, label));
+
+			if ( rows[n - 1].getData("int_column_0") == null )
+				throw new IllegalStateException();
+		}
+	}
+}
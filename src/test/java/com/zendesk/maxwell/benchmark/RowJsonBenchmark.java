@@ -0,0 +1,100 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.LazyRowMap;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+   compares RowMap.toJSON() on the generic path (data map walked and every
+   value written by type inspection, as before) against the table's compiled
+   RowJsonWriter, for a 20 column table of ints and strings.
+
+   run with:
+     java -cp target/classes:target/test-classes:$CLASSPATH com.zendesk.maxwell.benchmark.RowJsonBenchmark [rows]
+ */
+public class RowJsonBenchmark {
+	private static final int COLUMNS = 20;
+	private static final int ROUNDS = 5;
+
+	private static Table buildTable() {
+		ArrayList<ColumnDef> columns = new ArrayList<>();
+		for ( int i = 0; i < COLUMNS; i++ ) {
+			if ( i % 2 == 0 )
+				columns.add(ColumnDef.build("int_column_" + i, "", "int", i, true, null));
+			else
+				columns.add(ColumnDef.build("string_column_" + i, "utf8", "varchar", i, true, null));
+		}
+		return new Table("benchmark", "wide_table", "utf8", columns, Arrays.asList("int_column_0"));
+	}
+
+	private static List<RowMap> buildRows(Table table, int n, boolean compiled) {
+		byte[] used = new byte[(COLUMNS + 7) / 8];
+		Arrays.fill(used, (byte) 0xff);
+		BitColumn usedColumns = BitColumn.valueOf(COLUMNS, used);
+
+		ArrayList<RowMap> rows = new ArrayList<>(n);
+		for ( int r = 0; r < n; r++ ) {
+			ArrayList<Column> values = new ArrayList<>();
+			for ( int i = 0; i < COLUMNS; i++ ) {
+				if ( i % 2 == 0 )
+					values.add(LongColumn.valueOf(r * i));
+				else
+					values.add(StringColumn.valueOf(("value " + r + " of column " + i).getBytes()));
+			}
+
+			RowMap row = new LazyRowMap("insert", "benchmark", "wide_table", 1400000000L, table.getPKList(),
+					new BinlogPosition(4, "mysql-bin.000001"), table, new Row(values), usedColumns, null, null);
+
+			if ( !compiled ) {
+				// a plain RowMap with the same data has no table to compile against
+				RowMap plain = new RowMap("insert", "benchmark", "wide_table", 1400000000L, table.getPKList(),
+						new BinlogPosition(4, "mysql-bin.000001"));
+				for ( ColumnDef c : table.getColumnList() )
+					plain.putData(c.getName(), row.getData(c.getName()));
+				row = plain;
+			}
+
+			row.materialize();
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private static long run(List<RowMap> rows) throws Exception {
+		long bytes = 0;
+		long start = System.nanoTime();
+		for ( RowMap r : rows )
+			bytes += r.toJSON().length();
+		long elapsed = System.nanoTime() - start;
+
+		if ( bytes == 0 )
+			throw new IllegalStateException();
+		return rows.size() * 1000000000L / elapsed;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.valueOf(args[0]) : 200000;
+		Table table = buildTable();
+
+		List<RowMap> generic = buildRows(table, n, false);
+		List<RowMap> compiled = buildRows(table, n, true);
+
+		System.out.println(String.format("%-10s %14s", "writer", "rows/sec"));
+		for ( int round = 0; round < ROUNDS; round++ ) {
+			String label = round == 0 ? " (warmup)" : "";
+			System.out.println(String.format("%-10s %14d%s", "generic", run(generic), label));
+			System.out.println(String.format("%-10s %14d%s", "compiled", run(compiled), label));
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.LazyRowMap;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.RowMapBuffer;
+import com.zendesk.maxwell.RowMapCodec;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+   spills a large transaction's rows (a 10 column table of ints and strings)
+   to disk and reads them back, through RowMapBuffer's RowMapCodec and through java
+   serialization the way the buffer used to (ObjectOutputStream, reset every
+   10000 rows), and reports rows/sec each way and the size of the file.  The
+   "mapped buffer" line is the codec through RowMapBuffer itself, spilling
+   everything into memory-mapped segments (it doesn't report a size).
+
+   run with:
+     java -cp target/classes:target/test-classes:$CLASSPATH com.zendesk.maxwell.benchmark.SpillBenchmark [rows]
+ */
+public class SpillBenchmark {
+	private static final int COLUMNS = 10;
+	private static final int RESET_EVERY = 10000;
+
+	private static Table buildTable() {
+		ArrayList<ColumnDef> columns = new ArrayList<>();
+		for ( int i = 0; i < COLUMNS; i++ ) {
+			if ( i % 2 == 0 )
+				columns.add(ColumnDef.build("int_column_" + i, "", "int", i, true, null));
+			else
+				columns.add(ColumnDef.build("string_column_" + i, "utf8", "varchar", i, true, null));
+		}
+		return new Table("benchmark", "spill_table", "utf8", columns, Arrays.asList("int_column_0"));
+	}
+
+	private static RowMap buildRow(Table table, BitColumn used, BinlogPosition position, int r) {
+		ArrayList<Column> values = new ArrayList<>();
+		for ( int i = 0; i < COLUMNS; i++ ) {
+			if ( i % 2 == 0 )
+				values.add(LongColumn.valueOf(r * i));
+			else
+				values.add(StringColumn.valueOf(("value " + r + " of column " + i).getBytes()));
+		}
+
+		RowMap row = new LazyRowMap("insert", "benchmark", "spill_table", 1400000000L, table.getPKList(), position,
+				table, new Row(values), used, null, null);
+		row.materialize();
+		return row;
+	}
+
+	private static void report(String name, int n, long writeNanos, long readNanos, long bytes) {
+		System.out.println(String.format("%-14s %14d %14d %12.1f", name,
+				n * 1000000000L / writeNanos, n * 1000000000L / readNanos, (double) bytes / n));
+	}
+
+	private static void runCodec(RowMap[] rows) throws Exception {
+		File file = File.createTempFile("maxwell", "spill-benchmark");
+		file.deleteOnExit();
+
+		// the streams ListWithDiskBuffer spills through
+		RowMapCodec codec = new RowMapCodec();
+		long start = System.nanoTime();
+		try ( DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)) ) {
+			for ( RowMap r : rows )
+				codec.write(os, r);
+		}
+		long written = System.nanoTime();
+
+		codec = new RowMapCodec();
+		try ( DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024)) ) {
+			for ( int i = 0; i < rows.length; i++ )
+				codec.read(is);
+		}
+		long read = System.nanoTime();
+
+		report("codec", rows.length, written - start, read - written, file.length());
+		file.delete();
+	}
+
+	/* the codec through RowMapBuffer, into mapped segments from the shared pool */
+	private static void runBuffer(RowMap[] rows) throws Exception {
+		RowMapBuffer buffer = new RowMapBuffer(Long.MAX_VALUE, 0);
+
+		long start = System.nanoTime();
+		for ( RowMap r : rows )
+			buffer.add(r);
+		long written = System.nanoTime();
+
+		while ( !buffer.isEmpty() )
+			buffer.removeFirst();
+		long read = System.nanoTime();
+
+		report("mapped buffer", rows.length, written - start, read - written, 0);
+	}
+
+	private static void runSerialization(RowMap[] rows) throws Exception {
+		File file = File.createTempFile("maxwell", "spill-benchmark");
+		file.deleteOnExit();
+
+		long start = System.nanoTime();
+		try ( ObjectOutputStream os = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file))) ) {
+			for ( int i = 0; i < rows.length; i++ ) {
+				os.writeObject(rows[i]);
+				if ( (i + 1) % RESET_EVERY == 0 )
+					os.reset();
+			}
+		}
+		long written = System.nanoTime();
+
+		try ( ObjectInputStream is = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file))) ) {
+			for ( int i = 0; i < rows.length; i++ )
+				RowMap.class.cast(is.readObject());
+		}
+		long read = System.nanoTime();
+
+		report("serialization", rows.length, written - start, read - written, file.length());
+		file.delete();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.valueOf(args[0]) : 2000000;
+		Table table = buildTable();
+		BitColumn used = BitColumn.valueOf(COLUMNS, new byte[] { (byte) 0xff, 0x03 });
+		BinlogPosition position = new BinlogPosition(4, "mysql-bin.000001");
+
+		RowMap[] rows = new RowMap[n];
+		for ( int r = 0; r < n; r++ )
+			rows[r] = buildRow(table, used, position, r);
+
+		System.out.println(String.format("%-14s %14s %14s %12s", "spill", "write rows/s", "read rows/s", "bytes/row"));
+		for ( int round = 0; round < 3; round++ ) {
+			runSerialization(rows);
+			runCodec(rows);
+			runBuffer(rows);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.zendesk.maxwell.benchmark;
+
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.RowMapCodec;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import com.zendesk.maxwell.util.SpillCompression;
+import com.zendesk.maxwell.util.SpillSegmentPool;
+import com.zendesk.maxwell.util.SpillStore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+   spills three mixes of rows through RowMapCodec into a SpillStore with each
+   SpillCompression, reads them back, and reports rows/sec each way and the
+   bytes that went to disk per row:
+
+     orders   -- narrow rows of numbers, decimals and timestamps
+     tickets  -- rows of prose: a subject line and a few hundred chars of body
+     events   -- rows of unique tokens: uuids, emails, ips and a small json blob
+
+   run with:
+     java -cp target/classes:target/test-classes:$CLASSPATH com.zendesk.maxwell.benchmark.SpillCompressionBenchmark [rows]
+ */
+public class SpillCompressionBenchmark {
+	private static final String[] WORDS = ("the a customer order was shipped late and refund please help account login " +
+			"password reset billing invoice charged twice cannot access my dashboard since yesterday update " +
+			"thanks for your quick reply still seeing this error when i try to export report").split(" ");
+	private static final String[] STATUSES = { "new", "open", "pending", "solved", "closed" };
+
+	private static Table table(String name, String[][] columns) {
+		ArrayList<ColumnDef> defs = new ArrayList<>();
+		for ( int i = 0; i < columns.length; i++ )
+			defs.add(ColumnDef.build(columns[i][0], "utf8", columns[i][1], i, true, null));
+		return new Table("benchmark", name, "utf8", defs, Arrays.asList(columns[0][0]));
+	}
+
+	private static RowMap row(Table table, BinlogPosition position) {
+		return new RowMap("insert", table.getDatabase(), table.getName(), 1400000000L, table.getPKList(), position,
+				table.getColumnIndex());
+	}
+
+	private static String words(Random random, int n) {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < n; i++ ) {
+			if ( i > 0 )
+				sb.append(' ');
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+
+	private static String hex(Random random, int n) {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0; i < n; i++ )
+			sb.append(Character.forDigit(random.nextInt(16), 16));
+		return sb.toString();
+	}
+
+	private static String timestamp(Random random) {
+		return String.format("2016-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+				random.nextInt(24), random.nextInt(60), random.nextInt(60));
+	}
+
+	private static RowMap[] orders(int n, Random random, BinlogPosition position) {
+		Table t = table("orders", new String[][] {
+			{ "id", "bigint" }, { "account_id", "int" }, { "status", "int" }, { "amount", "decimal" },
+			{ "created_at", "datetime" }, { "updated_at", "datetime" }
+		});
+
+		RowMap[] rows = new RowMap[n];
+		for ( int i = 0; i < n; i++ ) {
+			RowMap r = row(t, position);
+			r.putData("id", 1000000L + i);
+			r.putData("account_id", (long) random.nextInt(5000));
+			r.putData("status", (long) random.nextInt(5));
+			r.putData("amount", BigDecimal.valueOf(random.nextInt(1000000), 2));
+			r.putData("created_at", timestamp(random));
+			r.putData("updated_at", timestamp(random));
+			rows[i] = r;
+		}
+		return rows;
+	}
+
+	private static RowMap[] tickets(int n, Random random, BinlogPosition position) {
+		Table t = table("tickets", new String[][] {
+			{ "id", "bigint" }, { "requester_id", "bigint" }, { "status", "varchar" }, { "subject", "varchar" },
+			{ "description", "text" }, { "created_at", "datetime" }
+		});
+
+		RowMap[] rows = new RowMap[n];
+		for ( int i = 0; i < n; i++ ) {
+			RowMap r = row(t, position);
+			r.putData("id", 5000000L + i);
+			r.putData("requester_id", (long) random.nextInt(100000));
+			r.putData("status", STATUSES[random.nextInt(STATUSES.length)]);
+			r.putData("subject", words(random, 4 + random.nextInt(6)));
+			r.putData("description", words(random, 40 + random.nextInt(80)));
+			r.putData("created_at", timestamp(random));
+			rows[i] = r;
+		}
+		return rows;
+	}
+
+	private static RowMap[] events(int n, Random random, BinlogPosition position) {
+		Table t = table("events", new String[][] {
+			{ "id", "bigint" }, { "uuid", "char" }, { "email", "varchar" }, { "ip", "varchar" }, { "payload", "text" }
+		});
+
+		RowMap[] rows = new RowMap[n];
+		for ( int i = 0; i < n; i++ ) {
+			RowMap r = row(t, position);
+			r.putData("id", random.nextLong() >>> 1);
+			r.putData("uuid", hex(random, 32));
+			r.putData("email", hex(random, 10) + "@example.com");
+			r.putData("ip", random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256));
+			r.putData("payload", "{\"session\":\"" + hex(random, 16) + "\",\"score\":" + random.nextInt(100000)
+					+ ",\"retries\":" + random.nextInt(5) + "}");
+			rows[i] = r;
+		}
+		return rows;
+	}
+
+	private static void run(String mix, RowMap[] rows, SpillCompression compression, SpillSegmentPool pool) throws Exception {
+		SpillStore store = new SpillStore(pool, compression);
+		DataOutputStream os = new DataOutputStream(store.getOutputStream());
+		DataInputStream is = new DataInputStream(store.getInputStream());
+
+		RowMapCodec codec = new RowMapCodec();
+		long start = System.nanoTime();
+		for ( RowMap r : rows )
+			codec.write(os, r);
+		long written = System.nanoTime();
+		long bytes = store.getBytesWritten();
+
+		codec = new RowMapCodec();
+		for ( int i = 0; i < rows.length; i++ )
+			codec.read(is);
+		long read = System.nanoTime();
+		store.close();
+
+		int n = rows.length;
+		System.out.println(String.format("%-8s %-8s %14d %14d %12.1f", mix, compression.name().toLowerCase(),
+				n * 1000000000L / (written - start), n * 1000000000L / (read - written), (double) bytes / n));
+	}
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.valueOf(args[0]) : 500000;
+		Random random = new Random(1234);
+		BinlogPosition position = new BinlogPosition(4, "mysql-bin.000001");
+
+		String[] mixes = { "orders", "tickets", "events" };
+		RowMap[][] rows = { orders(n, random, position), tickets(n, random, position), events(n, random, position) };
+
+		// plenty of idle segments, so mapping new files doesn't land in the timings after the first round
+		SpillSegmentPool pool = new SpillSegmentPool(SpillSegmentPool.DEFAULT_SEGMENT_SIZE, 256);
+
+		System.out.println(String.format("%-8s %-8s %14s %14s %12s", "rows", "codec", "write rows/s", "read rows/s", "disk b/row"));
+		for ( int round = 0; round < 3; round++ ) {
+			for ( int m = 0; m < mixes.length; m++ ) {
+				for ( SpillCompression compression : SpillCompression.values() )
+					run(mixes[m], rows[m], compression, pool);
+			}
+			System.out.println();
+		}
+	}
+}
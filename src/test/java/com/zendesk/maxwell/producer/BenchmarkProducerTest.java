@@ -0,0 +1,65 @@
+package com.zendesk.maxwell.producer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zendesk.maxwell.MaxwellConfig;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.zendesk.maxwell.MaxwellTestSupport.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BenchmarkProducerTest {
+	private String[] lines(ByteArrayOutputStream out) {
+		return new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+	}
+
+	@Test
+	public void TestReportsPerTable() throws Exception {
+		MaxwellConfig config = new MaxwellConfig();
+		config.benchmarkReportInterval = 0;
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BenchmarkProducer producer = new BenchmarkProducer(new PositionContext(config), out);
+
+		for ( long i = 0; i < 30; i++ )
+			producer.push(row(i % 3 == 0 ? "orders" : "users", i, true));
+
+		producer.report(false);
+		producer.push(row("orders", 30, true));
+		producer.report(false);
+		producer.close();
+
+		String[] lines = lines(out);
+		assertThat(lines.length, is(3));
+
+		ObjectMapper mapper = new ObjectMapper();
+		JsonNode interval = mapper.readTree(lines[0]);
+		assertThat(interval.get("report").asText(), is("interval"));
+		assertThat(interval.get("all").get("rows").asLong(), is(30L));
+		assertThat(interval.get("tables").get("shard_1.orders").get("rows").asLong(), is(10L));
+		assertThat(interval.get("tables").get("shard_1.users").get("rows").asLong(), is(20L));
+		assertThat(interval.get("tables").get("shard_1.users").get("gap_ns").get("count").asLong(), is(19L));
+
+		/* bytes, like rows, only count what was pushed during the interval */
+		JsonNode next = mapper.readTree(lines[1]);
+		assertThat(next.get("all").get("rows").asLong(), is(1L));
+		assertThat(next.get("bytes").asLong() > 0, is(true));
+		assertThat(next.get("bytes").asLong() < interval.get("bytes").asLong(), is(true));
+
+		JsonNode total = mapper.readTree(lines[2]);
+		assertThat(total.get("report").asText(), is("total"));
+		assertThat(total.get("all").get("rows").asLong(), is(31L));
+		assertThat(total.get("tables").get("shard_1.orders").get("rows").asLong(), is(11L));
+		assertThat(total.get("bytes").asLong(), is(interval.get("bytes").asLong() + next.get("bytes").asLong()));
+
+		JsonNode serialize = total.get("all").get("serialize_ns");
+		assertThat(serialize.get("count").asLong(), is(31L));
+		assertThat(serialize.has("p99.9"), is(true));
+		assertThat(serialize.get("max").asLong() >= serialize.get("p50").asLong(), is(true));
+		assertThat(total.get("all").get("lag_ms").get("max").asLong() < 60000L, is(true));
+	}
+}
@@ -0,0 +1,108 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.MaxwellConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zendesk.maxwell.MaxwellTestSupport.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class FileProducerTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MaxwellConfig config(int flushBytes, int flushMillis) {
+		MaxwellConfig config = new MaxwellConfig();
+		config.outputFileFlushBytes = flushBytes;
+		config.outputFileFlushMillis = flushMillis;
+		return config;
+	}
+
+	private List<String> lines(File f) throws Exception {
+		return Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void TestStoresPositionOnlyOnceWritten() throws Exception {
+		File file = new File(folder.getRoot(), "rows.json");
+		PositionContext context = new PositionContext(config(1024 * 1024, 60000));
+		FileProducer producer = new FileProducer(context, file.getPath());
+
+		producer.push(row(100, false));
+		producer.push(row(200, true));
+		producer.push(row(300, false));
+
+		assertThat(file.length(), is(0L));
+		assertThat(context.getPositions().size(), is(0));
+
+		producer.close();
+		assertThat(lines(file).size(), is(3));
+		assertThat(context.getPositions(), is(Arrays.asList(200L)));
+	}
+
+	@Test
+	public void TestFlushesOnBytes() throws Exception {
+		File file = new File(folder.getRoot(), "rows.json");
+		PositionContext context = new PositionContext(config(1, 60000));
+		FileProducer producer = new FileProducer(context, file.getPath());
+
+		producer.pushBatch(Arrays.asList(row(100, false), row(200, true)));
+		assertThat(lines(file).size(), is(2));
+		assertThat(context.getPositions(), is(Arrays.asList(200L)));
+		producer.close();
+	}
+
+	@Test
+	public void TestFlushesOnTime() throws Exception {
+		File file = new File(folder.getRoot(), "rows.json");
+		PositionContext context = new PositionContext(config(1024 * 1024, 10));
+		FileProducer producer = new FileProducer(context, file.getPath());
+
+		producer.push(row(100, true));
+		for ( int i = 0; i < 500 && context.getPositions().isEmpty(); i++ )
+			Thread.sleep(10);
+
+		assertThat(context.getPositions(), is(Arrays.asList(100L)));
+		assertThat(lines(file).size(), is(1));
+		producer.close();
+	}
+
+	@Test
+	public void TestRotatesAtTransactionBoundaries() throws Exception {
+		File file = new File(folder.getRoot(), "rows.json");
+		MaxwellConfig config = config(1, 60000);
+		config.outputFileRotateBytes = 200;
+		PositionContext context = new PositionContext(config);
+		FileProducer producer = new FileProducer(context, file.getPath());
+
+		for ( long tx = 0; tx < 10; tx++ ) {
+			for ( long i = 0; i < 3; i++ )
+				producer.push(row(tx * 10 + i, i == 2));
+		}
+		producer.close();
+
+		File[] closed = folder.getRoot().listFiles();
+		assertThat(closed.length > 2, is(true));
+
+		int rows = 0;
+		for ( File f : closed ) {
+			List<String> lines = lines(f);
+			rows += lines.size();
+
+			// whole transactions only
+			assertThat(f.getName(), lines.size() % 3, is(0));
+			if ( !f.equals(file) )
+				assertThat(f.getName().startsWith("rows.json."), is(true));
+		}
+		assertThat(rows, is(30));
+		assertThat(context.getPositions().get(context.getPositions().size() - 1), is(92L));
+	}
+}
@@ -0,0 +1,97 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.BinlogPosition;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class InflightRequestsTest {
+	private static BinlogPosition position(long offset) {
+		return new BinlogPosition(offset, "mysql-bin.000001");
+	}
+
+	private static long offset(BinlogPosition p) {
+		return p == null ? -1 : p.getOffset();
+	}
+
+	@Test
+	public void TestWatermarkWaitsForEarlierRows() throws Exception {
+		InflightRequests inflight = new InflightRequests(16);
+
+		long a = inflight.add(null);
+		long b = inflight.add(position(200));
+		long c = inflight.add(null);
+		long d = inflight.add(position(400));
+
+		// the commit row of the second transaction comes back first
+		assertThat(inflight.ack(d), is(nullValue()));
+		assertThat(inflight.ack(b), is(nullValue()));
+		assertThat(offset(inflight.ack(a)), is(200L));
+		assertThat(inflight.getInflight(), is(2L));
+
+		assertThat(offset(inflight.ack(c)), is(400L));
+		assertThat(inflight.getInflight(), is(0L));
+	}
+
+	@Test
+	public void TestWrapsAround() throws Exception {
+		InflightRequests inflight = new InflightRequests(3);
+
+		for ( long i = 0; i < 100; i++ ) {
+			long seq = inflight.add(position(i));
+			assertThat(seq, is(i));
+			assertThat(offset(inflight.ack(seq)), is(i));
+		}
+	}
+
+	@Test
+	public void TestWaitsForRoomInWindow() throws Exception {
+		final InflightRequests inflight = new InflightRequests(2);
+		inflight.add(null);
+		inflight.add(position(100));
+
+		final AtomicLong third = new AtomicLong(-1);
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					third.set(inflight.add(null));
+				} catch ( Exception e ) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		t.start();
+
+		Thread.sleep(100);
+		assertThat(third.get(), is(-1L));
+
+		inflight.ack(0);
+		t.join(5000);
+		assertThat(third.get(), is(2L));
+	}
+
+	@Test
+	public void TestFailureHaltsWatermark() throws Exception {
+		InflightRequests inflight = new InflightRequests(16);
+
+		long a = inflight.add(position(100));
+		long b = inflight.add(position(200));
+		long c = inflight.add(position(300));
+
+		assertThat(offset(inflight.ack(a)), is(100L));
+		inflight.fail(b, new IOException("broker went away"));
+		assertThat(inflight.ack(c), is(nullValue()));
+
+		try {
+			inflight.add(position(400));
+			throw new AssertionError("add after a failed send should throw");
+		} catch ( IOException e ) {
+			assertThat(e.getCause().getMessage(), is("broker went away"));
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.MaxwellConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.zendesk.maxwell.MaxwellTestSupport.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SegmentedLogTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static BinlogPosition position(int file, long offset) {
+		return new BinlogPosition(offset, String.format("mysql-bin.%06d", file));
+	}
+
+	private static byte[] payload(long i) {
+		return ("row " + i).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/* 1000 records over binlog files 1 and 2, at offsets 4, 14, 24, ... within each */
+	private SegmentedLog fill(File dir, long segmentBytes) throws Exception {
+		SegmentedLog log = new SegmentedLog(dir, segmentBytes, 256);
+		for ( long i = 0; i < 1000; i++ )
+			log.append(position(i < 500 ? 1 : 2, 4 + (i % 500) * 10), payload(i));
+		log.flush(false);
+		return log;
+	}
+
+	@Test
+	public void TestAppendRollsSegments() throws Exception {
+		File dir = folder.newFolder();
+		SegmentedLog log = fill(dir, 4096);
+		log.close();
+
+		long[] segments = SegmentedLog.listSegments(dir);
+		assertThat(segments.length > 1, is(true));
+		assertThat(segments[0], is(0L));
+		assertThat(log.getNextSequence(), is(1000L));
+
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+		for ( long i = 0; i < 1000; i++ ) {
+			SegmentedLogReader.Record record = reader.next();
+			assertThat(record.sequence, is(i));
+			assertThat(new String(record.payload, StandardCharsets.UTF_8), is("row " + i));
+		}
+		assertThat(reader.next(), is(nullValue()));
+	}
+
+	@Test
+	public void TestSeekBySequence() throws Exception {
+		File dir = folder.newFolder();
+		fill(dir, 4096).close();
+
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+		for ( long i : new long[] { 0, 1, 99, 500, 998, 999 } ) {
+			reader.seek(i);
+			assertThat(reader.next().sequence, is(i));
+		}
+
+		reader.seek(1000);
+		assertThat(reader.next(), is(nullValue()));
+	}
+
+	@Test
+	public void TestSeekByBinlogPosition() throws Exception {
+		File dir = folder.newFolder();
+		fill(dir, 4096).close();
+
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+
+		reader.seek(position(1, 0));
+		assertThat(reader.next().sequence, is(0L));
+
+		reader.seek(position(1, 1234));
+		assertThat(reader.next().sequence, is(123L));
+
+		reader.seek(position(1, 1244));
+		SegmentedLogReader.Record record = reader.next();
+		assertThat(record.sequence, is(124L));
+		assertThat(record.binlogFileNumber, is(1));
+		assertThat(record.binlogOffset, is(1244L));
+
+		// past the end of file 1: the start of file 2
+		reader.seek(position(1, 100000));
+		assertThat(reader.next().sequence, is(500L));
+
+		reader.seek(position(2, 4994));
+		assertThat(reader.next().sequence, is(999L));
+
+		reader.seek(position(3, 4));
+		assertThat(reader.next(), is(nullValue()));
+	}
+
+	@Test
+	public void TestReaderFollowsAppends() throws Exception {
+		File dir = folder.newFolder();
+		SegmentedLog log = new SegmentedLog(dir, 1024, 256);
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+
+		long expected = 0;
+		for ( long i = 0; i < 200; i++ ) {
+			log.append(position(1, i), payload(i));
+			log.flush(false);
+
+			SegmentedLogReader.Record record;
+			while ( (record = reader.next()) != null )
+				assertThat(record.sequence, is(expected++));
+		}
+		assertThat(expected, is(200L));
+		log.close();
+	}
+
+	@Test
+	public void TestRecoversFromPartialRecord() throws Exception {
+		File dir = folder.newFolder();
+		fill(dir, 1024 * 1024).close();
+
+		// cut the last record off half way through
+		File segment = SegmentedLog.segmentFile(dir, 0, SegmentedLog.LOG_SUFFIX);
+		try ( RandomAccessFile raf = new RandomAccessFile(segment, "rw") ) {
+			raf.setLength(raf.length() - 4);
+		}
+
+		SegmentedLog log = new SegmentedLog(dir, 1024 * 1024, 256);
+		assertThat(log.getNextSequence(), is(999L));
+
+		log.append(position(2, 5000), payload(999));
+		log.flush(false);
+		log.close();
+
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+		reader.seek(998);
+		assertThat(reader.next().sequence, is(998L));
+
+		SegmentedLogReader.Record record = reader.next();
+		assertThat(record.sequence, is(999L));
+		assertThat(record.binlogOffset, is(5000L));
+		assertThat(reader.next(), is(nullValue()));
+
+		reader.seek(position(2, 5000));
+		assertThat(reader.next().sequence, is(999L));
+	}
+
+	@Test
+	public void TestProducerStoresCommitPositions() throws Exception {
+		File dir = folder.newFolder();
+		MaxwellConfig config = new MaxwellConfig();
+		config.outputDir = dir.getPath();
+
+		PositionContext context = new PositionContext(config);
+		SegmentedLogProducer producer = new SegmentedLogProducer(context);
+
+		producer.pushBatch(Arrays.asList(row(10, false), row(20, true), row(30, false)));
+		producer.push(row(40, true));
+		producer.close();
+
+		assertThat(context.getPositions(), is(Arrays.asList(20L, 40L)));
+
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+		reader.seek(position(1, 30));
+		SegmentedLogReader.Record record = reader.next();
+		assertThat(record.sequence, is(2L));
+		assertThat(new String(record.payload, StandardCharsets.UTF_8), containsString("\"id\":30"));
+	}
+
+	private long logBytes(File dir) {
+		long bytes = 0;
+		for ( File f : dir.listFiles() ) {
+			if ( f.getName().endsWith(SegmentedLog.LOG_SUFFIX) )
+				bytes += f.length();
+		}
+		return bytes;
+	}
+
+	@Test
+	public void TestProducerFlushesOnlyAtCommit() throws Exception {
+		File dir = folder.newFolder();
+		MaxwellConfig config = new MaxwellConfig();
+		config.outputDir = dir.getPath();
+
+		PositionContext context = new PositionContext(config);
+		SegmentedLogProducer producer = new SegmentedLogProducer(context);
+
+		/* like bootstrapped rows, pushed one at a time outside any transaction */
+		for ( long i = 1; i <= 100; i++ )
+			producer.push(row(i, false));
+
+		assertThat(logBytes(dir), is(0L));
+		assertThat(context.getPositions().size(), is(0));
+
+		producer.push(row(101, true));
+		assertThat(logBytes(dir) > 0, is(true));
+		assertThat(context.getPositions(), is(Arrays.asList(101L)));
+
+		producer.close();
+
+		SegmentedLogReader reader = new SegmentedLogReader(dir);
+		reader.seek(position(1, 1));
+		for ( long i = 1; i <= 101; i++ )
+			assertThat(reader.next().binlogOffset, is(i));
+	}
+}
@@ -0,0 +1,71 @@
+package com.zendesk.maxwell.producer;
+
+import com.zendesk.maxwell.MaxwellConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.zendesk.maxwell.MaxwellTestSupport.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StdoutProducerTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<String> lines(File file) throws Exception {
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void TestFlushesAtCommit() throws Exception {
+		File file = folder.newFile();
+		MaxwellConfig config = new MaxwellConfig();
+		config.outputStdoutFlushMillis = 60000;
+
+		PositionContext context = new PositionContext(config);
+		StdoutProducer producer = new StdoutProducer(context, new FileOutputStream(file));
+
+		producer.push(row(10, false));
+		assertThat(lines(file).size(), is(0));
+		assertThat(context.getPositions().size(), is(0));
+
+		producer.push(row(20, true));
+		assertThat(lines(file).size(), is(2));
+		assertThat(context.getPositions(), is(Arrays.asList(20L)));
+
+		producer.pushBatch(Arrays.asList(row(30, true), row(40, false), row(50, true), row(60, false)));
+		assertThat(lines(file).size(), is(6));
+		assertThat(lines(file).get(5), containsString("\"id\":60"));
+		assertThat(context.getPositions(), is(Arrays.asList(20L, 50L)));
+
+		producer.close();
+	}
+
+	@Test
+	public void TestFlushesOnTimer() throws Exception {
+		File file = folder.newFile();
+		MaxwellConfig config = new MaxwellConfig();
+		config.outputStdoutFlushMillis = 10;
+
+		PositionContext context = new PositionContext(config);
+		StdoutProducer producer = new StdoutProducer(context, new FileOutputStream(file));
+
+		producer.pushBatch(Arrays.asList(row(10, false), row(20, false)));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while ( lines(file).size() < 2 && System.currentTimeMillis() < deadline )
+			Thread.sleep(5);
+
+		assertThat(lines(file).size(), is(2));
+		assertThat(context.getPositions().size(), is(0));
+		producer.close();
+	}
+}
@@ -0,0 +1,100 @@
+package com.zendesk.maxwell.producer.encoders;
+
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.LazyRowMap;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PositionalRowEncoderTest {
+	private Table buildTable() {
+		Table t = new Table("foo", "bar", "utf8",
+				new ArrayList<>(Arrays.asList(
+					ColumnDef.build("id", "", "int", 0, true, null),
+					ColumnDef.build("name", "utf8", "varchar", 1, true, null))),
+				Arrays.asList("id"));
+		t.setSchemaID(12L);
+		return t;
+	}
+
+	private RowMap update(Table table, int id, String name, String oldName) throws Exception {
+		BitColumn used = BitColumn.valueOf(2, new byte[] { 3 });
+		Row after = new Row(Arrays.<Column>asList(LongColumn.valueOf(id), StringColumn.valueOf(name.getBytes("UTF-8"))));
+		Row before = new Row(Arrays.<Column>asList(LongColumn.valueOf(id), StringColumn.valueOf(oldName.getBytes("UTF-8"))));
+
+		return new LazyRowMap("update", "foo", "bar", 1L, table.getPKList(), new BinlogPosition(3, "mysql.1"),
+				table, after, used, before, used);
+	}
+
+	@Test
+	public void TestWritesLayoutOncePerStream() throws Exception {
+		Table table = buildTable();
+		String layout = table.getJsonWriter().getLayoutID();
+		PositionalRowEncoder encoder = new PositionalRowEncoder();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.writeDelimited(out, update(table, 1, "b", "a"));
+		encoder.writeDelimited(out, update(table, 2, "d", "c"));
+
+		assertThat(out.toString("UTF-8"), is(
+				"{\"type\":\"table-layout\",\"database\":\"foo\",\"table\":\"bar\",\"schema_id\":12,\"layout\":\"" + layout + "\","
+					+ "\"columns\":[{\"name\":\"id\",\"type\":\"int\"},{\"name\":\"name\",\"type\":\"varchar\"}],\"primary_key\":[\"id\"]}\n"
+				+ "{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"update\",\"ts\":1,\"schema_id\":12,\"layout\":\"" + layout + "\","
+					+ "\"data\":[1,\"b\"],\"old\":{\"1\":\"a\"}}\n"
+				+ "{\"database\":\"foo\",\"table\":\"bar\",\"type\":\"update\",\"ts\":1,\"schema_id\":12,\"layout\":\"" + layout + "\","
+					+ "\"data\":[2,\"d\"],\"old\":{\"1\":\"c\"}}\n"));
+
+		// other streams (kafka partitions) get the layout too, once
+		assertThat(encoder.encodeLayout(update(table, 3, "f", "e"), 1), is(notNullValue()));
+		assertThat(encoder.encodeLayout(update(table, 3, "f", "e"), 1), is(nullValue()));
+	}
+
+	@Test
+	public void TestNewLayoutAfterAlter() throws Exception {
+		Table table = buildTable();
+		PositionalRowEncoder encoder = new PositionalRowEncoder();
+		encoder.encodeLayout(update(table, 1, "b", "a"), 0);
+
+		// the same layout in a later schema isn't sent again
+		Table copy = table.copy();
+		assertThat(encoder.encodeLayout(update(copy, 1, "b", "a"), 0), is(nullValue()));
+
+		copy.addColumn(ColumnDef.build("n", "", "int", 2, true, null));
+		assertThat(copy.getJsonWriter().getLayoutID(), is(not(table.getJsonWriter().getLayoutID())));
+	}
+
+	@Test
+	public void TestResendsForgottenLayout() throws Exception {
+		Table table = buildTable();
+		PositionalRowEncoder encoder = new PositionalRowEncoder();
+		RowMap r = update(table, 1, "b", "a");
+
+		assertThat(encoder.encodeLayout(r, 0), is(notNullValue()));
+		encoder.forgetLayout(r, 0);
+		assertThat(encoder.encodeLayout(r, 0), is(notNullValue()));
+		assertThat(encoder.encodeLayout(r, 0), is(nullValue()));
+	}
+
+	@Test
+	public void TestKeyedWithoutLayout() throws Exception {
+		RowMap r = new RowMap("insert", "foo", "bar", 1L, Arrays.asList("id"), new BinlogPosition(3, "mysql.1"));
+		r.putData("id", 1L);
+
+		PositionalRowEncoder encoder = new PositionalRowEncoder();
+		assertThat(encoder.encodeLayout(r, 0), is(nullValue()));
+		assertThat(new String(encoder.encode(r), "UTF-8"), is(r.toJSON()));
+	}
+}
@@ -0,0 +1,93 @@
+package com.zendesk.maxwell.producer.encoders;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.code.or.common.glossary.Column;
+import com.google.code.or.common.glossary.Row;
+import com.google.code.or.common.glossary.column.BitColumn;
+import com.google.code.or.common.glossary.column.LongColumn;
+import com.google.code.or.common.glossary.column.StringColumn;
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.LazyRowMap;
+import com.zendesk.maxwell.RowMap;
+import com.zendesk.maxwell.schema.Table;
+import com.zendesk.maxwell.schema.columndef.ColumnDef;
+import org.junit.Test;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RowEncoderTest {
+	private Table table = new Table("foo", "bar", "utf8",
+			Arrays.asList(
+				ColumnDef.build("id", "", "int", 0, true, null),
+				ColumnDef.build("name", "utf8", "varchar", 1, true, null)),
+			Arrays.asList("id"));
+
+	private RowMap row() throws Exception {
+		Row r = new Row(Arrays.<Column>asList(LongColumn.valueOf(7), StringColumn.valueOf("\u00e9t\u00e9".getBytes("UTF-8"))));
+		RowMap row = new LazyRowMap("insert", "foo", "bar", 1L, table.getPKList(), new BinlogPosition(3, "mysql.1"),
+				table, r, BitColumn.valueOf(2, new byte[] { 3 }), null, null);
+		row.setXid(5L);
+		row.setTXCommit();
+		return row;
+	}
+
+	private Map<String, Object> parse(JsonFactory factory, byte[] bytes) throws Exception {
+		return new ObjectMapper(factory).readValue(bytes, Map.class);
+	}
+
+	private void assertRoundTrips(BinaryRowEncoder encoder, JsonFactory factory) throws Exception {
+		RowMap r = row();
+
+		assertThat(parse(factory, encoder.encode(r)), is(parse(new JsonFactory(), r.toJSONBytes())));
+		assertThat(parse(factory, encoder.encodeKey(r)), is(parse(new JsonFactory(), r.pkToJsonBytes())));
+	}
+
+	@Test
+	public void TestSmile() throws Exception {
+		assertRoundTrips(BinaryRowEncoder.smile(), new SmileFactory());
+	}
+
+	@Test
+	public void TestCBOR() throws Exception {
+		assertRoundTrips(BinaryRowEncoder.cbor(), new CBORFactory());
+	}
+
+	@Test
+	public void TestMessagePack() throws Exception {
+		assertRoundTrips(BinaryRowEncoder.msgpack(), new MessagePackFactory());
+	}
+
+	@Test
+	public void TestDelimiting() throws Exception {
+		RowMap r = row();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JsonRowEncoder().writeDelimited(out, r);
+		assertThat(out.toString("UTF-8"), is(r.toJSON() + "\n"));
+
+		BinaryRowEncoder smile = BinaryRowEncoder.smile();
+		byte[] encoded = smile.encode(r);
+
+		out.reset();
+		smile.writeDelimited(out, r);
+		smile.writeDelimited(out, r);
+
+		ByteBuffer b = ByteBuffer.wrap(out.toByteArray());
+		for ( int i = 0; i < 2; i++ ) {
+			byte[] frame = new byte[b.getInt()];
+			b.get(frame);
+			assertThat(frame, is(encoded));
+		}
+		assertThat(b.hasRemaining(), is(false));
+	}
+}
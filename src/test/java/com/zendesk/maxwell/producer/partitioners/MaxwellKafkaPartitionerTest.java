@@ -0,0 +1,108 @@
+package com.zendesk.maxwell.producer.partitioners;
+
+import com.zendesk.maxwell.BinlogPosition;
+import com.zendesk.maxwell.RowMap;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class MaxwellKafkaPartitionerTest {
+	private static RowMap row(List<String> pks, Object... values) {
+		RowMap r = new RowMap("insert", "shard_1", "sharded", 1L, pks, new BinlogPosition(4, "mysql-bin.000001"));
+		for ( int i = 0; i < values.length; i++ )
+			r.putData(pks.get(i), values[i]);
+		return r;
+	}
+
+	private static List<RowMap> goldenRows() {
+		return Arrays.asList(
+			row(Arrays.asList("id"), 1L),
+			row(Arrays.asList("id", "account_id"), 123456789012L, 7L),
+			row(Arrays.asList("name"), "caf\u00e9"),
+			row(Arrays.asList("name"), "\ud83d\ude00 emoji"),
+			row(Arrays.asList("id"), -42L),
+			row(new ArrayList<String>()),
+			row(Arrays.asList("id"), (Object) null),
+			row(Arrays.asList("code"), new BigDecimal("12.50")),
+			row(Arrays.asList("id"), Long.MIN_VALUE),
+			row(Arrays.asList("name"), ""),
+			row(Arrays.asList("name"), "a\ud83d"),
+			row(Arrays.asList("year", "id"), 2016, 99L));
+	}
+
+	/*
+	   partitions the golden rows landed in (out of 7, then 64) before partition
+	   hashes were worked out from the raw values; they must never move.
+	 */
+	private static void assertGolden(String hash, String key, int... expected) {
+		MaxwellKafkaPartitioner p = new MaxwellKafkaPartitioner(hash, key);
+		List<RowMap> rows = goldenRows();
+
+		for ( int i = 0; i < rows.size(); i++ ) {
+			assertThat(hash + "/" + key + " row " + i, p.kafkaPartition(rows.get(i), 7), is(expected[i * 2]));
+			assertThat(hash + "/" + key + " row " + i, p.kafkaPartition(rows.get(i), 64), is(expected[i * 2 + 1]));
+		}
+	}
+
+	@Test
+	public void TestGoldenDefaultHash() throws Exception {
+		assertGolden("default", "database", 3,16, 3,16, 3,16, 3,16, 3,16, 3,16, 3,16, 3,16, 3,16, 3,16, 3,16, 3,16);
+		assertGolden("default", "table", 2,61, 2,61, 2,61, 2,61, 2,61, 2,61, 2,61, 2,61, 2,61, 2,61, 2,61, 2,61);
+		assertGolden("default", "primary_key", 0,49, 0,5, 4,33, 6,55, 2,43, 0,45, 1,24, 4,8, 6,22, 1,24, 5,60, 1,3);
+	}
+
+	@Test
+	public void TestGoldenMurmur3() throws Exception {
+		assertGolden("murmur3", "database", 1,30, 1,30, 1,30, 1,30, 1,30, 1,30, 1,30, 1,30, 1,30, 1,30, 1,30, 1,30);
+		assertGolden("murmur3", "table", 4,15, 4,15, 4,15, 4,15, 4,15, 4,15, 4,15, 4,15, 4,15, 4,15, 4,15, 4,15);
+		assertGolden("murmur3", "primary_key", 0,16, 3,26, 2,21, 3,35, 4,53, 1,11, 2,24, 6,44, 0,4, 2,24, 3,54, 0,41);
+	}
+
+	private static String randomString(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int n = random.nextInt(12);
+		for ( int i = 0; i < n; i++ ) {
+			switch ( random.nextInt(4) ) {
+				case 0:
+					sb.append((char) (0x20 + random.nextInt(0x5f)));
+					break;
+				case 1:
+					sb.append((char) (0x80 + random.nextInt(0x780)));
+					break;
+				case 2:
+					sb.append((char) (0x800 + random.nextInt(0xd000)));
+					break;
+				default:
+					sb.append(Character.toChars(0x10000 + random.nextInt(0x1000)));
+			}
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void TestMatchesHashOfConcatenatedKey() throws Exception {
+		Random random = new Random(1234);
+		List<String> pks = Arrays.asList("a", "b", "c");
+
+		for ( String hash : new String[] { "default", "murmur3" } ) {
+			MaxwellKafkaPartitioner p = new MaxwellKafkaPartitioner(hash, "primary_key");
+			HashFunction f = p.hashFunc;
+
+			for ( int i = 0; i < 5000; i++ ) {
+				RowMap r = row(pks, random.nextLong() >> random.nextInt(64), randomString(random),
+						random.nextBoolean() ? null : random.nextInt());
+
+				String key = r.pkAsConcatString();
+				assertThat(key, p.kafkaPartition(r, 1 + random.nextInt(100)) >= 0, is(true));
+				assertThat(key, p.provider.getHash(r, f), is(f.hashCode(key)));
+			}
+		}
+	}
+}
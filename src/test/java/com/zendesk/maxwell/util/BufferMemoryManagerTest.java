@@ -0,0 +1,114 @@
+package com.zendesk.maxwell.util;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BufferMemoryManagerTest {
+	private final SpillSegmentPool pool = new SpillSegmentPool(1024, 4);
+
+	private static class SizedCodec implements RecordCodec<byte[]> {
+		public long estimateSize(byte[] element) {
+			return element.length;
+		}
+
+		public void write(DataOutputStream out, byte[] element) throws IOException {
+			out.writeInt(element.length);
+			out.write(element);
+		}
+
+		public byte[] read(DataInputStream in) throws IOException {
+			byte[] b = new byte[in.readInt()];
+			in.readFully(b);
+			return b;
+		}
+	}
+
+	private byte[] record(int fill) {
+		byte[] b = new byte[50];
+		Arrays.fill(b, (byte) fill);
+		return b;
+	}
+
+	private ListWithDiskBuffer<byte[]> buffer(String name, BufferMemoryManager manager) throws IOException {
+		return new ListWithDiskBuffer<>(name, Long.MAX_VALUE, Long.MAX_VALUE, new SizedCodec(), pool, manager);
+	}
+
+	@Test
+	public void TestSpillsLargestBufferOverBudget() throws Exception {
+		BufferMemoryManager manager = new BufferMemoryManager(1000, null);
+		ListWithDiskBuffer<byte[]> big = buffer("big", manager);
+		ListWithDiskBuffer<byte[]> small = buffer("small", manager);
+
+		for ( int i = 0; i < 12; i++ )
+			big.add(record(i));
+		for ( int i = 0; i < 8; i++ )
+			small.add(record(i));
+
+		// right at the budget: nothing moves
+		assertThat(manager.getUsed(), is(1000L));
+		assertThat(manager.getSpilledBytes(), is(0L));
+
+		small.add(record(8));
+
+		// back down to 80% of the budget, all of it out of the bigger buffer
+		assertThat(manager.getUsed(), is(800L));
+		assertThat(manager.getSpilledBytes(), is(250L));
+		assertThat(big.inMemorySize(), is(7L));
+		assertThat(big.size(), is(12L));
+		assertThat(small.inMemorySize(), is(9L));
+
+		for ( int i = 0; i < 12; i++ )
+			assertThat(big.removeFirst(), is(record(i)));
+		assertThat(manager.getUsed(), is(450L));
+	}
+
+	@Test
+	public void TestReportsUsageByName() throws Exception {
+		MetricRegistry metrics = new MetricRegistry();
+		BufferMemoryManager manager = new BufferMemoryManager(1000, metrics);
+		ListWithDiskBuffer<byte[]> a = buffer("transaction", manager);
+		ListWithDiskBuffer<byte[]> b = buffer("transaction", manager);
+		ListWithDiskBuffer<byte[]> c = buffer("bootstrap", manager);
+
+		a.add(record(1));
+		b.add(record(2));
+		b.add(record(3));
+		c.add(record(4));
+
+		assertThat(manager.getUsed("transaction"), is(150L));
+		assertThat(manager.getUsed("bootstrap"), is(50L));
+		assertThat((Long) metrics.getGauges().get("buffer_memory.buffers.transaction").getValue(), is(150L));
+		assertThat((Long) metrics.getGauges().get("buffer_memory.used").getValue(), is(200L));
+		assertThat((Long) metrics.getGauges().get("buffer_memory.budget").getValue(), is(1000L));
+
+		// a closed buffer stops counting, drained or not
+		b.close();
+		assertThat(manager.getUsed(), is(100L));
+		assertThat(manager.getUsed("transaction"), is(50L));
+	}
+
+	@Test
+	public void TestLastElementNeverSpills() throws Exception {
+		BufferMemoryManager manager = new BufferMemoryManager(100, null);
+		ListWithDiskBuffer<byte[]> buffer = buffer("huge", manager);
+
+		buffer.add(record(1));
+		buffer.add(record(2));
+		buffer.add(record(3));
+
+		assertThat(buffer.inMemorySize(), is(1L));
+		assertThat(manager.getUsed(), is(50L));
+		assertThat(buffer.removeFirst(), is(record(1)));
+		assertThat(buffer.removeFirst(), is(record(2)));
+		assertThat(buffer.removeFirst(), is(record(3)));
+		assertThat(manager.getUsed(), is(0L));
+	}
+}
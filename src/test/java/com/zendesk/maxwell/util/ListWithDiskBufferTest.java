@@ -0,0 +1,105 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ListWithDiskBufferTest {
+	private static class LongCodec implements RecordCodec<Long> {
+		private final long estimate;
+		private final long writeMillis;
+
+		LongCodec(long estimate, long writeMillis) {
+			this.estimate = estimate;
+			this.writeMillis = writeMillis;
+		}
+
+		public long estimateSize(Long element) {
+			return estimate;
+		}
+
+		public void write(DataOutputStream out, Long element) throws IOException {
+			if ( writeMillis > 0 ) {
+				try {
+					Thread.sleep(writeMillis);
+				} catch ( InterruptedException e ) {
+					throw new IOException(e);
+				}
+			}
+			out.writeLong(element);
+		}
+
+		public Long read(DataInputStream in) throws IOException {
+			return in.readLong();
+		}
+	}
+
+	@Test
+	public void TestKeepsOrderAcrossMemoryAndDisk() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(4096, 4);
+		ListWithDiskBuffer<Long> buffer = new ListWithDiskBuffer<>(10, Long.MAX_VALUE, new LongCodec(8, 0), pool);
+		Random random = new Random(1234);
+
+		long added = 0, removed = 0;
+		for ( int round = 0; round < 200; round++ ) {
+			int adds = random.nextInt(5000);
+			for ( int i = 0; i < adds; i++ )
+				buffer.add(added++);
+
+			int removes = random.nextInt((int) (added - removed) + 1);
+			for ( int i = 0; i < removes; i++ )
+				assertThat(buffer.removeFirst(), is(removed++));
+
+			assertThat(buffer.size(), is(added - removed));
+		}
+
+		while ( !buffer.isEmpty() )
+			assertThat(buffer.removeFirst(), is(removed++));
+		assertThat(removed, is(added));
+	}
+
+	@Test
+	public void TestWaitsWhenWriterFallsBehind() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(4096, 4);
+		// every 2 spilled elements make a full block, and each takes 20ms to write
+		ListWithDiskBuffer<Long> buffer = new ListWithDiskBuffer<>(1, Long.MAX_VALUE,
+				new LongCodec(ListWithDiskBuffer.BLOCK_BYTES / 2, 20), pool);
+		long waits = SpillExecutor.DEFAULT.getWaitTimer().getCount();
+
+		for ( long i = 0; i < 20; i++ )
+			buffer.add(i);
+
+		assertThat(SpillExecutor.DEFAULT.getWaitTimer().getCount() > waits, is(true));
+		assertThat(buffer.size(), is(20L));
+
+		buffer.flushToDisk();
+		for ( long i = 0; i < 20; i++ )
+			assertThat(buffer.removeFirst(), is(i));
+	}
+
+	@Test
+	public void TestTimesWaitsOnItsOwnExecutor() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(4096, 4);
+		SpillExecutor executor = new SpillExecutor();
+		ListWithDiskBuffer<Long> buffer = new ListWithDiskBuffer<>("buffer", 1, Long.MAX_VALUE,
+				new LongCodec(ListWithDiskBuffer.BLOCK_BYTES / 2, 20), pool, executor, null);
+		long defaultWaits = SpillExecutor.DEFAULT.getWaitTimer().getCount();
+
+		for ( long i = 0; i < 20; i++ )
+			buffer.add(i);
+
+		assertThat(executor.getWaitTimer().getCount() > 0, is(true));
+		assertThat(SpillExecutor.DEFAULT.getWaitTimer().getCount(), is(defaultWaits));
+
+		buffer.flushToDisk();
+		for ( long i = 0; i < 20; i++ )
+			assertThat(buffer.removeFirst(), is(i));
+		executor.shutdown();
+	}
+}
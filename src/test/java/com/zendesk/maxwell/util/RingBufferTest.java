@@ -0,0 +1,74 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class RingBufferTest {
+	@Test
+	public void TestOrderingAndCapacity() throws Exception {
+		RingBuffer<Integer> buffer = new RingBuffer<>(3, RingBuffer.WaitStrategy.BLOCKING);
+
+		assertThat(buffer.capacity(), is(4));
+
+		for ( int i = 0; i < 4; i++ )
+			assertThat(buffer.offer(i, 10, TimeUnit.MILLISECONDS), is(true));
+
+		assertThat(buffer.offer(4, 10, TimeUnit.MILLISECONDS), is(false));
+		assertThat(buffer.size(), is(4));
+
+		for ( int i = 0; i < 4; i++ )
+			assertThat(buffer.poll(10, TimeUnit.MILLISECONDS), is(i));
+
+		assertThat(buffer.poll(10, TimeUnit.MILLISECONDS), is(nullValue()));
+	}
+
+	@Test
+	public void TestPushBack() throws Exception {
+		RingBuffer<String> buffer = new RingBuffer<>(2, RingBuffer.WaitStrategy.YIELDING);
+
+		buffer.offer("a", 10, TimeUnit.MILLISECONDS);
+		buffer.offer("b", 10, TimeUnit.MILLISECONDS);
+
+		String a = buffer.poll(10, TimeUnit.MILLISECONDS);
+		buffer.pushBack(a);
+
+		assertThat(buffer.size(), is(2));
+		assertThat(buffer.poll(10, TimeUnit.MILLISECONDS), is("a"));
+		assertThat(buffer.poll(10, TimeUnit.MILLISECONDS), is("b"));
+	}
+
+	@Test
+	public void TestCrossThreadHandoff() throws Exception {
+		for ( RingBuffer.WaitStrategy strategy : RingBuffer.WaitStrategy.values() ) {
+			final RingBuffer<Long> buffer = new RingBuffer<>(1024, strategy);
+			final long count = 20000;
+
+			Thread producer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for ( long i = 0; i < count; i++ ) {
+							while ( !buffer.offer(i, 100, TimeUnit.MILLISECONDS) ) { }
+						}
+					} catch ( InterruptedException e ) { }
+				}
+			});
+			producer.start();
+
+			for ( long i = 0; i < count; i++ ) {
+				Long l = null;
+				while ( l == null )
+					l = buffer.poll(100, TimeUnit.MILLISECONDS);
+
+				assertThat(l, is(i));
+			}
+
+			producer.join();
+			assertThat(buffer.isEmpty(), is(true));
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.zendesk.maxwell.util;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class SpillStoreTest {
+	private byte[] record(int n, int fill) {
+		byte[] b = new byte[n];
+		Arrays.fill(b, (byte) fill);
+		return b;
+	}
+
+	@Test
+	public void TestRecordsSpanSegments() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(64, 4);
+		SpillStore store = new SpillStore(pool);
+		DataOutputStream out = new DataOutputStream(store.getOutputStream());
+		DataInputStream in = new DataInputStream(store.getInputStream());
+
+		for ( int i = 0; i < 10; i++ ) {
+			out.writeInt(i * 20);
+			out.write(record(i * 20, i));
+		}
+		assertThat(store.getSegmentCount(), is(15));
+
+		for ( int i = 0; i < 10; i++ ) {
+			byte[] b = new byte[in.readInt()];
+			in.readFully(b);
+			assertThat(b, is(record(i * 20, i)));
+		}
+
+		// read segments went back to the pool as they were finished with
+		assertThat(store.getSegmentCount(), is(1));
+		store.close();
+		assertThat(pool.getIdleSegments(), is(4));
+	}
+
+	@Test
+	public void TestRecyclesSegments() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(64, 4);
+
+		for ( int round = 0; round < 5; round++ ) {
+			SpillStore store = new SpillStore(pool);
+			store.getOutputStream().write(record(100, round));
+
+			byte[] b = new byte[100];
+			new DataInputStream(store.getInputStream()).readFully(b);
+			assertThat(b, is(record(100, round)));
+			store.close();
+		}
+
+		assertThat(pool.getSegmentsCreated(), is(2L));
+	}
+
+	private void assertCompressedRoundTrip(SpillCompression compression) throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(4096, 4);
+		SpillStore store = new SpillStore(pool, compression);
+		DataOutputStream out = new DataOutputStream(store.getOutputStream());
+		DataInputStream in = new DataInputStream(store.getInputStream());
+		Random random = new Random(1234);
+
+		// compressible and incompressible records, several blocks' worth, reads following writes
+		int written = 0;
+		long bytes = 0;
+		for ( int round = 0; round < 4; round++ ) {
+			for ( int i = 0; i < 300; i++, written++ ) {
+				byte[] b = record(500 + written % 100, written);
+				if ( written % 3 == 0 )
+					random.nextBytes(b);
+				out.writeInt(b.length);
+				out.write(b);
+				bytes += 4 + b.length;
+			}
+
+			random = new Random(1234);
+			for ( int i = 0; i < written; i++ ) {
+				byte[] expected = record(500 + i % 100, i);
+				if ( i % 3 == 0 )
+					random.nextBytes(expected);
+
+				if ( i < written - 300 )
+					continue;
+
+				byte[] b = new byte[in.readInt()];
+				in.readFully(b);
+				assertThat(compression + " record " + i, b, is(expected));
+			}
+		}
+
+		assertThat(store.getBytesWritten() < bytes, is(true));
+		store.close();
+	}
+
+	@Test
+	public void TestLZ4RoundTrip() throws Exception {
+		assertCompressedRoundTrip(SpillCompression.LZ4);
+	}
+
+	@Test
+	public void TestDeflateRoundTrip() throws Exception {
+		assertCompressedRoundTrip(SpillCompression.DEFLATE);
+	}
+
+	@Test
+	public void TestCompressedSpillThroughBuffer() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(1024, 4, SpillCompression.LZ4);
+		ListWithDiskBuffer<byte[]> buffer = new ListWithDiskBuffer<>(10, Long.MAX_VALUE, new SizedCodec(), pool);
+
+		for ( int i = 0; i < 1000; i++ )
+			buffer.add(record(200, i));
+		for ( int i = 0; i < 1000; i++ )
+			assertThat(buffer.removeFirst(), is(record(200, i)));
+		assertThat(buffer.isEmpty(), is(true));
+	}
+
+	private static class SizedCodec implements RecordCodec<byte[]> {
+		public long estimateSize(byte[] element) {
+			return element.length;
+		}
+
+		public void write(DataOutputStream out, byte[] element) throws java.io.IOException {
+			out.writeInt(element.length);
+			out.write(element);
+		}
+
+		public byte[] read(DataInputStream in) throws java.io.IOException {
+			byte[] b = new byte[in.readInt()];
+			in.readFully(b);
+			return b;
+		}
+	}
+
+	@Test
+	public void TestSpillsByBytes() throws Exception {
+		SpillSegmentPool pool = new SpillSegmentPool(1024, 4);
+		ListWithDiskBuffer<byte[]> buffer = new ListWithDiskBuffer<>(Long.MAX_VALUE, 1000, new SizedCodec(), pool);
+
+		for ( int i = 0; i < 100; i++ )
+			buffer.add(record(5, i));
+		assertThat(buffer.inMemorySize(), is(100L));
+
+		buffer.add(record(2000, 100));
+		// everything but the last element goes, however small
+		assertThat(buffer.inMemorySize(), is(1L));
+		assertThat(buffer.size(), is(101L));
+
+		for ( int i = 0; i < 100; i++ )
+			assertThat(buffer.removeFirst(), is(record(5, i)));
+		assertThat(buffer.removeFirst(), is(record(2000, 100)));
+
+		assertThat(buffer.isEmpty(), is(true));
+		assertThat(buffer.inMemoryBytes(), is(0L));
+		assertThat(pool.getIdleSegments(), is(1));
+	}
+}